@@ -0,0 +1,44 @@
+package cn.lihongjie.javapoet.gen.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so that allocation per
+ * operation ({@code gc.alloc.rate.norm}) is reported next to the timings.
+ *
+ * <p>Usage:</p>
+ * <pre>
+ * # All benchmarks
+ * java -jar javapoet-gen-benchmarks/target/benchmarks.jar
+ *
+ * # Only benchmarks whose name matches the given regular expressions
+ * java -jar javapoet-gen-benchmarks/target/benchmarks.jar ParseBenchmark GenerateBenchmark
+ * </pre>
+ *
+ * <p>For the full JMH command line, including other profilers, run
+ * {@code java -cp javapoet-gen-benchmarks/target/benchmarks.jar org.openjdk.jmh.Main -h}.</p>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder builder = new OptionsBuilder();
+        if (args.length == 0) {
+            builder.include(BenchmarkRunner.class.getPackageName() + ".*Benchmark");
+        } else {
+            for (String pattern : args) {
+                builder.include(pattern);
+            }
+        }
+        Options options = builder
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
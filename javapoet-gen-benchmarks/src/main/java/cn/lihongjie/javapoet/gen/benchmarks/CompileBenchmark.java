@@ -0,0 +1,102 @@
+package cn.lihongjie.javapoet.gen.benchmarks;
+
+import cn.lihongjie.javapoet.gen.core.GeneratorConfig;
+import cn.lihongjie.javapoet.gen.core.JavaPoetGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long javac takes to compile generated JavaPoet code that embeds a
+ * large string, depending on the size of the literal segments the generator writes.
+ * Literals over 64 KB cannot be compiled at all, so the largest input only compiles
+ * because the generator splits it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompileBenchmark {
+
+    /**
+     * Size of the Javadoc and of the string constant in the input source.
+     */
+    @Param({"16384", "262144"})
+    public int literalBytes;
+
+    /**
+     * Largest literal the generator writes before splitting.
+     */
+    @Param({"65535", "8192"})
+    public int maxStringLiteralBytes;
+
+    private JavaCompiler compiler;
+    private StandardJavaFileManager fileManager;
+    private JavaFileObject generatedSource;
+    private Path outputDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        GeneratorConfig config = new GeneratorConfig().setMaxStringLiteralBytes(maxStringLiteralBytes);
+        String code = new JavaPoetGenerator(config)
+                .generateFromSource(SourceFixtures.largeLiteralSource(literalBytes), "Templates.java");
+
+        // The generated statements are compiled as the body of a method returning the JavaFile
+        int body = code.indexOf("\n\n") + 2;
+        String source = code.substring(0, body)
+                + "public class TemplatesGenerator {\n"
+                + "    public static JavaFile generate() {\n"
+                + code.substring(body)
+                + "        return javaFile;\n"
+                + "    }\n"
+                + "}\n";
+        generatedSource = new SimpleJavaFileObject(URI.create("string:///TemplatesGenerator.java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        compiler = ToolProvider.getSystemJavaCompiler();
+        fileManager = compiler.getStandardFileManager(null, null, null);
+        outputDir = Files.createTempDirectory("compile-benchmark");
+
+        if (!compile()) {
+            throw new IllegalStateException("Generated code does not compile");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fileManager.close();
+        try (Stream<Path> paths = Files.walk(outputDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public boolean compile() {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = List.of(
+                "-d", outputDir.toString(),
+                "-proc:none",
+                "-classpath", System.getProperty("java.class.path"));
+        return compiler.getTask(null, fileManager, diagnostics, options, null, List.of(generatedSource)).call();
+    }
+}
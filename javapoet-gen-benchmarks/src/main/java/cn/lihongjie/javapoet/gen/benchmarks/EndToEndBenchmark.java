@@ -0,0 +1,41 @@
+package cn.lihongjie.javapoet.gen.benchmarks;
+
+import cn.lihongjie.javapoet.gen.benchmarks.SourceFixtures.InputSize;
+import cn.lihongjie.javapoet.gen.core.GeneratorConfig;
+import cn.lihongjie.javapoet.gen.core.JavaPoetGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link JavaPoetGenerator#generateFromSource(String, String)}: parsing plus generation,
+ * with expression and statement text printed from the AST or sliced from the source.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE_CLASS", "LARGE_ENUM"})
+    public InputSize size;
+
+    @Param({"false", "true"})
+    public boolean sliceSourceText;
+
+    private JavaPoetGenerator generator;
+    private String source;
+
+    @Setup
+    public void setUp() {
+        generator = new JavaPoetGenerator(new GeneratorConfig().setSliceSourceText(sliceSourceText));
+        source = SourceFixtures.source(size);
+    }
+
+    @Benchmark
+    public String generateFromSource() {
+        return generator.generateFromSource(source, "Benchmark.java");
+    }
+}
@@ -0,0 +1,39 @@
+package cn.lihongjie.javapoet.gen.benchmarks;
+
+import cn.lihongjie.javapoet.gen.benchmarks.SourceFixtures.InputSize;
+import cn.lihongjie.javapoet.gen.core.JavaPoetCodeGenerator;
+import cn.lihongjie.javapoet.gen.core.JavaSourceParser;
+import com.github.javaparser.ast.CompilationUnit;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link JavaPoetCodeGenerator#generate(CompilationUnit)} on a pre-parsed unit,
+ * so parsing cost is excluded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenerateBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE_CLASS", "LARGE_ENUM"})
+    public InputSize size;
+
+    private JavaPoetCodeGenerator codeGenerator;
+    private CompilationUnit compilationUnit;
+
+    @Setup
+    public void setUp() {
+        codeGenerator = new JavaPoetCodeGenerator();
+        compilationUnit = new JavaSourceParser().parse(SourceFixtures.source(size), "Benchmark.java");
+    }
+
+    @Benchmark
+    public String generate() {
+        return codeGenerator.generate(compilationUnit);
+    }
+}
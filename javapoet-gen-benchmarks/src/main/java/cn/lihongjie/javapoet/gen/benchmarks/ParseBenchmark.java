@@ -0,0 +1,45 @@
+package cn.lihongjie.javapoet.gen.benchmarks;
+
+import cn.lihongjie.javapoet.gen.benchmarks.SourceFixtures.InputSize;
+import cn.lihongjie.javapoet.gen.core.GeneratorConfig;
+import cn.lihongjie.javapoet.gen.core.JavaSourceParser;
+import com.github.javaparser.ast.CompilationUnit;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link JavaSourceParser#parse(String, String)} alone.
+ * With {@code lean}, comments and Javadoc are disabled and the lighter parse profile is used;
+ * run with {@code -prof gc} to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE_CLASS", "LARGE_ENUM"})
+    public InputSize size;
+
+    @Param({"false", "true"})
+    public boolean lean;
+
+    private JavaSourceParser parser;
+    private String source;
+
+    @Setup
+    public void setUp() {
+        parser = new JavaSourceParser(new GeneratorConfig()
+                .setGenerateComments(!lean)
+                .setPreserveJavadoc(!lean));
+        source = SourceFixtures.source(size);
+    }
+
+    @Benchmark
+    public CompilationUnit parse() {
+        return parser.parse(source, "Benchmark.java");
+    }
+}
@@ -0,0 +1,113 @@
+package cn.lihongjie.javapoet.gen.benchmarks;
+
+/**
+ * Synthetic Java sources used as benchmark inputs.
+ * Sources are built deterministically so results are comparable between runs.
+ */
+public final class SourceFixtures {
+
+    /**
+     * Benchmark input sizes.
+     */
+    public enum InputSize {
+        /** A small bean with a few fields, a constructor and accessors. */
+        SMALL,
+        /** A service-like class with 50 fields and 200 methods with control flow. */
+        MEDIUM,
+        /** A class with 5,000 methods. */
+        LARGE_CLASS,
+        /** An enum with 20,000 constants. */
+        LARGE_ENUM
+    }
+
+    private SourceFixtures() {
+    }
+
+    /**
+     * Build the source for the given input size.
+     */
+    public static String source(InputSize size) {
+        return switch (size) {
+            case SMALL -> classSource("SmallBean", 3, 3);
+            case MEDIUM -> classSource("MediumService", 50, 200);
+            case LARGE_CLASS -> classSource("LargeClass", 100, 5_000);
+            case LARGE_ENUM -> enumSource("LargeEnum", 20_000);
+        };
+    }
+
+    private static String classSource(String className, int fieldCount, int methodCount) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package com.example.bench;\n\n");
+        sb.append("import java.util.List;\n");
+        sb.append("import java.util.Map;\n\n");
+        sb.append("/**\n * Benchmark fixture ").append(className).append(".\n */\n");
+        sb.append("public class ").append(className).append(" {\n\n");
+
+        for (int i = 0; i < fieldCount; i++) {
+            switch (i % 3) {
+                case 0 -> sb.append("    private String name").append(i).append(" = \"value").append(i).append("\";\n");
+                case 1 -> sb.append("    private int count").append(i).append(";\n");
+                default -> sb.append("    private Map<String, List<Long>> index").append(i).append(";\n");
+            }
+        }
+        sb.append('\n');
+
+        sb.append("    public ").append(className).append("(String name0) {\n");
+        sb.append("        this.name0 = name0;\n");
+        sb.append("    }\n\n");
+
+        for (int i = 0; i < methodCount; i++) {
+            sb.append("    /**\n     * Operation ").append(i).append(".\n     */\n");
+            sb.append("    @Deprecated\n");
+            sb.append("    public int operation").append(i).append("(int value, List<String> items) {\n");
+            sb.append("        int total = value;\n");
+            sb.append("        for (String item : items) {\n");
+            sb.append("            if (item.isEmpty()) {\n");
+            sb.append("                total += ").append(i).append(";\n");
+            sb.append("            } else {\n");
+            sb.append("                total -= item.length();\n");
+            sb.append("            }\n");
+            sb.append("        }\n");
+            sb.append("        return total;\n");
+            sb.append("    }\n\n");
+        }
+
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static String enumSource(String enumName, int constantCount) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package com.example.bench;\n\n");
+        sb.append("public enum ").append(enumName).append(" {\n");
+        for (int i = 0; i < constantCount; i++) {
+            sb.append("    CONSTANT_").append(i).append("(\"code").append(i).append("\", ").append(i).append(')');
+            sb.append(i + 1 < constantCount ? ",\n" : ";\n");
+        }
+        sb.append('\n');
+        sb.append("    ").append(enumName).append("(String code, int ordinalValue) {\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Build a class whose Javadoc and string constant each hold about the given number
+     * of bytes of text, like an embedded SQL or JSON template.
+     */
+    public static String largeLiteralSource(int literalBytes) {
+        String line = "SELECT id, name, created_at FROM orders WHERE status = 'OPEN' AND total > 100 ";
+        StringBuilder text = new StringBuilder(literalBytes + line.length());
+        while (text.length() < literalBytes) {
+            text.append(line);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("package com.example.bench;\n\n");
+        sb.append("/**\n * ").append(text).append("\n */\n");
+        sb.append("public class Templates {\n");
+        sb.append("    public static final String QUERY = \"").append(text).append("\";\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package cn.lihongjie.javapoet.gen.cli;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Manifest of sources generated by a previous CLI run.
+ * Each entry maps a source path to the hash of its content, the fingerprint of
+ * the generator configuration and the tool version that produced the output.
+ * A source whose entry still matches all three does not need to be regenerated.
+ *
+ * <p>A saved manifest only holds the sources visited by the run that saved it, so
+ * entries of deleted or renamed sources do not pile up. A source that is no longer
+ * passed to the CLI is regenerated if it is passed again.</p>
+ *
+ * <p>The manifest is a plain text file with one tab-separated entry per line.</p>
+ */
+class IncrementalManifest {
+
+    static final String FILE_NAME = ".javapoet-gen-manifest";
+
+    private static final String HEADER = "# javapoet-gen incremental manifest v1";
+
+    /**
+     * State recorded for one generated source.
+     */
+    record Entry(String sourceHash, String configHash, String toolVersion) {
+    }
+
+    private final Path manifestFile;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> entries;
+
+    private IncrementalManifest(Path manifestFile, Map<String, Entry> previous) {
+        this.manifestFile = manifestFile;
+        this.previous = Map.copyOf(previous);
+        this.entries = new TreeMap<>();
+    }
+
+    /**
+     * Load the manifest stored in the given output directory.
+     * A missing or unreadable manifest yields an empty one, so every source is regenerated.
+     */
+    static IncrementalManifest load(Path outputDir) {
+        Path manifestFile = outputDir.resolve(FILE_NAME);
+        Map<String, Entry> entries = new TreeMap<>();
+        if (Files.isRegularFile(manifestFile)) {
+            try {
+                List<String> lines = Files.readAllLines(manifestFile, StandardCharsets.UTF_8);
+                if (!lines.isEmpty() && HEADER.equals(lines.get(0))) {
+                    for (String line : lines.subList(1, lines.size())) {
+                        String[] parts = line.split("\t", 4);
+                        if (parts.length == 4) {
+                            entries.put(parts[3], new Entry(parts[0], parts[1], parts[2]));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                entries.clear();
+            }
+        }
+        return new IncrementalManifest(manifestFile, entries);
+    }
+
+    /**
+     * Check whether the state recorded by the previous run matches the given state.
+     * Only reads the loaded manifest, so it may be called from any thread.
+     */
+    boolean isUpToDate(String sourceKey, Entry current) {
+        return current.equals(previous.get(sourceKey));
+    }
+
+    /**
+     * Record the state of a source generated in this run. Sources that are neither put
+     * nor kept, including those that failed, are left out of the saved manifest.
+     * Not thread-safe.
+     */
+    void put(String sourceKey, Entry entry) {
+        entries.put(sourceKey, entry);
+    }
+
+    /**
+     * Keep the entry of a source found up to date in this run. Not thread-safe.
+     */
+    void keep(String sourceKey) {
+        Entry entry = previous.get(sourceKey);
+        if (entry != null) {
+            entries.put(sourceKey, entry);
+        }
+    }
+
+    /**
+     * Write the manifest, replacing the previous one atomically where the file system allows it.
+     */
+    void save() throws IOException {
+        Path tempFile = manifestFile.resolveSibling(FILE_NAME + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                writer.write(entry.sourceHash() + "\t" + entry.configHash() + "\t"
+                        + entry.toolVersion() + "\t" + e.getKey());
+                writer.newLine();
+            }
+        }
+        try {
+            Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -1,18 +1,30 @@
 package cn.lihongjie.javapoet.gen.cli;
 
+import cn.lihongjie.javapoet.gen.core.CacheStats;
+import cn.lihongjie.javapoet.gen.core.ContentHashes;
 import cn.lihongjie.javapoet.gen.core.GeneratorConfig;
+import cn.lihongjie.javapoet.gen.core.GeneratorVersion;
 import cn.lihongjie.javapoet.gen.core.JavaPoetGenerator;
+import cn.lihongjie.javapoet.gen.core.OutputCache;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Command-line interface for JavaPoet Generator.
@@ -27,6 +39,18 @@ import java.util.concurrent.Callable;
  * 
  * # Process multiple files
  * javapoet-gen src/main/java/*.java -o generated/
+ *
+ * # Process a source tree on 8 threads
+ * javapoet-gen src/main/java -r --threads 8 -o generated/
+ *
+ * # Only regenerate sources that changed since the last run
+ * javapoet-gen src/main/java -r --incremental -o generated/
+ *
+ * # Reuse output generated by other checkouts on the same machine
+ * javapoet-gen src/main/java -r --cache-dir ~/.cache/javapoet-gen -o generated/
+ *
+ * # Only generate the public API, without deprecated members
+ * javapoet-gen src/main/java -r --include visibility:public --exclude annotation:Deprecated -o generated/
  * </pre>
  */
 @Command(
@@ -37,6 +61,18 @@ import java.util.concurrent.Callable;
 )
 public class JavaPoetGenCli implements Callable<Integer> {
 
+    /**
+     * Outputs kept in memory when --cache-dir is set. Each source is generated once per
+     * run, so the memory tier only needs to absorb duplicate sources.
+     */
+    private static final int CACHE_MEMORY_SIZE = 256;
+    private static final long CACHE_MEMORY_WEIGHT = 16L * 1024 * 1024;
+
+    /**
+     * Generation tasks submitted per worker thread ahead of the in-order writer.
+     */
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+
     @Parameters(
         index = "0",
         description = "Java source file(s) to process",
@@ -74,34 +110,136 @@ public class JavaPoetGenCli implements Callable<Integer> {
     )
     private boolean verbose;
 
+    @Option(
+        names = {"-t", "--threads"},
+        description = "Number of worker threads used to generate files in parallel (default: available processors)"
+    )
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(
+        names = {"--incremental"},
+        description = "Skip sources whose content, configuration and tool version are unchanged since the last run. "
+                + "Requires -o to be a directory; state is kept in a manifest file inside it."
+    )
+    private boolean incremental;
+
+    @Option(
+        names = {"--cache-dir"},
+        description = "Directory of previously generated output, keyed by source content, configuration "
+                + "and tool version. Can be shared by several checkouts or runs on the same machine."
+    )
+    private Path cacheDir;
+
+    @Option(
+        names = {"--include"},
+        paramLabel = "RULE",
+        description = "Only generate fields, constructors and methods matching a rule, e.g. "
+                + "kind:method,visibility:public|protected. Conditions: kind, visibility, name (glob) "
+                + "and annotation. Can be repeated; a member matching any include rule is generated."
+    )
+    private List<String> includes = new ArrayList<>();
+
+    @Option(
+        names = {"--exclude"},
+        paramLabel = "RULE",
+        description = "Do not generate fields, constructors and methods matching a rule, e.g. "
+                + "annotation:Deprecated or name:*Internal. Can be repeated; takes precedence over --include."
+    )
+    private List<String> excludes = new ArrayList<>();
+
+    private String configHash;
+    private IncrementalManifest manifest;
+
+    /**
+     * Buffered sink for stdout or single-file output, open for the whole run.
+     */
+    private Writer sink;
+    /**
+     * Whether more than one source argument was given. As before, only then are the
+     * sources of a single output file concatenated; a single argument, even a
+     * directory, writes each result over the previous one.
+     */
+    private boolean multipleSources;
+
     @Override
     public Integer call() {
+        if (threads < 1) {
+            System.err.println("Error: --threads must be at least 1");
+            return 1;
+        }
+
+        ForkJoinPool pool = null;
         try {
             GeneratorConfig config = new GeneratorConfig()
                     .setGenerateComments(!noComments)
-                    .setPreserveJavadoc(!noJavadoc);
+                    .setPreserveJavadoc(!noJavadoc)
+                    .setParserPoolSize(threads);
+            includes.forEach(config::addInclude);
+            excludes.forEach(config::addExclude);
 
-            JavaPoetGenerator generator = new JavaPoetGenerator(config);
+            OutputCache outputCache = cacheDir != null
+                    ? new OutputCache(CACHE_MEMORY_SIZE, CACHE_MEMORY_WEIGHT, cacheDir)
+                    : null;
+            JavaPoetGenerator generator = new JavaPoetGenerator(config, outputCache);
 
+            if (incremental) {
+                if (output == null || !Files.isDirectory(output)) {
+                    System.err.println("Error: --incremental requires -o to be an existing directory");
+                    return 1;
+                }
+                configHash = config.fingerprint();
+                manifest = IncrementalManifest.load(output);
+            }
+
+            List<Path> files = new ArrayList<>();
             for (Path sourcePath : sourceFiles) {
-                processPath(sourcePath, generator);
+                collectPath(sourcePath, files);
+            }
+
+            long startTime = System.nanoTime();
+            pool = new ForkJoinPool(threads);
+            multipleSources = sourceFiles.length > 1;
+            RunSummary summary;
+            sink = openSink();
+            try {
+                summary = processFiles(files, generator, pool);
+            } finally {
+                closeSink();
+            }
+            long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+            if (manifest != null) {
+                manifest.save();
             }
 
-            return 0;
+            List<Path> failedFiles = summary.failedFiles();
+            if (verbose || files.size() > 1 || !failedFiles.isEmpty()) {
+                printSummary(files.size(), summary, elapsedMillis);
+            }
+            if (verbose && outputCache != null) {
+                CacheStats stats = outputCache.stats();
+                System.err.println("Output cache: " + stats.hitCount() + " hit(s), "
+                        + stats.missCount() + " miss(es)");
+            }
+            return failedFiles.isEmpty() ? 0 : 1;
         } catch (Exception e) {
             System.err.println("Error: " + e.getMessage());
             if (verbose) {
                 e.printStackTrace();
             }
             return 1;
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
         }
     }
 
-    private void processPath(Path path, JavaPoetGenerator generator) throws IOException {
+    private void collectPath(Path path, List<Path> files) throws IOException {
         if (Files.isDirectory(path)) {
-            processDirectory(path, generator);
+            collectDirectory(path, files);
         } else if (Files.isRegularFile(path) && path.toString().endsWith(".java")) {
-            processFile(path, generator);
+            files.add(path);
         } else {
             if (verbose) {
                 System.err.println("Skipping: " + path);
@@ -109,51 +247,163 @@ public class JavaPoetGenCli implements Callable<Integer> {
         }
     }
 
-    private void processDirectory(Path dir, JavaPoetGenerator generator) throws IOException {
-        List<Path> failedFiles = new ArrayList<>();
+    private void collectDirectory(Path dir, List<Path> files) throws IOException {
         try (var stream = recursive ? Files.walk(dir) : Files.list(dir)) {
             stream.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".java"))
-                  .forEach(p -> {
-                      try {
-                          processFile(p, generator);
-                      } catch (IOException e) {
-                          System.err.println("Error processing " + p + ": " + e.getMessage());
-                          failedFiles.add(p);
-                      }
-                  });
+                  .sorted()
+                  .forEach(files::add);
         }
-        if (!failedFiles.isEmpty() && verbose) {
-            System.err.println("Failed to process " + failedFiles.size() + " file(s)");
+    }
+
+    /**
+     * Generate all files on the worker pool and write the results in input order,
+     * so the output does not depend on how the work was scheduled.
+     */
+    private RunSummary processFiles(List<Path> files, JavaPoetGenerator generator, ForkJoinPool pool) {
+        // Results are written in input order; at most IN_FLIGHT_PER_THREAD tasks per thread
+        // run ahead of the writer, so the generated code held in memory stays bounded
+        int window = pool.getParallelism() * IN_FLIGHT_PER_THREAD;
+        Deque<ForkJoinTask<GenerationResult>> inFlight = new ArrayDeque<>(window);
+        int submitted = 0;
+
+        List<Path> failedFiles = new ArrayList<>();
+        int skipped = 0;
+        for (int i = 0; i < files.size(); i++) {
+            while (submitted < files.size() && inFlight.size() < window) {
+                Path next = files.get(submitted++);
+                inFlight.add(pool.submit(() -> generate(next, generator)));
+            }
+            Path file = files.get(i);
+            GenerationResult result = inFlight.poll().join();
+            if (result.skipped()) {
+                skipped++;
+                manifest.keep(manifestKey(file));
+                if (verbose) {
+                    System.err.println("Unchanged: " + file);
+                }
+                continue;
+            }
+
+            Exception error = result.error();
+            if (error == null) {
+                try {
+                    writeResult(file, result.code());
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            if (error != null) {
+                System.err.println("Error processing " + file + ": " + error.getMessage());
+                if (verbose) {
+                    error.printStackTrace();
+                }
+                failedFiles.add(file);
+            } else if (manifest != null) {
+                manifest.put(manifestKey(file), result.manifestEntry());
+            }
+        }
+        return new RunSummary(failedFiles, skipped);
+    }
+
+    private GenerationResult generate(Path file, JavaPoetGenerator generator) {
+        try {
+            if (manifest == null) {
+                if (verbose) {
+                    System.err.println("Processing: " + file);
+                }
+                return GenerationResult.generated(generator.generateFromFile(file), null);
+            }
+
+            // Hash the source first; unchanged sources are neither parsed nor generated
+            byte[] content = Files.readAllBytes(file);
+            IncrementalManifest.Entry entry = new IncrementalManifest.Entry(
+                    ContentHashes.sha256Hex(content), configHash, GeneratorVersion.get());
+            if (manifest.isUpToDate(manifestKey(file), entry) && Files.exists(outputFileFor(file))) {
+                return GenerationResult.unchanged();
+            }
+
+            if (verbose) {
+                System.err.println("Processing: " + file);
+            }
+            String source = new String(content, StandardCharsets.UTF_8);
+            return GenerationResult.generated(
+                    generator.generateFromSource(source, file.getFileName().toString()), entry);
+        } catch (Exception e) {
+            return GenerationResult.failed(e);
+        }
+    }
+
+    private String manifestKey(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    private Path outputFileFor(Path file) {
+        String outputFileName = file.getFileName().toString()
+                .replace(".java", "Generator.java");
+        return output.resolve(outputFileName);
+    }
+
+    private void printSummary(int total, RunSummary summary, long elapsedMillis) {
+        List<Path> failedFiles = summary.failedFiles();
+        int succeeded = total - failedFiles.size() - summary.skipped();
+        StringBuilder message = new StringBuilder()
+                .append("Processed ").append(total).append(" file(s) in ").append(elapsedMillis)
+                .append(" ms using ").append(threads).append(" thread(s): ")
+                .append(succeeded).append(" succeeded, ");
+        if (manifest != null) {
+            message.append(summary.skipped()).append(" unchanged, ");
+        }
+        message.append(failedFiles.size()).append(" failed");
+        System.err.println(message);
+        for (Path failed : failedFiles) {
+            System.err.println("  Failed: " + failed);
         }
     }
 
-    private void processFile(Path file, JavaPoetGenerator generator) throws IOException {
-        if (verbose) {
-            System.err.println("Processing: " + file);
+    private Writer openSink() throws IOException {
+        if (output == null) {
+            return new BufferedWriter(new OutputStreamWriter(System.out));
+        } else if (Files.isDirectory(output) || !multipleSources) {
+            return null;
         }
+        return Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+    }
 
-        String generated = generator.generateFromFile(file);
+    private void closeSink() throws IOException {
+        if (sink == null) {
+            return;
+        }
+        if (output == null) {
+            // Never close System.out
+            sink.flush();
+        } else {
+            sink.close();
+        }
+        sink = null;
+    }
 
+    private void writeResult(Path file, String generated) throws IOException {
         if (output == null) {
             // Output to stdout
-            System.out.println("// Generated from: " + file);
-            System.out.println(generated);
-            System.out.println();
+            String lineSeparator = System.lineSeparator();
+            sink.write("// Generated from: " + file);
+            sink.write(lineSeparator);
+            sink.write(generated);
+            sink.write(lineSeparator);
+            sink.write(lineSeparator);
         } else if (Files.isDirectory(output)) {
             // Output to directory
-            String outputFileName = file.getFileName().toString()
-                    .replace(".java", "Generator.java");
-            Path outputFile = output.resolve(outputFileName);
+            Path outputFile = outputFileFor(file);
             Files.writeString(outputFile, generated);
             if (verbose) {
                 System.err.println("Written: " + outputFile);
             }
         } else {
-            // Output to single file (append if multiple sources)
-            if (sourceFiles.length > 1) {
-                String content = Files.exists(output) ? Files.readString(output) : "";
-                content += "\n// Generated from: " + file + "\n" + generated + "\n";
-                Files.writeString(output, content);
+            // Output to single file (one block per source if multiple sources)
+            if (multipleSources) {
+                sink.write("\n// Generated from: " + file + "\n");
+                sink.write(generated);
+                sink.write("\n");
             } else {
                 Files.writeString(output, generated);
             }
@@ -163,6 +413,31 @@ public class JavaPoetGenCli implements Callable<Integer> {
         }
     }
 
+    /**
+     * Outcome of generating a single file on a worker thread.
+     */
+    private record GenerationResult(String code, Exception error, boolean skipped,
+                                    IncrementalManifest.Entry manifestEntry) {
+
+        static GenerationResult generated(String code, IncrementalManifest.Entry manifestEntry) {
+            return new GenerationResult(code, null, false, manifestEntry);
+        }
+
+        static GenerationResult unchanged() {
+            return new GenerationResult(null, null, true, null);
+        }
+
+        static GenerationResult failed(Exception error) {
+            return new GenerationResult(null, error, false, null);
+        }
+    }
+
+    /**
+     * Aggregate outcome of a run.
+     */
+    private record RunSummary(List<Path> failedFiles, int skipped) {
+    }
+
     public static void main(String[] args) {
         int exitCode = new CommandLine(new JavaPoetGenCli()).execute(args);
         System.exit(exitCode);
@@ -0,0 +1,30 @@
+package cn.lihongjie.javapoet.gen.core;
+
+/**
+ * A snapshot of the counters of a cache.
+ *
+ * @param hitCount      lookups that found an entry
+ * @param missCount     lookups that found no entry
+ * @param evictionCount entries removed to stay within the size or weight limit
+ */
+public record CacheStats(long hitCount, long missCount, long evictionCount) {
+
+    /**
+     * Get the number of lookups.
+     *
+     * @return hits plus misses
+     */
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * Get the fraction of lookups that found an entry.
+     *
+     * @return the hit rate, or 1.0 if there were no lookups
+     */
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+}
@@ -0,0 +1,44 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Hash functions used to identify sources, configurations and generated output.
+ */
+public final class ContentHashes {
+
+    private ContentHashes() {
+    }
+
+    /**
+     * Compute the SHA-256 digest of the given bytes.
+     *
+     * @param content the content to hash
+     * @return the digest as a lower-case hex string
+     */
+    public static String sha256Hex(byte[] content) {
+        return HexFormat.of().formatHex(newSha256().digest(content));
+    }
+
+    /**
+     * Compute the SHA-256 digest of the UTF-8 encoding of the given text.
+     *
+     * @param content the content to hash
+     * @return the digest as a lower-case hex string
+     */
+    public static String sha256Hex(String content) {
+        return sha256Hex(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
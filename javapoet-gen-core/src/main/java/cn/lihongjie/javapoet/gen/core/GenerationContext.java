@@ -0,0 +1,211 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mutable state for a single {@link JavaPoetCodeGenerator#generate} invocation.
+ * A new context is created for every call and never shared between threads,
+ * which keeps the generator itself stateless and reentrant.
+ *
+ * <p>Generated code is written straight to the caller's {@link Appendable};
+ * I/O failures are rethrown as {@link UncheckedIOException}.</p>
+ */
+class GenerationContext {
+
+    private final Appendable out;
+    private final Deque<StringBuilder> captures = new ArrayDeque<>();
+    private final List<String> helperClasses = new ArrayList<>();
+    private final Set<String> imports = new LinkedHashSet<>();
+    private final List<String> methodVarNames = new ArrayList<>();
+    private final Map<String, TypeNameExpression> typeNameCache = new HashMap<>();
+    private final Set<String> sharedTypeKeys;
+    private final Map<String, String> hoistedTypeNames = new LinkedHashMap<>();
+    private final Set<String> hoistedVarNames = new HashSet<>();
+    private long inlinedTypeNameChars;
+
+    GenerationContext(Appendable out) {
+        this(out, null);
+    }
+
+    /**
+     * @param out            the destination for generated code
+     * @param sharedTypeKeys keys of the types to declare once as shared variables,
+     *                       or {@code null} to write every type expression inline
+     */
+    GenerationContext(Appendable out, Set<String> sharedTypeKeys) {
+        this.out = out;
+        this.sharedTypeKeys = sharedTypeKeys;
+    }
+
+    /**
+     * A generated TypeName expression.
+     *
+     * @param reference the code used at each use site, a hoisted variable name or the expression itself
+     * @param inline    the expression with all nested type names written out in full
+     */
+    record TypeNameExpression(String reference, String inline) {
+
+        static TypeNameExpression of(String expression) {
+            return new TypeNameExpression(expression, expression);
+        }
+    }
+
+    /**
+     * Write generated code to the output.
+     */
+    GenerationContext append(CharSequence code) {
+        StringBuilder capture = captures.peek();
+        if (capture != null) {
+            capture.append(code);
+            return this;
+        }
+        try {
+            out.append(code);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Redirect generated code into a buffer until the matching {@link #endCapture()}.
+     * Captures nest; code is only written to the output once no capture is active.
+     */
+    void beginCapture() {
+        captures.push(new StringBuilder());
+    }
+
+    /**
+     * End the innermost capture.
+     *
+     * @return the code generated since the matching {@link #beginCapture()}
+     */
+    String endCapture() {
+        return captures.pop().toString();
+    }
+
+    /**
+     * Add a helper class that is written after all other generated code.
+     */
+    void addHelperClass(String helperClass) {
+        helperClasses.add(helperClass);
+    }
+
+    /**
+     * Helper classes added so far, in the order they were added.
+     */
+    List<String> getHelperClasses() {
+        return Collections.unmodifiableList(helperClasses);
+    }
+
+    /**
+     * Register an import for the generated code.
+     */
+    void addImport(String qualifiedName) {
+        imports.add(qualifiedName);
+    }
+
+    /**
+     * Imports registered so far, in registration order.
+     */
+    Set<String> getImports() {
+        return Collections.unmodifiableSet(imports);
+    }
+
+    /**
+     * Reset the variable names allocated for the members of the previous type.
+     */
+    void startType() {
+        methodVarNames.clear();
+    }
+
+    /**
+     * Allocate the variable name for a method spec of the current type.
+     * Overloaded methods get a numeric suffix.
+     */
+    String allocateMethodVarName(String methodName) {
+        String varName = methodName + "Method";
+        int count = (int) methodVarNames.stream().filter(n -> n.startsWith(methodName)).count();
+        if (count > 0) {
+            varName = methodName + count + "Method";
+        }
+        methodVarNames.add(varName);
+        return varName;
+    }
+
+    /**
+     * Get the TypeName expression generated earlier in this run for the given type key.
+     *
+     * @return the cached expression, or {@code null} if the type has not been seen
+     */
+    TypeNameExpression getCachedTypeName(String typeKey) {
+        return typeNameCache.get(typeKey);
+    }
+
+    void cacheTypeName(String typeKey, TypeNameExpression typeName) {
+        typeNameCache.put(typeKey, typeName);
+    }
+
+    boolean isHoistTypeNames() {
+        return sharedTypeKeys != null;
+    }
+
+    /**
+     * Whether the type with the given key is declared once as a shared variable.
+     */
+    boolean isSharedType(String typeKey) {
+        return sharedTypeKeys != null && sharedTypeKeys.contains(typeKey);
+    }
+
+    /**
+     * Declare a shared variable for a type expression.
+     * Types must be hoisted after the types nested in them, so that every
+     * declaration only refers to variables declared before it.
+     *
+     * @param baseName   the preferred variable name; a numeric suffix is added on collision
+     * @param expression the TypeName expression assigned to the variable
+     * @return the allocated variable name
+     */
+    String hoistTypeName(String baseName, String expression) {
+        String varName = baseName;
+        for (int i = 2; !hoistedVarNames.add(varName); i++) {
+            varName = baseName + i;
+        }
+        hoistedTypeNames.put(varName, expression);
+        return varName;
+    }
+
+    /**
+     * Hoisted type variables and their expressions, in declaration order.
+     */
+    Map<String, String> getHoistedTypeNames() {
+        return Collections.unmodifiableMap(hoistedTypeNames);
+    }
+
+    /**
+     * Record a use of a type expression in the generated code.
+     */
+    void recordTypeNameUse(TypeNameExpression typeName) {
+        inlinedTypeNameChars += typeName.inline().length() - typeName.reference().length();
+    }
+
+    /**
+     * Number of characters the recorded type name uses would have taken up in
+     * addition if every type expression had been written out at its use site.
+     */
+    long getInlinedTypeNameChars() {
+        return inlinedTypeNameChars;
+    }
+}
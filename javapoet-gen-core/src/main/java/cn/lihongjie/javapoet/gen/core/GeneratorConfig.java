@@ -1,10 +1,39 @@
 package cn.lihongjie.javapoet.gen.core;
 
+import cn.lihongjie.javapoet.gen.core.model.MemberFilter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 /**
  * Configuration options for the JavaPoet code generator.
  */
 public class GeneratorConfig {
 
+    /**
+     * Default number of pooled parsers, one per available processor.
+     */
+    public static final int DEFAULT_PARSER_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Default bytecode budget for a generated method, half of the JVM limit of 65535 bytes.
+     */
+    public static final int DEFAULT_METHOD_SIZE_BUDGET = 32 * 1024;
+
+    /**
+     * Largest string constant a class file can hold, in bytes of modified UTF-8.
+     */
+    public static final int MAX_STRING_CONSTANT_BYTES = 65535;
+
+    /**
+     * Default total length, in chars, of the sources kept by the parse cache.
+     */
+    public static final long DEFAULT_PARSE_CACHE_MAX_WEIGHT = 16L * 1024 * 1024;
+
     /**
      * Whether to generate comments in the output.
      */
@@ -30,6 +59,61 @@ public class GeneratorConfig {
      */
     private boolean preserveJavadoc = true;
 
+    /**
+     * Whether to declare each distinct type expression once as a shared variable.
+     */
+    private boolean hoistTypeNames = false;
+
+    /**
+     * Estimated bytecode size above which the code for a type is split into helper classes.
+     */
+    private int methodSizeBudget = DEFAULT_METHOD_SIZE_BUDGET;
+
+    /**
+     * Largest string literal, in bytes of modified UTF-8, written as a single literal.
+     */
+    private int maxStringLiteralBytes = MAX_STRING_CONSTANT_BYTES;
+
+    /**
+     * Whether to take expression and statement text from the source instead of printing the AST.
+     */
+    private boolean sliceSourceText = false;
+
+    /**
+     * Maximum number of JavaParser instances kept for concurrent parsing.
+     */
+    private int parserPoolSize = DEFAULT_PARSER_POOL_SIZE;
+
+    /**
+     * Maximum number of parsed sources kept by the parse cache, 0 to disable it.
+     */
+    private int parseCacheSize = 0;
+
+    /**
+     * Maximum total length, in chars, of the sources kept by the parse cache.
+     */
+    private long parseCacheMaxWeight = DEFAULT_PARSE_CACHE_MAX_WEIGHT;
+
+    /**
+     * Additional well-known types, simple name to qualified name.
+     */
+    private final Map<String, String> registeredTypes = new LinkedHashMap<>();
+
+    /**
+     * Additional well-known annotations, simple name to qualified name.
+     */
+    private final Map<String, String> registeredAnnotations = new LinkedHashMap<>();
+
+    /**
+     * Rules selecting the members to generate; empty to generate all members.
+     */
+    private final List<MemberRule> includes = new ArrayList<>();
+
+    /**
+     * Rules selecting members not to generate.
+     */
+    private final List<MemberRule> excludes = new ArrayList<>();
+
     public GeneratorConfig() {
     }
 
@@ -77,4 +161,256 @@ public class GeneratorConfig {
         this.preserveJavadoc = preserveJavadoc;
         return this;
     }
+
+    public boolean isHoistTypeNames() {
+        return hoistTypeNames;
+    }
+
+    /**
+     * Declare every distinct type expression, such as {@code ClassName.get("", "Order")}
+     * or a {@code ParameterizedTypeName}, once as a {@code TypeName} variable after the
+     * imports and refer to it by name, instead of repeating it at every use site.
+     *
+     * @param hoistTypeNames whether to hoist type names
+     * @return this configuration
+     */
+    public GeneratorConfig setHoistTypeNames(boolean hoistTypeNames) {
+        this.hoistTypeNames = hoistTypeNames;
+        return this;
+    }
+
+    public int getMethodSizeBudget() {
+        return methodSizeBudget;
+    }
+
+    /**
+     * Set the estimated bytecode size above which the code building a type is split
+     * into helper classes that each add part of its members. Keeps the generated code
+     * for very large classes and enums below the JVM limit of 65535 bytes per method.
+     *
+     * @param methodSizeBudget the budget in bytes, between 1 and 65535
+     * @return this configuration
+     */
+    public GeneratorConfig setMethodSizeBudget(int methodSizeBudget) {
+        if (methodSizeBudget < 1 || methodSizeBudget > 65535) {
+            throw new IllegalArgumentException("Method size budget must be between 1 and 65535: " + methodSizeBudget);
+        }
+        this.methodSizeBudget = methodSizeBudget;
+        return this;
+    }
+
+    public int getMaxStringLiteralBytes() {
+        return maxStringLiteralBytes;
+    }
+
+    /**
+     * Set the size above which a string in the generated code, such as Javadoc or a
+     * string initializer, is written as {@code String.join("", ...)} of several literals.
+     * Strings over 65535 bytes cannot be compiled as a single constant.
+     *
+     * @param maxStringLiteralBytes the limit in bytes of modified UTF-8, between 1 and 65535
+     * @return this configuration
+     */
+    public GeneratorConfig setMaxStringLiteralBytes(int maxStringLiteralBytes) {
+        if (maxStringLiteralBytes < 1 || maxStringLiteralBytes > MAX_STRING_CONSTANT_BYTES) {
+            throw new IllegalArgumentException("String literal limit must be between 1 and "
+                    + MAX_STRING_CONSTANT_BYTES + ": " + maxStringLiteralBytes);
+        }
+        this.maxStringLiteralBytes = maxStringLiteralBytes;
+        return this;
+    }
+
+    public boolean isSliceSourceText() {
+        return sliceSourceText;
+    }
+
+    /**
+     * Copy the text of expressions and statements into the generated code straight
+     * from the source, using the positions recorded by the parser, instead of
+     * printing it from the AST. This is faster for statement-heavy sources and keeps
+     * their original formatting, e.g. {@code a+b} is not rewritten as {@code a + b}.
+     * Text spanning several lines or containing comments is still printed.
+     *
+     * @param sliceSourceText whether to slice text from the source
+     * @return this configuration
+     */
+    public GeneratorConfig setSliceSourceText(boolean sliceSourceText) {
+        this.sliceSourceText = sliceSourceText;
+        return this;
+    }
+
+    public int getParserPoolSize() {
+        return parserPoolSize;
+    }
+
+    public GeneratorConfig setParserPoolSize(int parserPoolSize) {
+        if (parserPoolSize < 1) {
+            throw new IllegalArgumentException("Parser pool size must be at least 1: " + parserPoolSize);
+        }
+        this.parserPoolSize = parserPoolSize;
+        return this;
+    }
+
+    public int getParseCacheSize() {
+        return parseCacheSize;
+    }
+
+    /**
+     * Keep up to {@code parseCacheSize} parsed sources, keyed by their content, so that
+     * parsing the same source again returns the cached compilation unit. The cache is
+     * disabled by default.
+     *
+     * @param parseCacheSize the maximum number of cached sources, or 0 to disable the cache
+     * @return this configuration
+     * @see ParseCache
+     */
+    public GeneratorConfig setParseCacheSize(int parseCacheSize) {
+        if (parseCacheSize < 0) {
+            throw new IllegalArgumentException("Parse cache size cannot be negative: " + parseCacheSize);
+        }
+        this.parseCacheSize = parseCacheSize;
+        return this;
+    }
+
+    public long getParseCacheMaxWeight() {
+        return parseCacheMaxWeight;
+    }
+
+    /**
+     * Limit the parse cache by the total length of the cached sources. A parsed unit
+     * takes roughly a hundred times the memory of its source text, so this bounds the
+     * memory the cache holds on to better than the entry count alone.
+     *
+     * @param parseCacheMaxWeight the maximum total length of cached sources, in chars
+     * @return this configuration
+     */
+    public GeneratorConfig setParseCacheMaxWeight(long parseCacheMaxWeight) {
+        if (parseCacheMaxWeight < 1) {
+            throw new IllegalArgumentException("Parse cache weight must be at least 1: " + parseCacheMaxWeight);
+        }
+        this.parseCacheMaxWeight = parseCacheMaxWeight;
+        return this;
+    }
+
+    /**
+     * Register a well-known type, such as {@code java.time.LocalDate} or a domain type.
+     * References to its simple name are then generated as {@code ClassName.get("pkg", "Name")}
+     * instead of a {@code ClassName} without a package.
+     *
+     * @param qualifiedName the fully qualified name of the type
+     * @return this configuration
+     */
+    public GeneratorConfig registerType(String qualifiedName) {
+        registeredTypes.put(simpleName(qualifiedName), qualifiedName);
+        return this;
+    }
+
+    public Map<String, String> getRegisteredTypes() {
+        return Collections.unmodifiableMap(registeredTypes);
+    }
+
+    /**
+     * Register a well-known annotation, such as {@code javax.annotation.Nonnull}.
+     *
+     * @param qualifiedName the fully qualified name of the annotation
+     * @return this configuration
+     */
+    public GeneratorConfig registerAnnotation(String qualifiedName) {
+        registeredAnnotations.put(simpleName(qualifiedName), qualifiedName);
+        return this;
+    }
+
+    public Map<String, String> getRegisteredAnnotations() {
+        return Collections.unmodifiableMap(registeredAnnotations);
+    }
+
+    /**
+     * Only generate fields, constructors and methods matching this rule or another
+     * include rule; see {@link MemberRule} for the syntax. Members are filtered before
+     * they are read, so excluded members cost next to nothing.
+     *
+     * @param rule the rule, e.g. {@code visibility:public}
+     * @return this configuration
+     * @throws IllegalArgumentException if the rule is malformed
+     */
+    public GeneratorConfig addInclude(String rule) {
+        includes.add(MemberRule.parse(rule));
+        return this;
+    }
+
+    public List<MemberRule> getIncludes() {
+        return Collections.unmodifiableList(includes);
+    }
+
+    /**
+     * Do not generate fields, constructors and methods matching this rule, even if an
+     * include rule matches them; see {@link MemberRule} for the syntax.
+     *
+     * @param rule the rule, e.g. {@code annotation:Deprecated}
+     * @return this configuration
+     * @throws IllegalArgumentException if the rule is malformed
+     */
+    public GeneratorConfig addExclude(String rule) {
+        excludes.add(MemberRule.parse(rule));
+        return this;
+    }
+
+    public List<MemberRule> getExcludes() {
+        return Collections.unmodifiableList(excludes);
+    }
+
+    /**
+     * Get a filter accepting the members that match an include rule, or any member
+     * if there are none, and match no exclude rule.
+     *
+     * @return the member filter, {@link MemberFilter#ALL} without rules
+     */
+    public MemberFilter memberFilter() {
+        if (includes.isEmpty() && excludes.isEmpty()) {
+            return MemberFilter.ALL;
+        }
+        List<MemberRule> included = List.copyOf(includes);
+        List<MemberRule> excluded = List.copyOf(excludes);
+        return member -> (included.isEmpty() || included.stream().anyMatch(rule -> rule.accept(member)))
+                && excluded.stream().noneMatch(rule -> rule.accept(member));
+    }
+
+    private static String simpleName(String qualifiedName) {
+        if (qualifiedName == null || qualifiedName.isBlank()) {
+            throw new IllegalArgumentException("Qualified name cannot be null or blank");
+        }
+        return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Compute a stable hash of every option that affects the generated output.
+     * Two configurations with the same fingerprint produce identical output for
+     * the same source, so the fingerprint can be used in cache and manifest keys.
+     * Options that only affect how the work is executed, such as the parser pool
+     * size, are not included.
+     *
+     * @return the configuration fingerprint as a hex string
+     */
+    public String fingerprint() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("generateComments=").append(generateComments).append('\n');
+        sb.append("useStaticImports=").append(useStaticImports).append('\n');
+        sb.append("indent=").append(indent).append('\n');
+        sb.append("inlineSimpleSpecs=").append(inlineSimpleSpecs).append('\n');
+        sb.append("preserveJavadoc=").append(preserveJavadoc).append('\n');
+        sb.append("hoistTypeNames=").append(hoistTypeNames).append('\n');
+        sb.append("methodSizeBudget=").append(methodSizeBudget).append('\n');
+        sb.append("maxStringLiteralBytes=").append(maxStringLiteralBytes).append('\n');
+        sb.append("sliceSourceText=").append(sliceSourceText).append('\n');
+        new TreeMap<>(registeredTypes).forEach((simpleName, qualifiedName) ->
+                sb.append("type.").append(simpleName).append('=').append(qualifiedName).append('\n'));
+        new TreeMap<>(registeredAnnotations).forEach((simpleName, qualifiedName) ->
+                sb.append("annotation.").append(simpleName).append('=').append(qualifiedName).append('\n'));
+        // Rules are or-ed together, so their order does not matter
+        includes.stream().map(MemberRule::toString).sorted().forEach(rule ->
+                sb.append("include=").append(rule).append('\n'));
+        excludes.stream().map(MemberRule::toString).sorted().forEach(rule ->
+                sb.append("exclude=").append(rule).append('\n'));
+        return ContentHashes.sha256Hex(sb.toString());
+    }
 }
@@ -0,0 +1,124 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Version of the generator library.
+ * Generated output may change between versions, so the version is part of
+ * every key that identifies previously generated output.
+ *
+ * <p>A snapshot version carries a hash of the generator's class files as build
+ * metadata, e.g. {@code 1.0.0-SNAPSHOT+3f2a9c04e1b7}. Changing the generator
+ * invalidates what earlier snapshot builds generated, while rebuilding the same
+ * code, for example in another checkout, keeps the same version.</p>
+ */
+public final class GeneratorVersion {
+
+    private static final String CLASS_PREFIX = "cn/lihongjie/javapoet/gen/core/";
+    private static final int BUILD_HASH_LENGTH = 12;
+
+    private static final String VERSION = loadVersion();
+
+    private GeneratorVersion() {
+    }
+
+    /**
+     * Get the version of the generator library, including its build for snapshots.
+     *
+     * @return the library version, or {@code "unknown"} if it cannot be determined
+     */
+    public static String get() {
+        return VERSION;
+    }
+
+    private static String loadVersion() {
+        String version;
+        try (InputStream in = GeneratorVersion.class.getResourceAsStream("version.properties")) {
+            if (in == null) {
+                return "unknown";
+            }
+            Properties properties = new Properties();
+            properties.load(in);
+            version = properties.getProperty("version", "unknown");
+        } catch (IOException e) {
+            return "unknown";
+        }
+        if (!version.endsWith("-SNAPSHOT")) {
+            return version;
+        }
+        try {
+            String build = hashClasses();
+            return build == null ? version : version + "+" + build;
+        } catch (IOException e) {
+            return version;
+        }
+    }
+
+    /**
+     * Hash the names and contents of the generator's class files, wherever they were
+     * loaded from: a classes directory, the core jar or a jar that bundles it.
+     */
+    private static String hashClasses() throws IOException {
+        CodeSource codeSource = GeneratorVersion.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            return null;
+        }
+        Path location;
+        try {
+            location = Path.of(codeSource.getLocation().toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+
+        MessageDigest digest = ContentHashes.newSha256();
+        if (Files.isDirectory(location)) {
+            List<Path> classFiles;
+            try (Stream<Path> paths = Files.walk(location.resolve(CLASS_PREFIX))) {
+                classFiles = paths.filter(path -> path.toString().endsWith(".class"))
+                        .sorted((a, b) -> entryName(location, a).compareTo(entryName(location, b)))
+                        .toList();
+            }
+            for (Path classFile : classFiles) {
+                update(digest, entryName(location, classFile), Files.readAllBytes(classFile));
+            }
+        } else {
+            try (JarFile jar = new JarFile(location.toFile())) {
+                List<JarEntry> classEntries = jar.stream()
+                        .filter(entry -> entry.getName().startsWith(CLASS_PREFIX)
+                                && entry.getName().endsWith(".class"))
+                        .sorted((a, b) -> a.getName().compareTo(b.getName()))
+                        .toList();
+                for (JarEntry entry : classEntries) {
+                    try (InputStream in = jar.getInputStream(entry)) {
+                        update(digest, entry.getName(), in.readAllBytes());
+                    }
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest()).substring(0, BUILD_HASH_LENGTH);
+    }
+
+    private static String entryName(Path root, Path classFile) {
+        return root.relativize(classFile).toString().replace(File.separatorChar, '/');
+    }
+
+    private static void update(MessageDigest digest, String name, byte[] content) {
+        digest.update(name.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(content);
+    }
+}
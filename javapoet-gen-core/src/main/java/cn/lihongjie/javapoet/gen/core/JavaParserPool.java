@@ -0,0 +1,83 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import com.github.javaparser.JavaParser;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of {@link JavaParser} instances.
+ * A single JavaParser must not be used by two threads at once, so each caller
+ * borrows an idle instance for the duration of one parse and returns it afterwards.
+ * Parsers are created lazily, up to the configured pool size; once the pool is
+ * exhausted, callers wait for an instance to be returned.
+ */
+class JavaParserPool {
+
+    private final Supplier<JavaParser> factory;
+    private final int maxSize;
+    private final BlockingQueue<JavaParser> idle;
+    private final AtomicInteger created = new AtomicInteger();
+
+    JavaParserPool(Supplier<JavaParser> factory, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Parser pool size must be at least 1: " + maxSize);
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+
+    /**
+     * Run the given function with a parser borrowed from the pool.
+     */
+    <T> T withParser(Function<JavaParser, T> action) {
+        JavaParser parser = acquire();
+        try {
+            return action.apply(parser);
+        } finally {
+            idle.offer(parser);
+        }
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Number of parsers created so far.
+     */
+    int getCreatedCount() {
+        return created.get();
+    }
+
+    private JavaParser acquire() {
+        JavaParser parser = idle.poll();
+        if (parser != null) {
+            return parser;
+        }
+
+        // Grow the pool lazily until the limit is reached
+        int current;
+        while ((current = created.get()) < maxSize) {
+            if (created.compareAndSet(current, current + 1)) {
+                try {
+                    return factory.get();
+                } catch (RuntimeException e) {
+                    created.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JavaPoetGenException("Interrupted while waiting for a parser", e);
+        }
+    }
+}
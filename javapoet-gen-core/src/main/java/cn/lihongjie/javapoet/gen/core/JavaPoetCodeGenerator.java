@@ -1,34 +1,102 @@
 package cn.lihongjie.javapoet.gen.core;
 
+import cn.lihongjie.javapoet.gen.core.GenerationContext.TypeNameExpression;
+import cn.lihongjie.javapoet.gen.core.model.AnnotationModel;
+import cn.lihongjie.javapoet.gen.core.model.EnumConstantModel;
+import cn.lihongjie.javapoet.gen.core.model.ExpressionModel;
+import cn.lihongjie.javapoet.gen.core.model.FieldModel;
+import cn.lihongjie.javapoet.gen.core.model.JavaParserModelReader;
+import cn.lihongjie.javapoet.gen.core.model.MemberFilter;
+import cn.lihongjie.javapoet.gen.core.model.MethodModel;
+import cn.lihongjie.javapoet.gen.core.model.ParameterModel;
+import cn.lihongjie.javapoet.gen.core.model.SourceFile;
+import cn.lihongjie.javapoet.gen.core.model.StatementModel;
+import cn.lihongjie.javapoet.gen.core.model.TypeModel;
+import cn.lihongjie.javapoet.gen.core.model.TypeRef;
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.Modifier;
-import com.github.javaparser.ast.NodeList;
-import com.github.javaparser.ast.body.*;
-import com.github.javaparser.ast.expr.*;
-import com.github.javaparser.ast.stmt.*;
-import com.github.javaparser.ast.type.ClassOrInterfaceType;
-import com.github.javaparser.ast.type.PrimitiveType;
-import com.github.javaparser.ast.type.Type;
-import com.github.javaparser.ast.type.VoidType;
+import com.github.javaparser.ast.Node;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.lang.model.element.Modifier;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
 /**
  * Generates JavaPoet API code from a parsed Java AST.
- * This class converts JavaParser AST nodes into equivalent JavaPoet builder code.
+ * This class converts the {@link SourceFile} model of a source file into
+ * equivalent JavaPoet builder code; a CompilationUnit is read into that
+ * model first.
+ *
+ * <p>The generator holds no per-run state: everything that changes while a
+ * compilation unit is processed lives in a {@link GenerationContext} created for
+ * each call, so one instance can be used by many threads at the same time.
+ * JavaParser's printer records state on the unit it prints, so a unit is read into
+ * the model while holding its lock; one unit, such as a cached one, may then be
+ * shared between threads as long as everyone else printing it locks it too.</p>
  */
 public class JavaPoetCodeGenerator {
 
+    private static final Logger logger = LoggerFactory.getLogger(JavaPoetCodeGenerator.class);
+
+    private static final List<String> JAVAPOET_IMPORTS = List.of(
+            "com.squareup.javapoet.JavaFile",
+            "com.squareup.javapoet.TypeSpec",
+            "com.squareup.javapoet.MethodSpec",
+            "com.squareup.javapoet.FieldSpec",
+            "com.squareup.javapoet.ParameterSpec",
+            "com.squareup.javapoet.AnnotationSpec",
+            "com.squareup.javapoet.ClassName",
+            "com.squareup.javapoet.TypeName",
+            "com.squareup.javapoet.ParameterizedTypeName",
+            "com.squareup.javapoet.CodeBlock",
+            "javax.lang.model.element.Modifier"
+    );
+
+    /**
+     * javac rejects string constants of 65535 chars or more, whatever their encoded size.
+     */
+    private static final int MAX_STRING_CONSTANT_CHARS = 65534;
+
+    /**
+     * javac attributes a chain of builder calls recursively and runs out of stack at
+     * around a thousand calls, so longer chains are split like oversized code.
+     */
+    private static final int MAX_CHAIN_CALLS = 500;
+
+    /**
+     * Line separating the generated statements from the class members that follow
+     * them when a type is too large for one method. It is written whether or not
+     * comments are generated: the statements before it go into a method, and the
+     * members after it into the class enclosing that method.
+     */
+    public static final String CLASS_MEMBERS_MARKER = "// ---- Members of the enclosing class ----";
+
     private final GeneratorConfig config;
-    private final Set<String> usedImports = new LinkedHashSet<>();
+    private final TypeLookup knownTypes;
+    private final TypeLookup knownAnnotations;
+    private final MemberFilter memberFilter;
+    private final JavaParserModelReader modelReader = new JavaParserModelReader();
 
     public JavaPoetCodeGenerator() {
         this(new GeneratorConfig());
     }
 
+    /**
+     * Create a generator for the given configuration.
+     * The type and annotation tables and the member filter are built once here; types
+     * and rules added to the configuration afterwards are not seen by this generator.
+     *
+     * @param config the generator configuration
+     */
     public JavaPoetCodeGenerator(GeneratorConfig config) {
         this.config = config;
+        this.knownTypes = TypeLookup.of(TypeLookup.BUILT_IN_TYPES, config.getRegisteredTypes());
+        this.knownAnnotations = TypeLookup.of(TypeLookup.BUILT_IN_ANNOTATIONS, config.getRegisteredAnnotations());
+        this.memberFilter = config.memberFilter();
     }
 
     /**
@@ -38,376 +106,783 @@ public class JavaPoetCodeGenerator {
      * @return the generated JavaPoet code as a string
      */
     public String generate(CompilationUnit cu) {
-        usedImports.clear();
+        return generate(readModel(cu, memberFilter));
+    }
+
+    /**
+     * Generate JavaPoet code from a CompilationUnit and write it to the given output.
+     * The code is written as it is generated, so large outputs can be streamed to a
+     * file without being held in memory as one String.
+     *
+     * @param cu  the parsed CompilationUnit
+     * @param out the destination for the generated code
+     * @throws IOException if writing to {@code out} fails
+     */
+    public void generate(CompilationUnit cu, Appendable out) throws IOException {
+        generate(readModel(cu, memberFilter), out);
+    }
+
+    /**
+     * Generate JavaPoet code from a CompilationUnit for only the members a filter accepts,
+     * on top of the include and exclude rules of the configuration.
+     * Excluded members are skipped before their bodies are read.
+     *
+     * @param cu     the parsed CompilationUnit
+     * @param filter decides which fields, constructors and methods code is generated for
+     * @return the generated JavaPoet code as a string
+     */
+    public String generate(CompilationUnit cu, MemberFilter filter) {
+        return generate(readModel(cu, memberFilter.and(filter)));
+    }
+
+    /**
+     * Generate JavaPoet code for just the member or type a node belongs to, such as
+     * the node under the caret; see {@link JavaParserModelReader#readScope(Node)}.
+     * The time taken depends on the size of the selected member, not of the file.
+     * An explicitly selected member is generated whatever the include and exclude rules;
+     * when a whole type or file is selected, the rules apply to its members as usual.
+     *
+     * @param cu     the parsed CompilationUnit
+     * @param target a node of {@code cu}
+     * @return the generated JavaPoet code as a string
+     * @throws IllegalArgumentException if {@code target} is not part of {@code cu}
+     */
+    public String generate(CompilationUnit cu, Node target) {
+        if (target.findCompilationUnit().orElse(null) != cu) {
+            throw new IllegalArgumentException("Node is not part of the CompilationUnit: " + target);
+        }
+        SourceFile scope;
+        synchronized (cu) {
+            scope = modelReader.readScope(target, memberFilter);
+        }
+        return generate(scope);
+    }
+
+    private SourceFile readModel(CompilationUnit cu, MemberFilter filter) {
+        // The unit may be printed by other threads at the same time
+        synchronized (cu) {
+            return modelReader.read(cu, filter);
+        }
+    }
+
+    /**
+     * Generate JavaPoet code from the model of a source file.
+     *
+     * @param source the model of the source file
+     * @return the generated JavaPoet code as a string
+     */
+    public String generate(SourceFile source) {
         StringBuilder sb = new StringBuilder();
+        emit(source, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Generate JavaPoet code from the model of a source file and write it to the given output.
+     *
+     * @param source the model of the source file
+     * @param out    the destination for the generated code
+     * @throws IOException if writing to {@code out} fails
+     */
+    public void generate(SourceFile source, Appendable out) throws IOException {
+        try {
+            emit(source, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-        // Add standard JavaPoet imports
-        addJavaPoetImports();
+    private void emit(SourceFile source, Appendable out) {
+        boolean hoistTypeNames = config.isHoistTypeNames();
+        // Hoisted type names are only known once the types have been processed,
+        // so the body is buffered and written after their declarations
+        StringBuilder body = hoistTypeNames ? new StringBuilder() : null;
+        GenerationContext ctx = hoistTypeNames
+                ? new GenerationContext(body, findSharedTypeKeys(source))
+                : new GenerationContext(out);
+
+        // Imports come first in the output, so collect them before any code is written
+        JAVAPOET_IMPORTS.forEach(ctx::addImport);
+        if (usesMethodTypeParameters(source)) {
+            ctx.addImport("com.squareup.javapoet.TypeVariableName");
+        }
+        if (!hoistTypeNames) {
+            generateImports(ctx, ctx);
+            ctx.append("\n");
+        }
 
         // Process each type declaration
-        for (TypeDeclaration<?> type : cu.getTypes()) {
-            if (type instanceof ClassOrInterfaceDeclaration classDecl) {
-                sb.append(generateTypeSpec(classDecl, cu));
-            } else if (type instanceof EnumDeclaration enumDecl) {
-                sb.append(generateEnumSpec(enumDecl, cu));
+        for (TypeModel type : source.types()) {
+            if (type.kind() == TypeModel.Kind.ENUM) {
+                generateEnumSpec(ctx, type, source);
+            } else {
+                generateTypeSpec(ctx, type, source);
             }
         }
 
-        // Build final output with imports
-        StringBuilder result = new StringBuilder();
-        result.append(generateImports());
-        result.append("\n");
-        result.append(sb);
+        if (hoistTypeNames) {
+            GenerationContext header = new GenerationContext(out);
+            generateImports(ctx, header);
+            header.append("\n");
+            // Helper classes cannot see local variables, so with them the type names become class members
+            if (ctx.getHelperClasses().isEmpty()) {
+                generateHoistedTypeNames(ctx, header);
+            }
+            header.append(body);
+            generateClassMembers(ctx, header);
+        } else {
+            generateClassMembers(ctx, ctx);
+        }
+    }
 
-        return result.toString();
+    /**
+     * Generate the members of the enclosing class needed by types that were split to
+     * stay under the method size limit: the helper classes adding their members, and
+     * any hoisted type names they share. Unlike the rest of the output these are class
+     * members, not statements, so they always follow {@link #CLASS_MEMBERS_MARKER}.
+     */
+    private void generateClassMembers(GenerationContext ctx, GenerationContext out) {
+        List<String> helperClasses = ctx.getHelperClasses();
+        if (helperClasses.isEmpty()) {
+            return;
+        }
+        out.append("\n").append(CLASS_MEMBERS_MARKER).append("\n");
+        if (ctx.getHoistedTypeNames().isEmpty()) {
+            out.append("\n");
+        } else {
+            generateHoistedTypeNames(ctx, out);
+        }
+        out.append(String.join("\n", helperClasses));
     }
 
-    private void addJavaPoetImports() {
-        usedImports.add("com.squareup.javapoet.JavaFile");
-        usedImports.add("com.squareup.javapoet.TypeSpec");
-        usedImports.add("com.squareup.javapoet.MethodSpec");
-        usedImports.add("com.squareup.javapoet.FieldSpec");
-        usedImports.add("com.squareup.javapoet.ParameterSpec");
-        usedImports.add("com.squareup.javapoet.AnnotationSpec");
-        usedImports.add("com.squareup.javapoet.ClassName");
-        usedImports.add("com.squareup.javapoet.TypeName");
-        usedImports.add("com.squareup.javapoet.ParameterizedTypeName");
-        usedImports.add("com.squareup.javapoet.CodeBlock");
-        usedImports.add("javax.lang.model.element.Modifier");
+    /**
+     * Find the types that occur more than once in the generated code. Only those are
+     * worth a shared variable; a type used once is shorter when written inline.
+     */
+    private Set<String> findSharedTypeKeys(SourceFile source) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (TypeModel type : source.types()) {
+            if (type.kind() == TypeModel.Kind.ENUM) {
+                type.implementedTypes().forEach(t -> countTypeUses(counts, t));
+                continue;
+            }
+            type.extendedTypes().forEach(t -> countTypeUses(counts, t));
+            type.implementedTypes().forEach(t -> countTypeUses(counts, t));
+            countTypeUses(counts, type.annotations());
+            for (FieldModel field : type.fields()) {
+                countTypeUses(counts, field.type());
+                countTypeUses(counts, field.initializer());
+                countTypeUses(counts, field.annotations());
+            }
+            for (List<MethodModel> methods : List.of(type.constructors(), type.methods())) {
+                for (MethodModel method : methods) {
+                    countTypeUses(counts, method.returnType());
+                    for (ParameterModel param : method.parameters()) {
+                        countTypeUses(counts, param.type());
+                        countTypeUses(counts, param.annotations());
+                    }
+                    method.thrownTypes().forEach(t -> countTypeUses(counts, t));
+                    countTypeUses(counts, method.annotations());
+                    countTypeUses(counts, method.body());
+                }
+            }
+        }
+        Set<String> shared = new HashSet<>();
+        counts.forEach((key, count) -> {
+            if (count > 1) {
+                shared.add(key);
+            }
+        });
+        return shared;
     }
 
-    private String generateImports() {
-        StringBuilder sb = new StringBuilder();
-        for (String imp : usedImports) {
-            sb.append("import ").append(imp).append(";\n");
+    private void countTypeUses(Map<String, Integer> counts, TypeRef type) {
+        if (type == null || type.kind() == TypeRef.Kind.VOID || type.kind() == TypeRef.Kind.PRIMITIVE) {
+            return;
+        }
+        counts.merge(typeKey(type), 1, Integer::sum);
+        type.arguments().forEach(t -> countTypeUses(counts, t));
+    }
+
+    private void countTypeUses(Map<String, Integer> counts, ExpressionModel expression) {
+        if (expression != null && expression.kind() == ExpressionModel.Kind.CLASS_LITERAL) {
+            countTypeUses(counts, expression.type());
+        }
+    }
+
+    private void countTypeUses(Map<String, Integer> counts, List<AnnotationModel> annotations) {
+        for (AnnotationModel annotation : annotations) {
+            annotation.members().forEach(member -> countTypeUses(counts, member.value()));
+        }
+    }
+
+    private void countTypeUses(Map<String, Integer> counts, StatementModel statement) {
+        if (statement instanceof StatementModel.Block block) {
+            block.statements().forEach(s -> countTypeUses(counts, s));
+        } else if (statement instanceof StatementModel.If ifStmt) {
+            countTypeUses(counts, ifStmt.thenStatement());
+            // The branches of an else-if are not generated
+            if (!(ifStmt.elseStatement() instanceof StatementModel.If)) {
+                countTypeUses(counts, ifStmt.elseStatement());
+            }
+        } else if (statement instanceof StatementModel.For forStmt) {
+            countTypeUses(counts, forStmt.body());
+        } else if (statement instanceof StatementModel.ForEach forEachStmt) {
+            countTypeUses(counts, forEachStmt.variableType());
+            countTypeUses(counts, forEachStmt.body());
+        } else if (statement instanceof StatementModel.While whileStmt) {
+            countTypeUses(counts, whileStmt.body());
+        } else if (statement instanceof StatementModel.Try tryStmt) {
+            countTypeUses(counts, tryStmt.tryBlock());
+            for (StatementModel.CatchClause catchClause : tryStmt.catchClauses()) {
+                countTypeUses(counts, catchClause.parameterType());
+                countTypeUses(counts, catchClause.body());
+            }
+            countTypeUses(counts, tryStmt.finallyBlock());
+        }
+    }
+
+    private boolean usesMethodTypeParameters(SourceFile source) {
+        for (TypeModel type : source.types()) {
+            if (type.kind() != TypeModel.Kind.ENUM) {
+                for (MethodModel method : type.methods()) {
+                    if (!method.typeParameters().isEmpty()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void generateImports(GenerationContext ctx, GenerationContext out) {
+        for (String imp : ctx.getImports()) {
+            out.append("import ").append(imp).append(";\n");
+        }
+    }
+
+    /**
+     * Generate the declarations of the type names hoisted while processing the types,
+     * preceded by a note on how much shorter the output became.
+     */
+    private void generateHoistedTypeNames(GenerationContext ctx, GenerationContext out) {
+        Map<String, String> hoisted = ctx.getHoistedTypeNames();
+        if (hoisted.isEmpty()) {
+            return;
+        }
+
+        StringBuilder declarations = new StringBuilder();
+        String declaration = ctx.getHelperClasses().isEmpty() ? "TypeName " : "private static final TypeName ";
+        hoisted.forEach((varName, expression) ->
+                declarations.append(declaration).append(varName).append(" = ").append(expression).append(";\n"));
+        declarations.append("\n");
+        long saved = ctx.getInlinedTypeNameChars() - declarations.length();
+        logger.debug("Hoisted {} type names, {} characters saved", hoisted.size(), saved);
+
+        if (config.isGenerateComments()) {
+            out.append("// Shared type names: ").append(String.valueOf(hoisted.size())).append(" declared, ")
+               .append(String.valueOf(Math.abs(saved)))
+               .append(saved >= 0 ? " characters saved" : " characters added")
+               .append(" compared to inline type names\n");
+        }
+        out.append(declarations);
+    }
+
+    /**
+     * Generated code for one member of a type: the statements that build its spec and
+     * the builder call that adds it to the type, e.g. {@code .addField(nameField)}.
+     * The declaration is {@code null} once it has been written to the output.
+     */
+    private record MemberCode(String declaration, String addCall) {
+
+        int estimatedSize() {
+            return (declaration != null ? MethodSizeEstimator.estimate(declaration) : 0)
+                    + MethodSizeEstimator.estimate(addCall);
+        }
+
+        boolean hasLongChain() {
+            return declaration != null && chainLength(declaration) > MAX_CHAIN_CALLS;
         }
-        return sb.toString();
     }
 
     /**
      * Generate TypeSpec code for a class or interface.
+     *
+     * <p>Member declarations are written as soon as they are generated, while the
+     * code for the type still fits into one method. Once the estimate passes the
+     * method size budget, the remaining declarations are held back and written
+     * into helper classes by {@link #generateSplitTypeSpec}.</p>
      */
-    private String generateTypeSpec(ClassOrInterfaceDeclaration classDecl, CompilationUnit cu) {
-        StringBuilder sb = new StringBuilder();
-        String className = classDecl.getNameAsString();
+    private void generateTypeSpec(GenerationContext ctx, TypeModel type, SourceFile source) {
+        String className = type.name();
         String varName = toLowerCamelCase(className) + "Spec";
 
-        sb.append("// Generated JavaPoet code for: ").append(className).append("\n\n");
+        ctx.append("// Generated JavaPoet code for: ").append(className).append("\n\n");
+
+        int[] size = {0};
 
         // Generate field specs first
-        List<String> fieldVarNames = new ArrayList<>();
-        for (FieldDeclaration field : classDecl.getFields()) {
-            for (VariableDeclarator var : field.getVariables()) {
-                String fieldVarName = var.getNameAsString() + "Field";
-                fieldVarNames.add(fieldVarName);
-                sb.append(generateFieldSpec(field, var, fieldVarName));
-                sb.append("\n");
-            }
+        List<MemberCode> fields = new ArrayList<>();
+        for (FieldModel field : type.fields()) {
+            String fieldVarName = field.name() + "Field";
+            ctx.beginCapture();
+            generateFieldSpec(ctx, field, fieldVarName);
+            ctx.append("\n");
+            fields.add(writeWithinBudget(ctx, size, ctx.endCapture(), ".addField(" + fieldVarName + ")"));
         }
 
         // Generate method specs
-        List<String> methodVarNames = new ArrayList<>();
-        for (MethodDeclaration method : classDecl.getMethods()) {
-            String methodVarName = method.getNameAsString() + "Method";
-            // Handle overloaded methods
-            int count = (int) methodVarNames.stream().filter(n -> n.startsWith(method.getNameAsString())).count();
-            if (count > 0) {
-                methodVarName = method.getNameAsString() + count + "Method";
-            }
-            methodVarNames.add(methodVarName);
-            sb.append(generateMethodSpec(method, methodVarName));
-            sb.append("\n");
+        List<MemberCode> methods = new ArrayList<>();
+        ctx.startType();
+        for (MethodModel method : type.methods()) {
+            String methodVarName = ctx.allocateMethodVarName(method.name());
+            ctx.beginCapture();
+            generateMethodSpec(ctx, method, methodVarName);
+            ctx.append("\n");
+            methods.add(writeWithinBudget(ctx, size, ctx.endCapture(), ".addMethod(" + methodVarName + ")"));
         }
 
         // Generate constructor specs
-        List<String> constructorVarNames = new ArrayList<>();
+        List<MemberCode> constructors = new ArrayList<>();
         int constructorIndex = 0;
-        for (ConstructorDeclaration constructor : classDecl.getConstructors()) {
+        for (MethodModel constructor : type.constructors()) {
             String constructorVarName = "constructor" + (constructorIndex > 0 ? constructorIndex : "");
-            constructorVarNames.add(constructorVarName);
-            sb.append(generateConstructorSpec(constructor, constructorVarName));
-            sb.append("\n");
+            ctx.beginCapture();
+            generateConstructorSpec(ctx, constructor, constructorVarName);
+            ctx.append("\n");
+            constructors.add(writeWithinBudget(ctx, size, ctx.endCapture(), ".addMethod(" + constructorVarName + ")"));
             constructorIndex++;
         }
 
         // Generate TypeSpec
-        sb.append("TypeSpec ").append(varName).append(" = TypeSpec");
+        String builder = type.kind() == TypeModel.Kind.INTERFACE
+                ? "TypeSpec.interfaceBuilder(\"" + className + "\")\n"
+                : "TypeSpec.classBuilder(\"" + className + "\")\n";
 
-        if (classDecl.isInterface()) {
-            sb.append(".interfaceBuilder(\"").append(className).append("\")\n");
-        } else {
-            sb.append(".classBuilder(\"").append(className).append("\")\n");
-        }
+        ctx.beginCapture();
 
         // Add modifiers
-        String modifiers = generateModifiers(classDecl.getModifiers());
+        String modifiers = generateModifiers(type.modifiers());
         if (!modifiers.isEmpty()) {
-            sb.append("    .addModifiers(").append(modifiers).append(")\n");
+            ctx.append("    .addModifiers(").append(modifiers).append(")\n");
         }
 
         // Add superclass
-        classDecl.getExtendedTypes().forEach(extendedType -> {
-            sb.append("    .superclass(").append(generateTypeName(extendedType)).append(")\n");
-        });
+        for (TypeRef extendedType : type.extendedTypes()) {
+            ctx.append("    .superclass(").append(generateTypeName(ctx, extendedType)).append(")\n");
+        }
 
         // Add interfaces
-        classDecl.getImplementedTypes().forEach(implementedType -> {
-            sb.append("    .addSuperinterface(").append(generateTypeName(implementedType)).append(")\n");
-        });
+        for (TypeRef implementedType : type.implementedTypes()) {
+            ctx.append("    .addSuperinterface(").append(generateTypeName(ctx, implementedType)).append(")\n");
+        }
 
         // Add annotations
-        for (AnnotationExpr annotation : classDecl.getAnnotations()) {
-            sb.append("    .addAnnotation(").append(generateAnnotationSpec(annotation)).append(")\n");
+        for (AnnotationModel annotation : type.annotations()) {
+            ctx.append("    .addAnnotation(").append(generateAnnotationSpec(ctx, annotation)).append(")\n");
         }
+        String header = ctx.endCapture();
 
-        // Add fields
-        for (String fieldVarName : fieldVarNames) {
-            sb.append("    .addField(").append(fieldVarName).append(")\n");
+        // Add Javadoc if present
+        ctx.beginCapture();
+        generateJavadoc(ctx, type.javadoc());
+        String trailer = ctx.endCapture();
+
+        // Members are added in the order fields, constructors, methods
+        List<MemberCode> members = new ArrayList<>(fields.size() + constructors.size() + methods.size());
+        members.addAll(fields);
+        members.addAll(constructors);
+        members.addAll(methods);
+
+        if (exceedsMethodSizeBudget(header, trailer, members)) {
+            generateSplitTypeSpec(ctx, varName, builder, header + trailer, members, className + "Members");
+        } else {
+            ctx.append("TypeSpec ").append(varName).append(" = ").append(builder).append(header);
+            for (MemberCode member : members) {
+                ctx.append("    ").append(member.addCall()).append("\n");
+            }
+            ctx.append(trailer);
+            ctx.append("    .build();\n\n");
         }
 
-        // Add constructors
-        for (String constructorVarName : constructorVarNames) {
-            sb.append("    .addMethod(").append(constructorVarName).append(")\n");
+        // Generate JavaFile
+        ctx.append("JavaFile javaFile = JavaFile.builder(\"").append(source.packageName()).append("\", ").append(varName).append(")\n");
+        ctx.append("    .build();\n");
+    }
+
+    /**
+     * Write the declaration of a member right away if the code for its type is still
+     * within the method size budget, or keep it for a helper class otherwise. A member
+     * whose builder chain is too long for javac is always kept.
+     *
+     * @param size the estimated size of the code for the type so far, updated in place
+     */
+    private MemberCode writeWithinBudget(GenerationContext ctx, int[] size, String declaration, String addCall) {
+        size[0] += MethodSizeEstimator.estimate(declaration) + MethodSizeEstimator.estimate(addCall);
+        if (size[0] > config.getMethodSizeBudget() || chainLength(declaration) > MAX_CHAIN_CALLS) {
+            return new MemberCode(declaration, addCall);
         }
+        ctx.append(declaration);
+        return new MemberCode(null, addCall);
+    }
 
-        // Add methods
-        for (String methodVarName : methodVarNames) {
-            sb.append("    .addMethod(").append(methodVarName).append(")\n");
+    /**
+     * Number of calls in a builder chain, written one per line.
+     */
+    private static int chainLength(String code) {
+        int calls = 0;
+        for (int i = code.indexOf("\n    ."); i >= 0; i = code.indexOf("\n    .", i + 1)) {
+            calls++;
         }
+        return calls;
+    }
 
-        // Add Javadoc if present
-        classDecl.getJavadocComment().ifPresent(javadoc -> {
-            sb.append("    .addJavadoc(").append(escapeString(javadoc.getContent())).append(")\n");
-        });
+    /**
+     * Whether the code building a type would be too large for a single method,
+     * or its builder chain too long for javac.
+     */
+    private boolean exceedsMethodSizeBudget(String header, String trailer, List<MemberCode> members) {
+        if (chainLength("\n" + header + trailer) + members.size() > MAX_CHAIN_CALLS) {
+            return true;
+        }
+        int budget = config.getMethodSizeBudget();
+        int size = MethodSizeEstimator.estimate(header) + MethodSizeEstimator.estimate(trailer);
+        for (MemberCode member : members) {
+            if (member.declaration() != null && !member.declaration().isEmpty()) {
+                // Held back by writeWithinBudget, so the budget has already been passed
+                return true;
+            }
+            size += member.estimatedSize();
+            if (size > budget) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        sb.append("    .build();\n\n");
+    /**
+     * Generate a type whose members do not fit into one method: the type builder is
+     * created inline, and the members that were not written yet are added by helper
+     * classes that each stay under the method size budget. A member larger than the
+     * budget on its own, or with a builder chain too long for javac, is built through its spec builder, with its builder calls
+     * spread over as many helper classes as needed.
+     *
+     * <p>Each helper class holds a single method, so the constants it references stay
+     * far below the limit of 65535 constant pool entries per class file: every
+     * constant costs at least the instruction loading it, which the budget counts.</p>
+     */
+    private void generateSplitTypeSpec(GenerationContext ctx, String varName, String builder, String header,
+                                       List<MemberCode> members, String helperPrefix) {
+        String builderVarName = varName + "Builder";
+        ctx.append("TypeSpec.Builder ").append(builderVarName).append(" = ").append(builder)
+           .append(header.isEmpty() ? "" : header.substring(0, header.length() - 1))
+           .append(";\n");
+
+        int budget = config.getMethodSizeBudget();
+        HelperClasses helpers = new HelperClasses(ctx, helperPrefix);
+        StringBuilder helper = new StringBuilder();
+        int helperSize = 0;
+        for (MemberCode member : members) {
+            int memberSize = member.estimatedSize();
+            if (helper.length() > 0 && (member.declaration() == null || member.hasLongChain()
+                    || helperSize + memberSize > budget)) {
+                helpers.add("TypeSpec.Builder", helper, builderVarName);
+                helper.setLength(0);
+                helperSize = 0;
+            }
+            if (member.declaration() == null) {
+                // Already declared as a local variable
+                ctx.append(builderVarName).append(member.addCall()).append(";\n");
+            } else if ((memberSize > budget || member.hasLongChain()) && !member.declaration().isEmpty()) {
+                generateSplitMember(ctx, helpers, member, builderVarName);
+            } else {
+                member.declaration().lines().forEach(line ->
+                        helper.append(line.isEmpty() ? "" : "        " + line).append("\n"));
+                helper.append("        builder").append(member.addCall()).append(";\n");
+                helperSize += memberSize;
+            }
+        }
+        if (helper.length() > 0) {
+            helpers.add("TypeSpec.Builder", helper, builderVarName);
+        }
 
-        // Generate JavaFile
-        String packageName = cu.getPackageDeclaration()
-                .map(pd -> pd.getNameAsString())
-                .orElse("");
+        ctx.append("TypeSpec ").append(varName).append(" = ").append(builderVarName).append(".build();\n\n");
+    }
 
-        sb.append("JavaFile javaFile = JavaFile.builder(\"").append(packageName).append("\", ").append(varName).append(")\n");
-        sb.append("    .build();\n");
+    /**
+     * Generate a member too large for one method. Its declaration, as written by
+     * {@link #generateFieldSpec} and the other spec methods, is a builder chain with
+     * one call per line; the chain is turned into a spec builder variable and its
+     * calls are made one statement each from helper classes.
+     */
+    private void generateSplitMember(GenerationContext ctx, HelperClasses helpers, MemberCode member,
+                                     String typeBuilderVarName) {
+        String declaration = member.declaration();
+        int firstLineEnd = declaration.indexOf('\n');
+        String firstLine = declaration.substring(0, firstLineEnd);
+        String specType = firstLine.substring(0, firstLine.indexOf(' '));
+        int assignment = firstLine.indexOf(" = ");
+        String specVarName = firstLine.substring(specType.length() + 1, assignment);
+        String specBuilderVarName = specVarName + "Builder";
+        List<String> calls = declaration.substring(firstLineEnd + 1, declaration.lastIndexOf("    .build();"))
+                .lines()
+                .toList();
+
+        ctx.append(specType).append(".Builder ").append(specBuilderVarName).append(" = ")
+           .append(firstLine.substring(assignment + 3)).append(";\n");
+
+        int budget = config.getMethodSizeBudget();
+        StringBuilder helper = new StringBuilder();
+        int helperSize = 0;
+        for (String call : calls) {
+            String statement = "builder" + call.strip() + ";";
+            int callSize = MethodSizeEstimator.estimate(statement);
+            if (helper.length() > 0 && helperSize + callSize > budget) {
+                helpers.add(specType + ".Builder", helper, specBuilderVarName);
+                helper.setLength(0);
+                helperSize = 0;
+            }
+            helper.append("        ").append(statement).append("\n");
+            helperSize += callSize;
+        }
+        if (helper.length() > 0) {
+            helpers.add(specType + ".Builder", helper, specBuilderVarName);
+        }
 
-        return sb.toString();
+        ctx.append(specType).append(" ").append(specVarName).append(" = ")
+           .append(specBuilderVarName).append(".build();\n");
+        ctx.append(typeBuilderVarName).append(member.addCall()).append(";\n");
     }
 
     /**
-     * Generate FieldSpec code.
+     * The helper classes of one split type, numbered in the order they are called.
      */
-    private String generateFieldSpec(FieldDeclaration field, VariableDeclarator var, String varName) {
-        StringBuilder sb = new StringBuilder();
+    private static final class HelperClasses {
+
+        private final GenerationContext ctx;
+        private final String prefix;
+        private int count;
 
-        sb.append("FieldSpec ").append(varName).append(" = FieldSpec.builder(");
-        sb.append(generateTypeName(var.getType())).append(", ");
-        sb.append("\"").append(var.getNameAsString()).append("\"");
+        HelperClasses(GenerationContext ctx, String prefix) {
+            this.ctx = ctx;
+            this.prefix = prefix;
+        }
+
+        /**
+         * Add a helper class whose method runs {@code body} on the given builder, and call it.
+         */
+        void add(String builderType, CharSequence body, String builderVarName) {
+            String name = prefix + ++count;
+            ctx.addHelperClass("static final class " + name + " {\n"
+                    + "    static void add(" + builderType + " builder) {\n"
+                    + body
+                    + "    }\n"
+                    + "}\n");
+            ctx.append(name).append(".add(").append(builderVarName).append(");\n");
+        }
+    }
+
+    /**
+     * Generate the addJavadoc call for a member, if it has Javadoc and Javadoc is preserved.
+     */
+    private void generateJavadoc(GenerationContext ctx, String javadoc) {
+        if (javadoc != null && config.isPreserveJavadoc()) {
+            ctx.append("    .addJavadoc(").append(escapeString(javadoc)).append(")\n");
+        }
+    }
+
+    /**
+     * Generate FieldSpec code.
+     */
+    private void generateFieldSpec(GenerationContext ctx, FieldModel field, String varName) {
+        ctx.append("FieldSpec ").append(varName).append(" = FieldSpec.builder(");
+        ctx.append(generateTypeName(ctx, field.type())).append(", ");
+        ctx.append("\"").append(field.name()).append("\"");
 
         // Add modifiers inline if simple
-        String modifiers = generateModifiers(field.getModifiers());
+        String modifiers = generateModifiers(field.modifiers());
         if (!modifiers.isEmpty()) {
-            sb.append(", ").append(modifiers);
+            ctx.append(", ").append(modifiers);
         }
-        sb.append(")\n");
+        ctx.append(")\n");
 
         // Add initializer if present
-        var.getInitializer().ifPresent(init -> {
-            sb.append("    .initializer(").append(generateCodeBlockForExpression(init)).append(")\n");
-        });
+        if (field.initializer() != null) {
+            ctx.append("    .initializer(").append(generateCodeBlockForExpression(ctx, field.initializer())).append(")\n");
+        }
 
         // Add annotations
-        for (AnnotationExpr annotation : field.getAnnotations()) {
-            sb.append("    .addAnnotation(").append(generateAnnotationSpec(annotation)).append(")\n");
+        for (AnnotationModel annotation : field.annotations()) {
+            ctx.append("    .addAnnotation(").append(generateAnnotationSpec(ctx, annotation)).append(")\n");
         }
 
         // Add Javadoc if present
-        field.getJavadocComment().ifPresent(javadoc -> {
-            sb.append("    .addJavadoc(").append(escapeString(javadoc.getContent())).append(")\n");
-        });
+        generateJavadoc(ctx, field.javadoc());
 
-        sb.append("    .build();\n");
-
-        return sb.toString();
+        ctx.append("    .build();\n");
     }
 
     /**
      * Generate MethodSpec code.
      */
-    private String generateMethodSpec(MethodDeclaration method, String varName) {
-        StringBuilder sb = new StringBuilder();
-
-        sb.append("MethodSpec ").append(varName).append(" = MethodSpec.methodBuilder(\"");
-        sb.append(method.getNameAsString()).append("\")\n");
+    private void generateMethodSpec(GenerationContext ctx, MethodModel method, String varName) {
+        ctx.append("MethodSpec ").append(varName).append(" = MethodSpec.methodBuilder(\"");
+        ctx.append(method.name()).append("\")\n");
 
         // Add modifiers
-        String modifiers = generateModifiers(method.getModifiers());
+        String modifiers = generateModifiers(method.modifiers());
         if (!modifiers.isEmpty()) {
-            sb.append("    .addModifiers(").append(modifiers).append(")\n");
+            ctx.append("    .addModifiers(").append(modifiers).append(")\n");
         }
 
         // Add return type
-        sb.append("    .returns(").append(generateTypeName(method.getType())).append(")\n");
+        ctx.append("    .returns(").append(generateTypeName(ctx, method.returnType())).append(")\n");
 
         // Add parameters
-        for (Parameter param : method.getParameters()) {
-            sb.append("    .addParameter(").append(generateParameterSpec(param)).append(")\n");
+        for (ParameterModel param : method.parameters()) {
+            ctx.append("    .addParameter(").append(generateParameterSpec(ctx, param)).append(")\n");
         }
 
         // Add type parameters (generics)
-        method.getTypeParameters().forEach(tp -> {
-            sb.append("    .addTypeVariable(com.squareup.javapoet.TypeVariableName.get(\"")
-              .append(tp.getNameAsString()).append("\"))\n");
-            usedImports.add("com.squareup.javapoet.TypeVariableName");
-        });
+        for (String typeParameter : method.typeParameters()) {
+            ctx.append("    .addTypeVariable(com.squareup.javapoet.TypeVariableName.get(\"")
+              .append(typeParameter).append("\"))\n");
+        }
 
         // Add thrown exceptions
-        for (var thrownType : method.getThrownExceptions()) {
-            sb.append("    .addException(").append(generateTypeName(thrownType)).append(")\n");
+        for (TypeRef thrownType : method.thrownTypes()) {
+            ctx.append("    .addException(").append(generateTypeName(ctx, thrownType)).append(")\n");
         }
 
         // Add annotations
-        for (AnnotationExpr annotation : method.getAnnotations()) {
-            sb.append("    .addAnnotation(").append(generateAnnotationSpec(annotation)).append(")\n");
+        for (AnnotationModel annotation : method.annotations()) {
+            ctx.append("    .addAnnotation(").append(generateAnnotationSpec(ctx, annotation)).append(")\n");
         }
 
         // Add method body
-        method.getBody().ifPresent(body -> {
-            for (Statement stmt : body.getStatements()) {
-                sb.append(generateStatement(stmt));
-            }
-        });
+        if (method.body() != null) {
+            generateStatement(ctx, method.body());
+        }
 
         // Add Javadoc if present
-        method.getJavadocComment().ifPresent(javadoc -> {
-            sb.append("    .addJavadoc(").append(escapeString(javadoc.getContent())).append(")\n");
-        });
-
-        sb.append("    .build();\n");
+        generateJavadoc(ctx, method.javadoc());
 
-        return sb.toString();
+        ctx.append("    .build();\n");
     }
 
     /**
      * Generate MethodSpec code for a constructor.
      */
-    private String generateConstructorSpec(ConstructorDeclaration constructor, String varName) {
-        StringBuilder sb = new StringBuilder();
-
-        sb.append("MethodSpec ").append(varName).append(" = MethodSpec.constructorBuilder()\n");
+    private void generateConstructorSpec(GenerationContext ctx, MethodModel constructor, String varName) {
+        ctx.append("MethodSpec ").append(varName).append(" = MethodSpec.constructorBuilder()\n");
 
         // Add modifiers
-        String modifiers = generateModifiers(constructor.getModifiers());
+        String modifiers = generateModifiers(constructor.modifiers());
         if (!modifiers.isEmpty()) {
-            sb.append("    .addModifiers(").append(modifiers).append(")\n");
+            ctx.append("    .addModifiers(").append(modifiers).append(")\n");
         }
 
         // Add parameters
-        for (Parameter param : constructor.getParameters()) {
-            sb.append("    .addParameter(").append(generateParameterSpec(param)).append(")\n");
+        for (ParameterModel param : constructor.parameters()) {
+            ctx.append("    .addParameter(").append(generateParameterSpec(ctx, param)).append(")\n");
         }
 
         // Add thrown exceptions
-        for (var thrownType : constructor.getThrownExceptions()) {
-            sb.append("    .addException(").append(generateTypeName(thrownType)).append(")\n");
+        for (TypeRef thrownType : constructor.thrownTypes()) {
+            ctx.append("    .addException(").append(generateTypeName(ctx, thrownType)).append(")\n");
         }
 
         // Add annotations
-        for (AnnotationExpr annotation : constructor.getAnnotations()) {
-            sb.append("    .addAnnotation(").append(generateAnnotationSpec(annotation)).append(")\n");
+        for (AnnotationModel annotation : constructor.annotations()) {
+            ctx.append("    .addAnnotation(").append(generateAnnotationSpec(ctx, annotation)).append(")\n");
         }
 
         // Add constructor body
-        constructor.getBody().getStatements().forEach(stmt -> {
-            sb.append(generateStatement(stmt));
-        });
+        generateStatement(ctx, constructor.body());
 
         // Add Javadoc if present
-        constructor.getJavadocComment().ifPresent(javadoc -> {
-            sb.append("    .addJavadoc(").append(escapeString(javadoc.getContent())).append(")\n");
-        });
+        generateJavadoc(ctx, constructor.javadoc());
 
-        sb.append("    .build();\n");
-
-        return sb.toString();
+        ctx.append("    .build();\n");
     }
 
     /**
      * Generate code for enum types.
      */
-    private String generateEnumSpec(EnumDeclaration enumDecl, CompilationUnit cu) {
-        StringBuilder sb = new StringBuilder();
-        String enumName = enumDecl.getNameAsString();
+    private void generateEnumSpec(GenerationContext ctx, TypeModel enumType, SourceFile source) {
+        String enumName = enumType.name();
         String varName = toLowerCamelCase(enumName) + "Spec";
 
-        sb.append("// Generated JavaPoet code for enum: ").append(enumName).append("\n\n");
+        ctx.append("// Generated JavaPoet code for enum: ").append(enumName).append("\n\n");
 
-        sb.append("TypeSpec ").append(varName).append(" = TypeSpec.enumBuilder(\"")
-          .append(enumName).append("\")\n");
+        String builder = "TypeSpec.enumBuilder(\"" + enumName + "\")\n";
 
         // Add modifiers
-        String modifiers = generateModifiers(enumDecl.getModifiers());
-        if (!modifiers.isEmpty()) {
-            sb.append("    .addModifiers(").append(modifiers).append(")\n");
-        }
-
-        // Add enum constants
-        for (EnumConstantDeclaration constant : enumDecl.getEntries()) {
-            if (constant.getArguments().isEmpty()) {
-                sb.append("    .addEnumConstant(\"").append(constant.getNameAsString()).append("\")\n");
+        String modifiers = generateModifiers(enumType.modifiers());
+        String header = modifiers.isEmpty() ? "" : "    .addModifiers(" + modifiers + ")\n";
+
+        // Add enum constants. Unlike the members of a class they have no declarations
+        // to stream, only their builder calls are held until the size is known
+        List<MemberCode> constants = new ArrayList<>(enumType.enumConstants().size());
+        for (EnumConstantModel constant : enumType.enumConstants()) {
+            if (constant.arguments().isEmpty()) {
+                constants.add(new MemberCode("", ".addEnumConstant(\"" + constant.name() + "\")"));
             } else {
-                sb.append("    .addEnumConstant(\"").append(constant.getNameAsString())
-                  .append("\", TypeSpec.anonymousClassBuilder(");
-                String args = constant.getArguments().stream()
-                        .map(this::expressionToString)
-                        .collect(Collectors.joining(", "));
-                sb.append(escapeString(args)).append(").build())\n");
+                String args = String.join(", ", constant.arguments());
+                constants.add(new MemberCode("", ".addEnumConstant(\"" + constant.name()
+                        + "\", TypeSpec.anonymousClassBuilder(" + escapeString(args) + ").build())"));
             }
         }
 
         // Add interfaces
-        enumDecl.getImplementedTypes().forEach(implementedType -> {
-            sb.append("    .addSuperinterface(").append(generateTypeName(implementedType)).append(")\n");
-        });
+        ctx.beginCapture();
+        for (TypeRef implementedType : enumType.implementedTypes()) {
+            ctx.append("    .addSuperinterface(").append(generateTypeName(ctx, implementedType)).append(")\n");
+        }
+        String trailer = ctx.endCapture();
 
-        sb.append("    .build();\n\n");
+        if (exceedsMethodSizeBudget(header, trailer, constants)) {
+            generateSplitTypeSpec(ctx, varName, builder, header + trailer, constants, enumName + "Constants");
+        } else {
+            ctx.append("TypeSpec ").append(varName).append(" = ").append(builder).append(header);
+            for (MemberCode constant : constants) {
+                ctx.append("    ").append(constant.addCall()).append("\n");
+            }
+            ctx.append(trailer);
+            ctx.append("    .build();\n\n");
+        }
 
         // Generate JavaFile
-        String packageName = cu.getPackageDeclaration()
-                .map(pd -> pd.getNameAsString())
-                .orElse("");
-
-        sb.append("JavaFile javaFile = JavaFile.builder(\"").append(packageName).append("\", ")
+        ctx.append("JavaFile javaFile = JavaFile.builder(\"").append(source.packageName()).append("\", ")
           .append(varName).append(")\n");
-        sb.append("    .build();\n");
-
-        return sb.toString();
+        ctx.append("    .build();\n");
     }
 
     /**
      * Generate parameter spec code.
      */
-    private String generateParameterSpec(Parameter param) {
+    private String generateParameterSpec(GenerationContext ctx, ParameterModel param) {
         StringBuilder sb = new StringBuilder();
 
-        boolean hasAnnotations = !param.getAnnotations().isEmpty();
+        boolean hasAnnotations = !param.annotations().isEmpty();
         boolean isFinal = param.isFinal();
 
         if (hasAnnotations || isFinal) {
-            sb.append("ParameterSpec.builder(").append(generateTypeName(param.getType()))
-              .append(", \"").append(param.getNameAsString()).append("\")");
+            sb.append("ParameterSpec.builder(").append(generateTypeName(ctx, param.type()))
+              .append(", \"").append(param.name()).append("\")");
 
             if (isFinal) {
                 sb.append(".addModifiers(Modifier.FINAL)");
             }
 
-            for (AnnotationExpr annotation : param.getAnnotations()) {
-                sb.append(".addAnnotation(").append(generateAnnotationSpec(annotation)).append(")");
+            for (AnnotationModel annotation : param.annotations()) {
+                sb.append(".addAnnotation(").append(generateAnnotationSpec(ctx, annotation)).append(")");
             }
 
             sb.append(".build()");
         } else {
-            sb.append(generateTypeName(param.getType())).append(", \"")
-              .append(param.getNameAsString()).append("\"");
+            sb.append(generateTypeName(ctx, param.type())).append(", \"")
+              .append(param.name()).append("\"");
         }
 
         return sb.toString();
@@ -416,306 +891,280 @@ public class JavaPoetCodeGenerator {
     /**
      * Generate annotation spec code.
      */
-    private String generateAnnotationSpec(AnnotationExpr annotation) {
+    private String generateAnnotationSpec(GenerationContext ctx, AnnotationModel annotation) {
         StringBuilder sb = new StringBuilder();
 
-        String annotationName = annotation.getNameAsString();
-
         // Check if it's a well-known annotation
-        String annotationType = resolveAnnotationType(annotationName);
-
-        if (annotation instanceof MarkerAnnotationExpr) {
-            sb.append("AnnotationSpec.builder(").append(annotationType).append(").build()");
-        } else if (annotation instanceof SingleMemberAnnotationExpr single) {
-            sb.append("AnnotationSpec.builder(").append(annotationType).append(")")
-              .append(".addMember(\"value\", ")
-              .append(generateAnnotationValue(single.getMemberValue()))
-              .append(").build()");
-        } else if (annotation instanceof NormalAnnotationExpr normal) {
-            sb.append("AnnotationSpec.builder(").append(annotationType).append(")");
-            for (MemberValuePair pair : normal.getPairs()) {
-                sb.append(".addMember(\"").append(pair.getNameAsString()).append("\", ")
-                  .append(generateAnnotationValue(pair.getValue())).append(")");
-            }
-            sb.append(".build()");
+        String annotationType = resolveAnnotationType(annotation.name());
+
+        sb.append("AnnotationSpec.builder(").append(annotationType).append(")");
+        for (AnnotationModel.Member member : annotation.members()) {
+            sb.append(".addMember(\"").append(member.name()).append("\", ")
+              .append(generateAnnotationValue(ctx, member.value())).append(")");
         }
+        sb.append(".build()");
 
         return sb.toString();
     }
 
     private String resolveAnnotationType(String annotationName) {
-        // Common annotations mapping
-        Map<String, String> commonAnnotations = Map.of(
-                "Override", "Override.class",
-                "Deprecated", "Deprecated.class",
-                "SuppressWarnings", "SuppressWarnings.class",
-                "FunctionalInterface", "FunctionalInterface.class",
-                "SafeVarargs", "SafeVarargs.class"
-        );
-
-        return commonAnnotations.getOrDefault(annotationName,
-                "ClassName.get(\"\", \"" + annotationName + "\")");
-    }
-
-    private String generateAnnotationValue(Expression expr) {
-        if (expr instanceof StringLiteralExpr strLit) {
-            return "\"$S\", " + escapeString(strLit.getValue());
-        } else if (expr instanceof ClassExpr classExpr) {
-            return "\"$T.class\", " + generateTypeName(classExpr.getType());
-        } else if (expr instanceof ArrayInitializerExpr arrayInit) {
-            return escapeString("{" + arrayInit.getValues().stream()
-                    .map(this::expressionToString)
-                    .collect(Collectors.joining(", ")) + "}");
-        } else {
-            return escapeString(expressionToString(expr));
-        }
+        String expression = knownAnnotations.expression(annotationName);
+        return expression != null ? expression : "ClassName.get(\"\", \"" + annotationName + "\")";
+    }
+
+    private String generateAnnotationValue(GenerationContext ctx, ExpressionModel expr) {
+        return switch (expr.kind()) {
+            case STRING_LITERAL -> "\"$S\", " + escapeString(expr.text());
+            case CLASS_LITERAL -> "\"$T.class\", " + generateTypeName(ctx, expr.type());
+            case LITERAL, OTHER -> escapeString(expr.text());
+        };
     }
 
     /**
      * Generate TypeName code for a given type.
+     * Results for reference types are memoized per generation run, keyed by the
+     * structural form of the type, so a type used in many places is resolved once
+     * and nested type arguments reuse the results of their own earlier lookups.
      */
-    private String generateTypeName(Type type) {
-        if (type instanceof VoidType) {
-            return "TypeName.VOID";
-        } else if (type instanceof PrimitiveType primitiveType) {
-            return switch (primitiveType.getType()) {
-                case BOOLEAN -> "TypeName.BOOLEAN";
-                case BYTE -> "TypeName.BYTE";
-                case CHAR -> "TypeName.CHAR";
-                case DOUBLE -> "TypeName.DOUBLE";
-                case FLOAT -> "TypeName.FLOAT";
-                case INT -> "TypeName.INT";
-                case LONG -> "TypeName.LONG";
-                case SHORT -> "TypeName.SHORT";
-            };
-        } else if (type instanceof ClassOrInterfaceType classType) {
-            String typeName = classType.getNameAsString();
+    private String generateTypeName(GenerationContext ctx, TypeRef type) {
+        TypeNameExpression typeName = typeNameExpression(ctx, type);
+        ctx.recordTypeNameUse(typeName);
+        return typeName.reference();
+    }
+
+    private TypeNameExpression typeNameExpression(GenerationContext ctx, TypeRef type) {
+        if (type.kind() == TypeRef.Kind.VOID || type.kind() == TypeRef.Kind.PRIMITIVE) {
+            return TypeNameExpression.of("TypeName." + type.name().toUpperCase(Locale.ROOT));
+        }
+
+        String key = typeKey(type);
+        TypeNameExpression cached = ctx.getCachedTypeName(key);
+        if (cached != null) {
+            return cached;
+        }
+        TypeNameExpression typeName = resolveTypeName(ctx, type);
+        // Class literals are already constants and are never hoisted
+        if (ctx.isSharedType(key) && !typeName.reference().endsWith(".class")) {
+            String varName = ctx.hoistTypeName(typeVarName(key), typeName.reference());
+            typeName = new TypeNameExpression(varName, typeName.inline());
+        }
+        ctx.cacheTypeName(key, typeName);
+        return typeName;
+    }
+
+    private TypeNameExpression resolveTypeName(GenerationContext ctx, TypeRef type) {
+        if (type.kind() == TypeRef.Kind.CLASS) {
+            String typeName = type.name();
 
             // Handle type arguments (generics)
-            if (classType.getTypeArguments().isPresent()) {
-                NodeList<Type> typeArgs = classType.getTypeArguments().get();
-                String baseType = resolveClassName(typeName);
-                String args = typeArgs.stream()
-                        .map(this::generateTypeName)
-                        .collect(Collectors.joining(", "));
-                return "ParameterizedTypeName.get(" + baseType + ", " + args + ")";
+            if (!type.arguments().isEmpty()) {
+                List<TypeNameExpression> typeArgs = type.arguments().stream()
+                        .map(t -> typeNameExpression(ctx, t))
+                        .toList();
+                String prefix = "ParameterizedTypeName.get(" + resolveClassName(typeName) + ", ";
+                String reference = typeArgs.stream()
+                        .map(TypeNameExpression::reference)
+                        .collect(Collectors.joining(", ", prefix, ")"));
+                if (!ctx.isHoistTypeNames()) {
+                    return TypeNameExpression.of(reference);
+                }
+                String inline = typeArgs.stream()
+                        .map(TypeNameExpression::inline)
+                        .collect(Collectors.joining(", ", prefix, ")"));
+                return new TypeNameExpression(reference, inline);
             }
 
-            return resolveClassName(typeName);
-        } else if (type.isArrayType()) {
-            return "com.squareup.javapoet.ArrayTypeName.of(" +
-                   generateTypeName(type.asArrayType().getComponentType()) + ")";
+            return TypeNameExpression.of(resolveClassName(typeName));
+        } else if (type.kind() == TypeRef.Kind.ARRAY) {
+            TypeNameExpression component = typeNameExpression(ctx, type.componentType());
+            return new TypeNameExpression(
+                    "com.squareup.javapoet.ArrayTypeName.of(" + component.reference() + ")",
+                    "com.squareup.javapoet.ArrayTypeName.of(" + component.inline() + ")");
         }
 
-        return "ClassName.get(\"\", \"" + type.asString() + "\")";
+        return TypeNameExpression.of("ClassName.get(\"\", \"" + type.text() + "\")");
+    }
+
+    /**
+     * Cache key for a type. The generated TypeName only depends on the simple name
+     * of a non-generic class type, so that name is used directly; other types use
+     * their normalized source form.
+     */
+    private String typeKey(TypeRef type) {
+        if (type.kind() == TypeRef.Kind.CLASS && type.arguments().isEmpty()) {
+            return type.name();
+        }
+        return type.text();
+    }
+
+    /**
+     * Derive a variable name for a hoisted type from its key,
+     * e.g. {@code Map<String, List<Order>>} becomes {@code mapStringListOrderType}.
+     */
+    private String typeVarName(String typeKey) {
+        StringBuilder sb = new StringBuilder();
+        for (String part : typeKey.replace("[]", " Array ").split("[^A-Za-z0-9_]+")) {
+            if (!part.isEmpty()) {
+                sb.append(sb.length() == 0 ? toLowerCamelCase(part)
+                        : Character.toUpperCase(part.charAt(0)) + part.substring(1));
+            }
+        }
+        if (sb.length() == 0 || !Character.isJavaIdentifierStart(sb.charAt(0))) {
+            sb.insert(0, "type");
+        }
+        return sb.append("Type").toString();
     }
 
     private String resolveClassName(String typeName) {
-        // Map common types to their class literals
-        Map<String, String> commonTypes = Map.ofEntries(
-                Map.entry("String", "String.class"),
-                Map.entry("Object", "Object.class"),
-                Map.entry("Integer", "Integer.class"),
-                Map.entry("Long", "Long.class"),
-                Map.entry("Double", "Double.class"),
-                Map.entry("Float", "Float.class"),
-                Map.entry("Boolean", "Boolean.class"),
-                Map.entry("Byte", "Byte.class"),
-                Map.entry("Short", "Short.class"),
-                Map.entry("Character", "Character.class"),
-                Map.entry("List", "java.util.List.class"),
-                Map.entry("ArrayList", "java.util.ArrayList.class"),
-                Map.entry("Map", "java.util.Map.class"),
-                Map.entry("HashMap", "java.util.HashMap.class"),
-                Map.entry("Set", "java.util.Set.class"),
-                Map.entry("HashSet", "java.util.HashSet.class"),
-                Map.entry("Collection", "java.util.Collection.class"),
-                Map.entry("Optional", "java.util.Optional.class"),
-                Map.entry("Stream", "java.util.stream.Stream.class")
-        );
-
-        return commonTypes.getOrDefault(typeName,
-                "ClassName.get(\"\", \"" + typeName + "\")");
+        String expression = knownTypes.expression(typeName);
+        return expression != null ? expression : "ClassName.get(\"\", \"" + typeName + "\")";
     }
 
     /**
      * Generate code for modifiers.
      */
-    private String generateModifiers(NodeList<Modifier> modifiers) {
+    private String generateModifiers(List<Modifier> modifiers) {
         if (modifiers.isEmpty()) {
             return "";
         }
 
         return modifiers.stream()
-                .map(mod -> "Modifier." + mod.getKeyword().name())
+                .map(mod -> "Modifier." + mod.name())
                 .collect(Collectors.joining(", "));
     }
 
     /**
      * Generate statement code.
      */
-    private String generateStatement(Statement stmt) {
-        StringBuilder sb = new StringBuilder();
-
-        if (stmt instanceof ReturnStmt returnStmt) {
-            if (returnStmt.getExpression().isPresent()) {
-                sb.append("    .addStatement(\"return ")
-                  .append(escapeForStatement(expressionToString(returnStmt.getExpression().get())))
-                  .append("\")\n");
+    private void generateStatement(GenerationContext ctx, StatementModel stmt) {
+        if (stmt instanceof StatementModel.Return returnStmt) {
+            if (returnStmt.expression() != null) {
+                ctx.append("    .addStatement(")
+                  .append(escapeString("return " + escapeForStatement(returnStmt.expression())))
+                  .append(")\n");
             } else {
-                sb.append("    .addStatement(\"return\")\n");
+                ctx.append("    .addStatement(\"return\")\n");
             }
-        } else if (stmt instanceof ExpressionStmt exprStmt) {
-            sb.append("    .addStatement(")
-              .append(escapeString(expressionToString(exprStmt.getExpression())))
+        } else if (stmt instanceof StatementModel.ExpressionStatement exprStmt) {
+            ctx.append("    .addStatement(")
+              .append(escapeString(exprStmt.expression()))
               .append(")\n");
-        } else if (stmt instanceof IfStmt ifStmt) {
-            sb.append("    .beginControlFlow(\"if (")
-              .append(escapeForStatement(expressionToString(ifStmt.getCondition())))
-              .append(")\")\n");
-            if (ifStmt.getThenStmt() instanceof BlockStmt block) {
-                for (Statement s : block.getStatements()) {
-                    sb.append(generateStatement(s));
-                }
-            } else {
-                sb.append(generateStatement(ifStmt.getThenStmt()));
-            }
-            if (ifStmt.getElseStmt().isPresent()) {
-                Statement elseStmt = ifStmt.getElseStmt().get();
-                if (elseStmt instanceof IfStmt) {
-                    sb.append("    .nextControlFlow(\"else if (...)\")\n");
-                } else {
-                    sb.append("    .nextControlFlow(\"else\")\n");
-                    if (elseStmt instanceof BlockStmt block) {
-                        for (Statement s : block.getStatements()) {
-                            sb.append(generateStatement(s));
-                        }
-                    } else {
-                        sb.append(generateStatement(elseStmt));
-                    }
-                }
-            }
-            sb.append("    .endControlFlow()\n");
-        } else if (stmt instanceof ForStmt forStmt) {
-            String init = forStmt.getInitialization().stream()
-                    .map(this::expressionToString)
-                    .collect(Collectors.joining(", "));
-            String compare = forStmt.getCompare()
-                    .map(this::expressionToString)
-                    .orElse("");
-            String update = forStmt.getUpdate().stream()
-                    .map(this::expressionToString)
-                    .collect(Collectors.joining(", "));
-            sb.append("    .beginControlFlow(\"for (")
-              .append(escapeForStatement(init)).append("; ")
-              .append(escapeForStatement(compare)).append("; ")
-              .append(escapeForStatement(update)).append(")\")\n");
-            if (forStmt.getBody() instanceof BlockStmt block) {
-                for (Statement s : block.getStatements()) {
-                    sb.append(generateStatement(s));
-                }
-            } else {
-                sb.append(generateStatement(forStmt.getBody()));
-            }
-            sb.append("    .endControlFlow()\n");
-        } else if (stmt instanceof ForEachStmt forEachStmt) {
-            sb.append("    .beginControlFlow(\"for ($T ")
-              .append(forEachStmt.getVariable().getVariables().get(0).getNameAsString())
-              .append(" : ")
-              .append(escapeForStatement(expressionToString(forEachStmt.getIterable())))
-              .append(")\", ")
-              .append(generateTypeName(forEachStmt.getVariable().getCommonType()))
+        } else if (stmt instanceof StatementModel.If ifStmt) {
+            ctx.append("    .beginControlFlow(")
+              .append(escapeString("if (" + escapeForStatement(ifStmt.condition()) + ")"))
               .append(")\n");
-            if (forEachStmt.getBody() instanceof BlockStmt block) {
-                for (Statement s : block.getStatements()) {
-                    sb.append(generateStatement(s));
-                }
-            } else {
-                sb.append(generateStatement(forEachStmt.getBody()));
-            }
-            sb.append("    .endControlFlow()\n");
-        } else if (stmt instanceof WhileStmt whileStmt) {
-            sb.append("    .beginControlFlow(\"while (")
-              .append(escapeForStatement(expressionToString(whileStmt.getCondition())))
-              .append(")\")\n");
-            if (whileStmt.getBody() instanceof BlockStmt block) {
-                for (Statement s : block.getStatements()) {
-                    sb.append(generateStatement(s));
-                }
-            } else {
-                sb.append(generateStatement(whileStmt.getBody()));
-            }
-            sb.append("    .endControlFlow()\n");
-        } else if (stmt instanceof TryStmt tryStmt) {
-            sb.append("    .beginControlFlow(\"try\")\n");
-            for (Statement s : tryStmt.getTryBlock().getStatements()) {
-                sb.append(generateStatement(s));
+            generateStatement(ctx, ifStmt.thenStatement());
+            if (ifStmt.elseStatement() instanceof StatementModel.If) {
+                ctx.append("    .nextControlFlow(\"else if (...)\")\n");
+            } else if (ifStmt.elseStatement() != null) {
+                ctx.append("    .nextControlFlow(\"else\")\n");
+                generateStatement(ctx, ifStmt.elseStatement());
             }
-            for (var catchClause : tryStmt.getCatchClauses()) {
-                sb.append("    .nextControlFlow(\"catch ($T ")
-                  .append(catchClause.getParameter().getNameAsString())
+            ctx.append("    .endControlFlow()\n");
+        } else if (stmt instanceof StatementModel.For forStmt) {
+            ctx.append("    .beginControlFlow(")
+              .append(escapeString("for (" + escapeForStatement(forStmt.initialization()) + "; "
+                      + escapeForStatement(forStmt.compare()) + "; "
+                      + escapeForStatement(forStmt.update()) + ")"))
+              .append(")\n");
+            generateStatement(ctx, forStmt.body());
+            ctx.append("    .endControlFlow()\n");
+        } else if (stmt instanceof StatementModel.ForEach forEachStmt) {
+            ctx.append("    .beginControlFlow(")
+              .append(escapeString("for ($T " + forEachStmt.variableName()
+                      + " : " + escapeForStatement(forEachStmt.iterable()) + ")"))
+              .append(", ")
+              .append(generateTypeName(ctx, forEachStmt.variableType()))
+              .append(")\n");
+            generateStatement(ctx, forEachStmt.body());
+            ctx.append("    .endControlFlow()\n");
+        } else if (stmt instanceof StatementModel.While whileStmt) {
+            ctx.append("    .beginControlFlow(")
+              .append(escapeString("while (" + escapeForStatement(whileStmt.condition()) + ")"))
+              .append(")\n");
+            generateStatement(ctx, whileStmt.body());
+            ctx.append("    .endControlFlow()\n");
+        } else if (stmt instanceof StatementModel.Try tryStmt) {
+            ctx.append("    .beginControlFlow(\"try\")\n");
+            generateStatement(ctx, tryStmt.tryBlock());
+            for (StatementModel.CatchClause catchClause : tryStmt.catchClauses()) {
+                ctx.append("    .nextControlFlow(\"catch ($T ")
+                  .append(catchClause.parameterName())
                   .append(")\", ")
-                  .append(generateTypeName(catchClause.getParameter().getType()))
+                  .append(generateTypeName(ctx, catchClause.parameterType()))
                   .append(")\n");
-                for (Statement s : catchClause.getBody().getStatements()) {
-                    sb.append(generateStatement(s));
-                }
+                generateStatement(ctx, catchClause.body());
             }
-            tryStmt.getFinallyBlock().ifPresent(finallyBlock -> {
-                sb.append("    .nextControlFlow(\"finally\")\n");
-                for (Statement s : finallyBlock.getStatements()) {
-                    sb.append(generateStatement(s));
-                }
-            });
-            sb.append("    .endControlFlow()\n");
-        } else if (stmt instanceof ThrowStmt throwStmt) {
-            sb.append("    .addStatement(\"throw ")
-              .append(escapeForStatement(expressionToString(throwStmt.getExpression())))
-              .append("\")\n");
-        } else if (stmt instanceof BlockStmt blockStmt) {
-            for (Statement s : blockStmt.getStatements()) {
-                sb.append(generateStatement(s));
+            if (tryStmt.finallyBlock() != null) {
+                ctx.append("    .nextControlFlow(\"finally\")\n");
+                generateStatement(ctx, tryStmt.finallyBlock());
             }
-        } else {
+            ctx.append("    .endControlFlow()\n");
+        } else if (stmt instanceof StatementModel.Throw throwStmt) {
+            ctx.append("    .addStatement(")
+              .append(escapeString("throw " + escapeForStatement(throwStmt.expression())))
+              .append(")\n");
+        } else if (stmt instanceof StatementModel.Block blockStmt) {
+            for (StatementModel s : blockStmt.statements()) {
+                generateStatement(ctx, s);
+            }
+        } else if (stmt instanceof StatementModel.Other other) {
             // Fallback for other statement types
-            sb.append("    .addStatement(").append(escapeString(stmt.toString().trim())).append(")\n");
+            ctx.append("    .addStatement(").append(escapeString(other.text())).append(")\n");
         }
-
-        return sb.toString();
     }
 
     /**
      * Generate CodeBlock code for an expression.
      */
-    private String generateCodeBlockForExpression(Expression expr) {
-        if (expr instanceof StringLiteralExpr strLit) {
-            return "\"$S\", " + escapeString(strLit.getValue());
-        } else if (expr instanceof IntegerLiteralExpr || expr instanceof LongLiteralExpr ||
-                   expr instanceof DoubleLiteralExpr || expr instanceof BooleanLiteralExpr) {
-            return "\"$L\", " + expr.toString();
-        } else if (expr instanceof ClassExpr classExpr) {
-            return "\"$T.class\", " + generateTypeName(classExpr.getType());
-        } else if (expr instanceof ObjectCreationExpr objCreate) {
-            return escapeString("new " + objCreate.getType().asString() +
-                    "(" + objCreate.getArguments().stream()
-                    .map(this::expressionToString)
-                    .collect(Collectors.joining(", ")) + ")");
-        } else {
-            return escapeString(expressionToString(expr));
-        }
-    }
-
-    /**
-     * Convert expression to string representation.
-     */
-    private String expressionToString(Expression expr) {
-        return expr.toString();
+    private String generateCodeBlockForExpression(GenerationContext ctx, ExpressionModel expr) {
+        return switch (expr.kind()) {
+            case STRING_LITERAL -> "\"$S\", " + escapeString(expr.text());
+            case LITERAL -> "\"$L\", " + expr.text();
+            case CLASS_LITERAL -> "\"$T.class\", " + generateTypeName(ctx, expr.type());
+            case OTHER -> escapeString(expr.text());
+        };
     }
 
     /**
      * Escape a string for use in generated code.
+     * A class file stores a string constant in at most 65535 bytes of modified UTF-8,
+     * so strings longer than {@link GeneratorConfig#getMaxStringLiteralBytes()} are
+     * written as a {@code String.join("", ...)} of shorter literals. The segments are
+     * joined at run time, so javac does not fold them back into one oversized constant.
      */
     private String escapeString(String s) {
+        int maxBytes = config.getMaxStringLiteralBytes();
+        // Every char takes at most 3 bytes, so short strings need no exact count
+        if (s.length() <= maxBytes / 3
+                || s.length() <= MAX_STRING_CONSTANT_CHARS && modifiedUtf8Length(s) <= maxBytes) {
+            return quoteString(s);
+        }
+
+        StringBuilder sb = new StringBuilder("String.join(\"\"");
+        int start = 0;
+        int bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            int charBytes = modifiedUtf8Length(c);
+            // Never split a surrogate pair between two segments
+            boolean pairEnd = i > 0 && Character.isLowSurrogate(c) && Character.isHighSurrogate(s.charAt(i - 1));
+            boolean pairStart = i + 1 < s.length() && Character.isHighSurrogate(c)
+                    && Character.isLowSurrogate(s.charAt(i + 1));
+            int needed = pairStart ? charBytes + modifiedUtf8Length(s.charAt(i + 1)) : charBytes;
+            boolean full = bytes + needed > maxBytes || i + (pairStart ? 2 : 1) - start > MAX_STRING_CONSTANT_CHARS;
+            if (!pairEnd && i > start && full) {
+                sb.append(", ").append(quoteString(s.substring(start, i)));
+                start = i;
+                bytes = 0;
+            }
+            bytes += charBytes;
+        }
+        sb.append(", ").append(quoteString(s.substring(start)));
+        return sb.append(")").toString();
+    }
+
+    private String quoteString(String s) {
         return "\"" + s.replace("\\", "\\\\")
                       .replace("\"", "\\\"")
                       .replace("\n", "\\n")
@@ -723,6 +1172,25 @@ public class JavaPoetCodeGenerator {
                       .replace("\t", "\\t") + "\"";
     }
 
+    private static int modifiedUtf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            length += modifiedUtf8Length(s.charAt(i));
+        }
+        return length;
+    }
+
+    /**
+     * Size of a char in modified UTF-8, where NUL takes two bytes and each half of a
+     * surrogate pair is encoded on its own.
+     */
+    private static int modifiedUtf8Length(char c) {
+        if (c != 0 && c < 0x80) {
+            return 1;
+        }
+        return c < 0x800 ? 2 : 3;
+    }
+
     /**
      * Escape a string for use in addStatement calls.
      */
@@ -1,16 +1,34 @@
 package cn.lihongjie.javapoet.gen.core;
 
+import cn.lihongjie.javapoet.gen.core.model.JavaParserModelReader;
+import cn.lihongjie.javapoet.gen.core.model.MemberFilter;
+import cn.lihongjie.javapoet.gen.core.model.SourceFile;
 import com.github.javaparser.ast.CompilationUnit;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.TypeSpec;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Main entry point for generating JavaPoet code from Java source files.
  * This class provides a simple API for converting Java source code into
  * equivalent JavaPoet API calls.
  *
+ * <p>Instances are thread-safe and meant to be shared: parsing uses a pool of
+ * parsers and code generation keeps all per-run state in a per-call context.</p>
+ *
+ * <p>Sources are read into a compact {@link SourceFile} model right after parsing,
+ * so the AST of a file can be garbage collected before its code is generated.</p>
+ *
+ * <p>With an {@link OutputCache}, code generated from a source is cached, and
+ * generating from the same source and configuration again only costs hashing
+ * the source.</p>
+ *
  * <p>Example usage:</p>
  * <pre>{@code
  * JavaPoetGenerator generator = new JavaPoetGenerator();
@@ -28,6 +46,12 @@ public class JavaPoetGenerator {
 
     private final JavaSourceParser parser;
     private final JavaPoetCodeGenerator codeGenerator;
+    private final JavaPoetSpecGenerator specGenerator;
+    private final JavaParserModelReader modelReader = new JavaParserModelReader();
+    private final MemberFilter memberFilter;
+    private final boolean sliceSourceText;
+    private final OutputCache outputCache;
+    private final String configFingerprint;
 
     /**
      * Create a new JavaPoetGenerator with default configuration.
@@ -42,8 +66,25 @@ public class JavaPoetGenerator {
      * @param config the generator configuration
      */
     public JavaPoetGenerator(GeneratorConfig config) {
-        this.parser = new JavaSourceParser();
+        this(config, null);
+    }
+
+    /**
+     * Create a new JavaPoetGenerator with custom configuration that caches generated code.
+     * The cache may be shared between generators with different configurations, since
+     * its keys include the configuration fingerprint, taken when the generator is created.
+     *
+     * @param config      the generator configuration
+     * @param outputCache the cache of generated code, or {@code null} for none
+     */
+    public JavaPoetGenerator(GeneratorConfig config, OutputCache outputCache) {
+        this.parser = new JavaSourceParser(config);
         this.codeGenerator = new JavaPoetCodeGenerator(config);
+        this.specGenerator = new JavaPoetSpecGenerator(config);
+        this.sliceSourceText = config.isSliceSourceText();
+        this.memberFilter = config.memberFilter();
+        this.outputCache = outputCache;
+        this.configFingerprint = outputCache != null ? config.fingerprint() : null;
     }
 
     /**
@@ -54,8 +95,7 @@ public class JavaPoetGenerator {
      * @throws JavaPoetGenException if generation fails
      */
     public String generateFromFile(Path sourcePath) {
-        CompilationUnit cu = parser.parse(sourcePath);
-        return codeGenerator.generate(cu);
+        return generate(readSource(sourcePath), sourcePath.getFileName().toString());
     }
 
     /**
@@ -69,8 +109,7 @@ public class JavaPoetGenerator {
         if (sourceCode == null || sourceCode.isBlank()) {
             throw new JavaPoetGenException("Source code cannot be null or blank");
         }
-        CompilationUnit cu = parser.parse(sourceCode);
-        return codeGenerator.generate(cu);
+        return generate(sourceCode, "<inline>");
     }
 
     /**
@@ -82,8 +121,81 @@ public class JavaPoetGenerator {
      * @throws JavaPoetGenException if generation fails
      */
     public String generateFromSource(String sourceCode, String sourceName) {
-        CompilationUnit cu = parser.parse(sourceCode, sourceName);
-        return codeGenerator.generate(cu);
+        return generate(sourceCode, sourceName);
+    }
+
+    /**
+     * Generate JavaPoet code from a Java source string and write it to the given output
+     * as it is generated. With an output cache, the code is written once it is complete.
+     *
+     * @param sourceCode the Java source code
+     * @param sourceName the name of the source (for error messages)
+     * @param out        the destination for the generated code
+     * @throws JavaPoetGenException if generation fails
+     * @throws IOException if writing to {@code out} fails
+     */
+    public void generateFromSource(String sourceCode, String sourceName, Appendable out) throws IOException {
+        if (outputCache == null) {
+            codeGenerator.generate(parseModel(sourceCode, sourceName), out);
+        } else {
+            out.append(generate(sourceCode, sourceName));
+        }
+    }
+
+    /**
+     * Parse a Java source string into the model code is generated from.
+     * The model can be kept, or cached with
+     * {@link cn.lihongjie.javapoet.gen.core.model.SourceFileCodec}, for a fraction
+     * of the memory the parsed AST takes.
+     *
+     * @param sourceCode the Java source code
+     * @param sourceName the name of the source (for error messages)
+     * @return the model of the source
+     * @throws JavaPoetGenException if parsing fails
+     */
+    public SourceFile parseModel(String sourceCode, String sourceName) {
+        return readModel(parser.parse(sourceCode, sourceName), sourceCode);
+    }
+
+    /**
+     * Get the cache of parsed sources, enabled with {@link GeneratorConfig#setParseCacheSize(int)}.
+     *
+     * @return the parse cache, or empty if parses are not cached
+     */
+    public Optional<ParseCache> getParseCache() {
+        return parser.getParseCache();
+    }
+
+    /**
+     * Get the cache of generated code this generator was created with.
+     *
+     * @return the output cache, or empty if generated code is not cached
+     */
+    public Optional<OutputCache> getOutputCache() {
+        return Optional.ofNullable(outputCache);
+    }
+
+    /**
+     * Generate JavaPoet code from the model of a source file.
+     *
+     * @param source the model of the source file
+     * @return the generated JavaPoet code
+     */
+    public String generateFromModel(SourceFile source) {
+        return codeGenerator.generate(source);
+    }
+
+    /**
+     * Generate JavaPoet code from the model of a source file and write it to the given
+     * output as it is generated. The model may come from any
+     * {@link cn.lihongjie.javapoet.gen.core.model.SourceModelReader}.
+     *
+     * @param source the model of the source file
+     * @param out    the destination for the generated code
+     * @throws IOException if writing to {@code out} fails
+     */
+    public void generateFromModel(SourceFile source, Appendable out) throws IOException {
+        codeGenerator.generate(source, out);
     }
 
     /**
@@ -95,8 +207,7 @@ public class JavaPoetGenerator {
      * @throws IOException if writing fails
      */
     public void generateToFile(Path sourcePath, Path outputPath) throws IOException {
-        String generatedCode = generateFromFile(sourcePath);
-        Files.writeString(outputPath, generatedCode);
+        writeToFile(readSource(sourcePath), sourcePath.getFileName().toString(), outputPath);
     }
 
     /**
@@ -108,7 +219,97 @@ public class JavaPoetGenerator {
      * @throws IOException if writing fails
      */
     public void generateToFile(String sourceCode, Path outputPath) throws IOException {
-        String generatedCode = generateFromSource(sourceCode);
-        Files.writeString(outputPath, generatedCode);
+        if (sourceCode == null || sourceCode.isBlank()) {
+            throw new JavaPoetGenException("Source code cannot be null or blank");
+        }
+        writeToFile(sourceCode, "<inline>", outputPath);
+    }
+
+    /**
+     * Build JavaPoet TypeSpecs for the types of a parsed compilation unit, without
+     * generating and compiling JavaPoet code.
+     *
+     * @param cu the parsed CompilationUnit
+     * @return one TypeSpec per top-level class, interface or enum
+     * @throws JavaPoetGenException if a type cannot be represented as a spec
+     */
+    public List<TypeSpec> toTypeSpecs(CompilationUnit cu) {
+        return specGenerator.toTypeSpecs(cu);
+    }
+
+    /**
+     * Build JavaPoet JavaFiles for the types of a parsed compilation unit, without
+     * generating and compiling JavaPoet code.
+     *
+     * @param cu the parsed CompilationUnit
+     * @return one JavaFile per top-level class, interface or enum
+     * @throws JavaPoetGenException if a type cannot be represented as a spec
+     */
+    public List<JavaFile> toJavaFiles(CompilationUnit cu) {
+        return specGenerator.toJavaFiles(cu);
+    }
+
+    /**
+     * Build JavaPoet JavaFiles for the types of a Java source string.
+     *
+     * @param sourceCode the Java source code
+     * @param sourceName the name of the source (for error messages)
+     * @return one JavaFile per top-level class, interface or enum
+     * @throws JavaPoetGenException if parsing fails or a type cannot be represented as a spec
+     */
+    public List<JavaFile> toJavaFiles(String sourceCode, String sourceName) {
+        CompilationUnit cu = parser.parse(sourceCode, sourceName);
+        // A cached unit may be printed by other threads at the same time
+        synchronized (cu) {
+            return specGenerator.toJavaFiles(cu);
+        }
+    }
+
+    private String generate(String sourceCode, String sourceName) {
+        if (outputCache == null) {
+            return codeGenerator.generate(parseModel(sourceCode, sourceName));
+        }
+        String key = OutputCache.key(sourceCode, configFingerprint);
+        String cached = outputCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        String generated = codeGenerator.generate(parseModel(sourceCode, sourceName));
+        outputCache.put(key, generated);
+        return generated;
+    }
+
+    private static String readSource(Path sourcePath) {
+        try {
+            return Files.readString(sourcePath);
+        } catch (IOException e) {
+            throw new JavaPoetGenException("Failed to read source file: " + sourcePath, e);
+        }
+    }
+
+    /**
+     * Read a parsed compilation unit into its model. Callers pass the AST straight
+     * in and keep no reference to it, so it becomes garbage once this returns,
+     * unless the parse cache holds on to it.
+     */
+    private SourceFile readModel(CompilationUnit cu, String sourceCode) {
+        // A cached unit may be printed by other threads at the same time
+        synchronized (cu) {
+            return sliceSourceText
+                    ? modelReader.read(cu, sourceCode, memberFilter)
+                    : modelReader.read(cu, memberFilter);
+        }
+    }
+
+    private void writeToFile(String sourceCode, String sourceName, Path outputPath) throws IOException {
+        if (outputCache != null) {
+            Files.writeString(outputPath, generate(sourceCode, sourceName));
+            return;
+        }
+        // Parse before opening the output, so a parse error leaves an existing file intact
+        SourceFile source = parseModel(sourceCode, sourceName);
+        try (Writer writer = Files.newBufferedWriter(outputPath)) {
+            codeGenerator.generate(source, writer);
+        }
     }
 }
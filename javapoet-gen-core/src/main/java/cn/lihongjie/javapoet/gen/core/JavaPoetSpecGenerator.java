@@ -0,0 +1,633 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import cn.lihongjie.javapoet.gen.core.model.MemberFilter;
+import cn.lihongjie.javapoet.gen.core.model.TypeModel;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.*;
+import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.nodeTypes.NodeWithJavadoc;
+import com.github.javaparser.ast.nodeTypes.NodeWithModifiers;
+import com.github.javaparser.ast.stmt.*;
+import com.github.javaparser.ast.type.ArrayType;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.PrimitiveType;
+import com.github.javaparser.ast.type.ReferenceType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.TypeParameter;
+import com.github.javaparser.ast.type.WildcardType;
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
+
+import javax.lang.model.element.Modifier;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Builds JavaPoet {@link TypeSpec} and {@link JavaFile} objects directly from a parsed Java AST.
+ * This is the in-memory counterpart of {@link JavaPoetCodeGenerator}: instead of writing
+ * JavaPoet builder code that has to be compiled and run, it runs the equivalent builder
+ * calls itself.
+ *
+ * <p>Types are resolved through the built-in and registered types of the configuration,
+ * then through the single-type imports of the compilation unit. Other simple names are
+ * referenced without a package, like the code generator does. Method bodies are kept
+ * as statement text, with control flow mapped to the matching {@link CodeBlock} calls;
+ * types that only appear inside statement text are therefore not imported by the
+ * resulting {@link JavaFile}.</p>
+ *
+ * <p>Like the code generator, instances hold no per-run state and can be shared between threads.</p>
+ */
+public class JavaPoetSpecGenerator {
+
+    private final GeneratorConfig config;
+    private final TypeLookup knownTypes;
+    private final TypeLookup knownAnnotations;
+    private final MemberFilter memberFilter;
+
+    public JavaPoetSpecGenerator() {
+        this(new GeneratorConfig());
+    }
+
+    /**
+     * Create a spec generator for the given configuration.
+     *
+     * @param config the generator configuration
+     */
+    public JavaPoetSpecGenerator(GeneratorConfig config) {
+        this.config = config;
+        this.knownTypes = TypeLookup.of(TypeLookup.BUILT_IN_TYPES, config.getRegisteredTypes());
+        this.knownAnnotations = TypeLookup.of(TypeLookup.BUILT_IN_ANNOTATIONS, config.getRegisteredAnnotations());
+        this.memberFilter = config.memberFilter();
+    }
+
+    /**
+     * Build a TypeSpec for every top-level class, interface and enum of a compilation unit.
+     *
+     * @param cu the parsed CompilationUnit
+     * @return the type specs, in declaration order
+     * @throws JavaPoetGenException if a declaration cannot be represented as a spec
+     */
+    public List<TypeSpec> toTypeSpecs(CompilationUnit cu) {
+        Scope scope = new Scope(cu);
+        List<TypeSpec> typeSpecs = new ArrayList<>();
+        for (TypeDeclaration<?> type : cu.getTypes()) {
+            if (type instanceof ClassOrInterfaceDeclaration || type instanceof EnumDeclaration) {
+                typeSpecs.add(buildTypeSpec(scope, type));
+            }
+        }
+        return typeSpecs;
+    }
+
+    /**
+     * Build a JavaFile for every top-level class, interface and enum of a compilation unit,
+     * in the package of the compilation unit.
+     *
+     * @param cu the parsed CompilationUnit
+     * @return the java files, in declaration order
+     * @throws JavaPoetGenException if a declaration cannot be represented as a spec
+     */
+    public List<JavaFile> toJavaFiles(CompilationUnit cu) {
+        String packageName = cu.getPackageDeclaration()
+                .map(pd -> pd.getNameAsString())
+                .orElse("");
+        return toTypeSpecs(cu).stream()
+                .map(typeSpec -> JavaFile.builder(packageName, typeSpec).build())
+                .toList();
+    }
+
+    /**
+     * Names visible while building the specs of one compilation unit.
+     */
+    private static final class Scope {
+
+        private final Map<String, String> imports = new HashMap<>();
+        private final Deque<Set<String>> typeVariables = new ArrayDeque<>();
+
+        Scope(CompilationUnit cu) {
+            cu.getImports().forEach(imp -> {
+                if (!imp.isAsterisk() && !imp.isStatic()) {
+                    imports.put(imp.getName().getIdentifier(), imp.getNameAsString());
+                }
+            });
+        }
+
+        void pushTypeVariables(NodeList<TypeParameter> typeParameters) {
+            typeVariables.push(typeParameters.stream()
+                    .map(TypeParameter::getNameAsString)
+                    .collect(Collectors.toSet()));
+        }
+
+        void popTypeVariables() {
+            typeVariables.pop();
+        }
+
+        boolean isTypeVariable(String name) {
+            for (Set<String> names : typeVariables) {
+                if (names.contains(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private TypeSpec buildTypeSpec(Scope scope, TypeDeclaration<?> type) {
+        try {
+            if (type instanceof EnumDeclaration enumDecl) {
+                return buildEnumSpec(scope, enumDecl);
+            }
+            return buildClassSpec(scope, (ClassOrInterfaceDeclaration) type);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new JavaPoetGenException("Failed to build spec for " + type.getNameAsString() + ": "
+                    + e.getMessage(), e);
+        }
+    }
+
+    private TypeSpec buildClassSpec(Scope scope, ClassOrInterfaceDeclaration classDecl) {
+        String className = classDecl.getNameAsString();
+        TypeSpec.Builder builder = classDecl.isInterface()
+                ? TypeSpec.interfaceBuilder(className)
+                : TypeSpec.classBuilder(className);
+
+        scope.pushTypeVariables(classDecl.getTypeParameters());
+        try {
+            builder.addModifiers(modifiers(classDecl.getModifiers()));
+            for (TypeParameter typeParameter : classDecl.getTypeParameters()) {
+                builder.addTypeVariable(typeVariable(scope, typeParameter));
+            }
+
+            // An interface extends other interfaces, a class extends its superclass
+            for (ClassOrInterfaceType extendedType : classDecl.getExtendedTypes()) {
+                if (classDecl.isInterface()) {
+                    builder.addSuperinterface(typeName(scope, extendedType));
+                } else {
+                    builder.superclass(typeName(scope, extendedType));
+                }
+            }
+            for (ClassOrInterfaceType implementedType : classDecl.getImplementedTypes()) {
+                builder.addSuperinterface(typeName(scope, implementedType));
+            }
+            for (AnnotationExpr annotation : classDecl.getAnnotations()) {
+                builder.addAnnotation(annotationSpec(scope, annotation));
+            }
+            addJavadoc(classDecl, builder::addJavadoc);
+
+            addMembers(scope, builder, classDecl.getMembers(),
+                    classDecl.isInterface() ? TypeModel.Kind.INTERFACE : TypeModel.Kind.CLASS);
+            return builder.build();
+        } finally {
+            scope.popTypeVariables();
+        }
+    }
+
+    private TypeSpec buildEnumSpec(Scope scope, EnumDeclaration enumDecl) {
+        TypeSpec.Builder builder = TypeSpec.enumBuilder(enumDecl.getNameAsString())
+                .addModifiers(modifiers(enumDecl.getModifiers()));
+
+        for (EnumConstantDeclaration constant : enumDecl.getEntries()) {
+            if (constant.getArguments().isEmpty() && constant.getClassBody().isEmpty()) {
+                builder.addEnumConstant(constant.getNameAsString());
+            } else {
+                String args = constant.getArguments().stream()
+                        .map(this::text)
+                        .collect(Collectors.joining(", "));
+                TypeSpec.Builder constantBuilder = args.isEmpty()
+                        ? TypeSpec.anonymousClassBuilder("")
+                        : TypeSpec.anonymousClassBuilder("$L", args);
+                addMembers(scope, constantBuilder, constant.getClassBody(), TypeModel.Kind.CLASS);
+                builder.addEnumConstant(constant.getNameAsString(), constantBuilder.build());
+            }
+        }
+        for (ClassOrInterfaceType implementedType : enumDecl.getImplementedTypes()) {
+            builder.addSuperinterface(typeName(scope, implementedType));
+        }
+        for (AnnotationExpr annotation : enumDecl.getAnnotations()) {
+            builder.addAnnotation(annotationSpec(scope, annotation));
+        }
+        addJavadoc(enumDecl, builder::addJavadoc);
+
+        addMembers(scope, builder, enumDecl.getMembers(), TypeModel.Kind.ENUM);
+        return builder.build();
+    }
+
+    /**
+     * Add fields, constructors, methods and nested types, in the order the code generator uses.
+     * Fields, constructors and methods rejected by the member filter are skipped.
+     */
+    private void addMembers(Scope scope, TypeSpec.Builder builder, NodeList<BodyDeclaration<?>> members,
+                            TypeModel.Kind declaringKind) {
+        boolean inInterface = declaringKind == TypeModel.Kind.INTERFACE;
+        for (BodyDeclaration<?> member : members) {
+            if (member instanceof FieldDeclaration field) {
+                for (VariableDeclarator var : field.getVariables()) {
+                    if (accepts(field, MemberFilter.Kind.FIELD, var.getNameAsString(), declaringKind)) {
+                        builder.addField(fieldSpec(scope, field, var, inInterface));
+                    }
+                }
+            }
+        }
+        for (BodyDeclaration<?> member : members) {
+            if (member instanceof ConstructorDeclaration constructor
+                    && accepts(constructor, MemberFilter.Kind.CONSTRUCTOR, constructor.getNameAsString(), declaringKind)) {
+                builder.addMethod(constructorSpec(scope, constructor));
+            }
+        }
+        for (BodyDeclaration<?> member : members) {
+            if (member instanceof MethodDeclaration method
+                    && accepts(method, MemberFilter.Kind.METHOD, method.getNameAsString(), declaringKind)) {
+                builder.addMethod(methodSpec(scope, method, inInterface));
+            }
+        }
+        for (BodyDeclaration<?> member : members) {
+            if (member instanceof ClassOrInterfaceDeclaration || member instanceof EnumDeclaration) {
+                builder.addType(buildTypeSpec(scope, (TypeDeclaration<?>) member));
+            }
+        }
+    }
+
+    private boolean accepts(BodyDeclaration<?> declaration, MemberFilter.Kind kind, String name,
+                            TypeModel.Kind declaringKind) {
+        if (memberFilter == MemberFilter.ALL) {
+            return true;
+        }
+        NodeWithModifiers<?> withModifiers = (NodeWithModifiers<?>) declaration;
+        List<Modifier> modifiers = List.of(modifiers(withModifiers.getModifiers()));
+        List<String> annotations = declaration.getAnnotations().stream()
+                .map(AnnotationExpr::getNameAsString)
+                .toList();
+        return memberFilter.accept(new MemberFilter.Member(kind, name, modifiers, annotations, declaringKind));
+    }
+
+    private FieldSpec fieldSpec(Scope scope, FieldDeclaration field, VariableDeclarator var, boolean inInterface) {
+        FieldSpec.Builder builder = FieldSpec.builder(typeName(scope, var.getType()), var.getNameAsString())
+                .addModifiers(modifiers(field.getModifiers()));
+
+        // Interface fields are implicitly public, static and final
+        if (inInterface) {
+            addMissingModifiers(builder.modifiers, Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL);
+        }
+
+        var.getInitializer().ifPresent(init -> builder.initializer(codeBlock(scope, init)));
+        for (AnnotationExpr annotation : field.getAnnotations()) {
+            builder.addAnnotation(annotationSpec(scope, annotation));
+        }
+        addJavadoc(field, builder::addJavadoc);
+        return builder.build();
+    }
+
+    private MethodSpec methodSpec(Scope scope, MethodDeclaration method, boolean inInterface) {
+        scope.pushTypeVariables(method.getTypeParameters());
+        try {
+            MethodSpec.Builder builder = MethodSpec.methodBuilder(method.getNameAsString())
+                    .addModifiers(modifiers(method.getModifiers()));
+
+            // Interface methods are implicitly public, and abstract unless they have a body
+            if (inInterface) {
+                if (!builder.modifiers.contains(Modifier.PRIVATE)) {
+                    addMissingModifiers(builder.modifiers, Modifier.PUBLIC);
+                }
+                if (method.getBody().isEmpty()) {
+                    addMissingModifiers(builder.modifiers, Modifier.ABSTRACT);
+                }
+            }
+
+            for (TypeParameter typeParameter : method.getTypeParameters()) {
+                builder.addTypeVariable(typeVariable(scope, typeParameter));
+            }
+            builder.returns(typeName(scope, method.getType()));
+            addParameters(scope, builder, method.getParameters());
+            for (ReferenceType thrownType : method.getThrownExceptions()) {
+                builder.addException(typeName(scope, thrownType));
+            }
+            for (AnnotationExpr annotation : method.getAnnotations()) {
+                builder.addAnnotation(annotationSpec(scope, annotation));
+            }
+            method.getBody().ifPresent(body -> builder.addCode(codeBlock(scope, body.getStatements())));
+            addJavadoc(method, builder::addJavadoc);
+            return builder.build();
+        } finally {
+            scope.popTypeVariables();
+        }
+    }
+
+    private MethodSpec constructorSpec(Scope scope, ConstructorDeclaration constructor) {
+        scope.pushTypeVariables(constructor.getTypeParameters());
+        try {
+            MethodSpec.Builder builder = MethodSpec.constructorBuilder()
+                    .addModifiers(modifiers(constructor.getModifiers()));
+            for (TypeParameter typeParameter : constructor.getTypeParameters()) {
+                builder.addTypeVariable(typeVariable(scope, typeParameter));
+            }
+            addParameters(scope, builder, constructor.getParameters());
+            for (ReferenceType thrownType : constructor.getThrownExceptions()) {
+                builder.addException(typeName(scope, thrownType));
+            }
+            for (AnnotationExpr annotation : constructor.getAnnotations()) {
+                builder.addAnnotation(annotationSpec(scope, annotation));
+            }
+            builder.addCode(codeBlock(scope, constructor.getBody().getStatements()));
+            addJavadoc(constructor, builder::addJavadoc);
+            return builder.build();
+        } finally {
+            scope.popTypeVariables();
+        }
+    }
+
+    private void addParameters(Scope scope, MethodSpec.Builder builder, NodeList<Parameter> parameters) {
+        for (Parameter param : parameters) {
+            TypeName type = typeName(scope, param.getType());
+            if (param.isVarArgs()) {
+                type = ArrayTypeName.of(type);
+                builder.varargs(true);
+            }
+            ParameterSpec.Builder paramBuilder = ParameterSpec.builder(type, param.getNameAsString())
+                    .addModifiers(modifiers(param.getModifiers()));
+            for (AnnotationExpr annotation : param.getAnnotations()) {
+                paramBuilder.addAnnotation(annotationSpec(scope, annotation));
+            }
+            builder.addParameter(paramBuilder.build());
+        }
+    }
+
+    private void addJavadoc(NodeWithJavadoc<?> node, JavadocSink sink) {
+        if (config.isPreserveJavadoc()) {
+            node.getJavadocComment().ifPresent(javadoc -> {
+                String text = javadoc.parse().toText().trim();
+                if (!text.isEmpty()) {
+                    sink.addJavadoc("$L\n", text);
+                }
+            });
+        }
+    }
+
+    /**
+     * The {@code addJavadoc} method shared by the spec builders.
+     */
+    @FunctionalInterface
+    private interface JavadocSink {
+        void addJavadoc(String format, Object... args);
+    }
+
+    private static Modifier[] modifiers(NodeList<com.github.javaparser.ast.Modifier> modifiers) {
+        return modifiers.stream()
+                .map(mod -> Modifier.valueOf(mod.getKeyword().name()))
+                .toArray(Modifier[]::new);
+    }
+
+    private static void addMissingModifiers(List<Modifier> modifiers, Modifier... required) {
+        for (Modifier modifier : required) {
+            if (!modifiers.contains(modifier)) {
+                modifiers.add(modifier);
+            }
+        }
+    }
+
+    private AnnotationSpec annotationSpec(Scope scope, AnnotationExpr annotation) {
+        AnnotationSpec.Builder builder = AnnotationSpec.builder(annotationType(scope, annotation.getNameAsString()));
+        if (annotation instanceof SingleMemberAnnotationExpr single) {
+            addAnnotationMember(scope, builder, "value", single.getMemberValue());
+        } else if (annotation instanceof NormalAnnotationExpr normal) {
+            for (MemberValuePair pair : normal.getPairs()) {
+                addAnnotationMember(scope, builder, pair.getNameAsString(), pair.getValue());
+            }
+        }
+        return builder.build();
+    }
+
+    private void addAnnotationMember(Scope scope, AnnotationSpec.Builder builder, String name, Expression value) {
+        if (value instanceof ArrayInitializerExpr arrayInit) {
+            // Several values for one member are written as an array
+            for (Expression element : arrayInit.getValues()) {
+                addAnnotationMember(scope, builder, name, element);
+            }
+        } else if (value instanceof AnnotationExpr nested) {
+            builder.addMember(name, "$L", annotationSpec(scope, nested));
+        } else {
+            builder.addMember(name, codeBlock(scope, value));
+        }
+    }
+
+    private ClassName annotationType(Scope scope, String name) {
+        String qualifiedName = knownAnnotations.qualifiedName(name);
+        if (qualifiedName == null) {
+            qualifiedName = scope.imports.get(name);
+        }
+        return qualifiedName != null ? ClassName.bestGuess(qualifiedName) : ClassName.get("", name);
+    }
+
+    /**
+     * Build the code for an expression used as a value, such as a field initializer.
+     */
+    private CodeBlock codeBlock(Scope scope, Expression expr) {
+        if (expr instanceof StringLiteralExpr strLit) {
+            return CodeBlock.of("$S", strLit.asString());
+        } else if (expr instanceof ClassExpr classExpr) {
+            return CodeBlock.of("$T.class", typeName(scope, classExpr.getType()));
+        } else if (expr instanceof ObjectCreationExpr objCreate && objCreate.getScope().isEmpty()
+                && objCreate.getAnonymousClassBody().isEmpty()) {
+            // Referencing the type through $T lets the JavaFile import it
+            String args = objCreate.getArguments().stream()
+                    .map(this::text)
+                    .collect(Collectors.joining(", "));
+            if (objCreate.isUsingDiamondOperator()) {
+                return CodeBlock.of("new $T<>($L)", className(scope, objCreate.getType()), args);
+            }
+            return CodeBlock.of("new $T($L)", typeName(scope, objCreate.getType()), args);
+        }
+        return CodeBlock.of("$L", text(expr));
+    }
+
+    /**
+     * Build the code for a list of statements, mapping control flow onto
+     * {@link CodeBlock.Builder#beginControlFlow} and its siblings.
+     */
+    private CodeBlock codeBlock(Scope scope, NodeList<Statement> statements) {
+        CodeBlock.Builder code = CodeBlock.builder();
+        for (Statement stmt : statements) {
+            addStatement(scope, code, stmt);
+        }
+        return code.build();
+    }
+
+    private void addStatement(Scope scope, CodeBlock.Builder code, Statement stmt) {
+        if (stmt instanceof ReturnStmt returnStmt) {
+            if (returnStmt.getExpression().isPresent()) {
+                code.addStatement("return $L", text(returnStmt.getExpression().get()));
+            } else {
+                code.addStatement("return");
+            }
+        } else if (stmt instanceof ExpressionStmt exprStmt) {
+            code.addStatement("$L", text(exprStmt.getExpression()));
+        } else if (stmt instanceof IfStmt ifStmt) {
+            code.beginControlFlow("if ($L)", text(ifStmt.getCondition()));
+            addBody(scope, code, ifStmt.getThenStmt());
+            Optional<Statement> elseStmt = ifStmt.getElseStmt();
+            while (elseStmt.isPresent()) {
+                if (elseStmt.get() instanceof IfStmt elseIf) {
+                    code.nextControlFlow("else if ($L)", text(elseIf.getCondition()));
+                    addBody(scope, code, elseIf.getThenStmt());
+                    elseStmt = elseIf.getElseStmt();
+                } else {
+                    code.nextControlFlow("else");
+                    addBody(scope, code, elseStmt.get());
+                    elseStmt = Optional.empty();
+                }
+            }
+            code.endControlFlow();
+        } else if (stmt instanceof ForStmt forStmt) {
+            code.beginControlFlow("for ($L; $L; $L)",
+                    forStmt.getInitialization().stream().map(this::text).collect(Collectors.joining(", ")),
+                    forStmt.getCompare().map(this::text).orElse(""),
+                    forStmt.getUpdate().stream().map(this::text).collect(Collectors.joining(", ")));
+            addBody(scope, code, forStmt.getBody());
+            code.endControlFlow();
+        } else if (stmt instanceof ForEachStmt forEachStmt) {
+            code.beginControlFlow("for ($T $L : $L)",
+                    typeName(scope, forEachStmt.getVariable().getCommonType()),
+                    forEachStmt.getVariable().getVariables().get(0).getNameAsString(),
+                    text(forEachStmt.getIterable()));
+            addBody(scope, code, forEachStmt.getBody());
+            code.endControlFlow();
+        } else if (stmt instanceof WhileStmt whileStmt) {
+            code.beginControlFlow("while ($L)", text(whileStmt.getCondition()));
+            addBody(scope, code, whileStmt.getBody());
+            code.endControlFlow();
+        } else if (stmt instanceof DoStmt doStmt) {
+            code.beginControlFlow("do");
+            addBody(scope, code, doStmt.getBody());
+            code.endControlFlow("while ($L)", text(doStmt.getCondition()));
+        } else if (stmt instanceof TryStmt tryStmt) {
+            if (tryStmt.getResources().isEmpty()) {
+                code.beginControlFlow("try");
+            } else {
+                code.beginControlFlow("try ($L)", tryStmt.getResources().stream()
+                        .map(this::text)
+                        .collect(Collectors.joining("; ")));
+            }
+            addBody(scope, code, tryStmt.getTryBlock());
+            for (CatchClause catchClause : tryStmt.getCatchClauses()) {
+                Parameter param = catchClause.getParameter();
+                if (param.getType().isUnionType()) {
+                    code.nextControlFlow("catch ($L $L)", text(param.getType()), param.getNameAsString());
+                } else {
+                    code.nextControlFlow("catch ($T $L)", typeName(scope, param.getType()), param.getNameAsString());
+                }
+                addBody(scope, code, catchClause.getBody());
+            }
+            tryStmt.getFinallyBlock().ifPresent(finallyBlock -> {
+                code.nextControlFlow("finally");
+                addBody(scope, code, finallyBlock);
+            });
+            code.endControlFlow();
+        } else if (stmt instanceof ThrowStmt throwStmt) {
+            code.addStatement("throw $L", text(throwStmt.getExpression()));
+        } else if (stmt instanceof BlockStmt blockStmt) {
+            // A nested block keeps its braces, so that its local variables stay scoped
+            code.add("{\n").indent();
+            addBody(scope, code, blockStmt);
+            code.unindent().add("}\n");
+        } else {
+            // Fallback for other statement types
+            String text = text(stmt).trim();
+            if (text.endsWith(";")) {
+                code.addStatement("$L", text.substring(0, text.length() - 1));
+            } else {
+                code.add("$L\n", text);
+            }
+        }
+    }
+
+    private void addBody(Scope scope, CodeBlock.Builder code, Statement body) {
+        if (body instanceof BlockStmt block) {
+            for (Statement stmt : block.getStatements()) {
+                addStatement(scope, code, stmt);
+            }
+        } else {
+            addStatement(scope, code, body);
+        }
+    }
+
+    private TypeVariableName typeVariable(Scope scope, TypeParameter typeParameter) {
+        TypeName[] bounds = typeParameter.getTypeBound().stream()
+                .map(bound -> typeName(scope, bound))
+                .toArray(TypeName[]::new);
+        return TypeVariableName.get(typeParameter.getNameAsString(), bounds);
+    }
+
+    private TypeName typeName(Scope scope, Type type) {
+        if (type.isVoidType()) {
+            return TypeName.VOID;
+        } else if (type instanceof PrimitiveType primitiveType) {
+            return switch (primitiveType.getType()) {
+                case BOOLEAN -> TypeName.BOOLEAN;
+                case BYTE -> TypeName.BYTE;
+                case CHAR -> TypeName.CHAR;
+                case DOUBLE -> TypeName.DOUBLE;
+                case FLOAT -> TypeName.FLOAT;
+                case INT -> TypeName.INT;
+                case LONG -> TypeName.LONG;
+                case SHORT -> TypeName.SHORT;
+            };
+        } else if (type instanceof ArrayType arrayType) {
+            return ArrayTypeName.of(typeName(scope, arrayType.getComponentType()));
+        } else if (type instanceof WildcardType wildcard) {
+            if (wildcard.getExtendedType().isPresent()) {
+                return WildcardTypeName.subtypeOf(typeName(scope, wildcard.getExtendedType().get()));
+            } else if (wildcard.getSuperType().isPresent()) {
+                return WildcardTypeName.supertypeOf(typeName(scope, wildcard.getSuperType().get()));
+            }
+            return WildcardTypeName.subtypeOf(Object.class);
+        } else if (type instanceof ClassOrInterfaceType classType) {
+            if (classType.getScope().isEmpty() && scope.isTypeVariable(classType.getNameAsString())) {
+                return TypeVariableName.get(classType.getNameAsString());
+            }
+            ClassName rawType = className(scope, classType);
+            if (classType.getTypeArguments().isPresent() && !classType.getTypeArguments().get().isEmpty()) {
+                TypeName[] typeArgs = classType.getTypeArguments().get().stream()
+                        .map(t -> typeName(scope, t))
+                        .toArray(TypeName[]::new);
+                return ParameterizedTypeName.get(rawType, typeArgs);
+            }
+            return rawType;
+        }
+        return ClassName.get("", type.asString());
+    }
+
+    private ClassName className(Scope scope, ClassOrInterfaceType classType) {
+        String name = classType.getNameAsString();
+        if (classType.getScope().isPresent()) {
+            ClassOrInterfaceType outer = classType.getScope().get();
+            // A lower-case scope is a package, an upper-case one an enclosing class
+            if (Character.isUpperCase(outer.getNameAsString().charAt(0))) {
+                return className(scope, outer).nestedClass(name);
+            }
+            return ClassName.get(outer.getNameWithScope(), name);
+        }
+
+        String qualifiedName = knownTypes.qualifiedName(name);
+        if (qualifiedName == null) {
+            qualifiedName = scope.imports.get(name);
+        }
+        return qualifiedName != null ? ClassName.bestGuess(qualifiedName) : ClassName.get("", name);
+    }
+
+    /**
+     * Source text of a node, as used in statements and initializers.
+     */
+    private String text(Node node) {
+        return node.toString();
+    }
+}
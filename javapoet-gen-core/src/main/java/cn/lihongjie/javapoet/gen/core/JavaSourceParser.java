@@ -2,6 +2,7 @@ package cn.lihongjie.javapoet.gen.core;
 
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,15 +16,102 @@ import java.util.Optional;
  * Parser for Java source files using JavaParser library.
  * Converts Java source code into an AST (Abstract Syntax Tree) that can be
  * further processed to generate JavaPoet code.
+ *
+ * <p>Instances are thread-safe: parsing is delegated to a pool of JavaParser
+ * instances, so a single JavaSourceParser can serve concurrent callers.</p>
+ *
+ * <p>With a {@link ParseCache}, parsing a source that was parsed before returns the
+ * cached unit. Cached units are shared between callers and must not be modified.
+ * JavaParser's printer also records state on the unit it prints, so callers that
+ * print a shared unit from several threads must synchronize on it.</p>
  */
 public class JavaSourceParser {
 
     private static final Logger logger = LoggerFactory.getLogger(JavaSourceParser.class);
 
-    private final JavaParser javaParser;
+    private final JavaParserPool parserPool;
+    private final ParseCache cache;
 
+    /**
+     * Create a parser backed by a pool sized to the number of available processors.
+     */
     public JavaSourceParser() {
-        this.javaParser = new JavaParser();
+        this(GeneratorConfig.DEFAULT_PARSER_POOL_SIZE);
+    }
+
+    /**
+     * Create a parser backed by a pool of at most {@code poolSize} JavaParser instances.
+     * The instance is safe to share between threads; up to {@code poolSize} sources
+     * are parsed concurrently and further callers wait for a free parser.
+     *
+     * @param poolSize the maximum number of JavaParser instances to keep
+     */
+    public JavaSourceParser(int poolSize) {
+        this(poolSize, new ParserConfiguration());
+    }
+
+    /**
+     * Create a parser for the given generator configuration, with a pool of
+     * {@link GeneratorConfig#getParserPoolSize()} JavaParser instances.
+     * When the configuration neither generates comments nor preserves Javadoc,
+     * the parsers use a lean profile that skips work only comments need; see
+     * {@link #parserConfiguration(GeneratorConfig)}. A {@link ParseCache} is used
+     * if {@link GeneratorConfig#getParseCacheSize()} is positive.
+     *
+     * @param config the generator configuration
+     */
+    public JavaSourceParser(GeneratorConfig config) {
+        this(config.getParserPoolSize(), parserConfiguration(config), config.getParseCacheSize() > 0
+                ? new ParseCache(config.getParseCacheSize(), config.getParseCacheMaxWeight())
+                : null);
+    }
+
+    /**
+     * Create a parser backed by a pool of at most {@code poolSize} JavaParser instances
+     * that share the given configuration. The configuration must not be changed afterwards.
+     *
+     * @param poolSize      the maximum number of JavaParser instances to keep
+     * @param configuration the JavaParser configuration
+     */
+    public JavaSourceParser(int poolSize, ParserConfiguration configuration) {
+        this(poolSize, configuration, null);
+    }
+
+    /**
+     * Create a parser backed by a pool of at most {@code poolSize} JavaParser instances
+     * that share the given configuration, and that looks sources up in the given cache
+     * before parsing them. The cache must only be shared between parsers with the same
+     * configuration.
+     *
+     * @param poolSize      the maximum number of JavaParser instances to keep
+     * @param configuration the JavaParser configuration
+     * @param cache         the cache of parsed units, or {@code null} for none
+     */
+    public JavaSourceParser(int poolSize, ParserConfiguration configuration, ParseCache cache) {
+        this.parserPool = new JavaParserPool(() -> new JavaParser(configuration), poolSize);
+        this.cache = cache;
+    }
+
+    /**
+     * Derive the JavaParser configuration for a generator configuration.
+     * Comments are only used for Javadoc and comments in the output; without either,
+     * comments are not attributed to nodes, so they also disappear from statement
+     * text. Tokens are then only stored when source text is sliced, because JavaParser
+     * derives node ranges from them; not storing them saves about a tenth of the
+     * allocation of a lean parse. The original line separator is still detected, since
+     * printed multi-line text would otherwise use the separator of the platform.
+     *
+     * @param config the generator configuration
+     * @return a new JavaParser configuration
+     */
+    static ParserConfiguration parserConfiguration(GeneratorConfig config) {
+        ParserConfiguration configuration = new ParserConfiguration();
+        if (config.isGenerateComments() || config.isPreserveJavadoc()) {
+            return configuration;
+        }
+        return configuration
+                .setAttributeComments(false)
+                .setStoreTokens(config.isSliceSourceText());
     }
 
     /**
@@ -53,9 +141,23 @@ public class JavaSourceParser {
      * @throws JavaPoetGenException if parsing fails
      */
     public CompilationUnit parse(String sourceCode, String sourceName) {
+        if (cache == null) {
+            return doParse(sourceCode, sourceName);
+        }
+        CompilationUnit cached = cache.get(sourceCode);
+        if (cached != null) {
+            logger.debug("Using cached parse of: {}", sourceName);
+            return cached;
+        }
+        CompilationUnit cu = doParse(sourceCode, sourceName);
+        cache.put(sourceCode, cu);
+        return cu;
+    }
+
+    private CompilationUnit doParse(String sourceCode, String sourceName) {
         logger.debug("Parsing Java source: {}", sourceName);
 
-        ParseResult<CompilationUnit> result = javaParser.parse(sourceCode);
+        ParseResult<CompilationUnit> result = parserPool.withParser(parser -> parser.parse(sourceCode));
 
         if (!result.isSuccessful()) {
             String errors = result.getProblems().stream()
@@ -84,4 +186,22 @@ public class JavaSourceParser {
     public CompilationUnit parse(String sourceCode) {
         return parse(sourceCode, "<inline>");
     }
+
+    /**
+     * Get the maximum number of JavaParser instances this parser keeps.
+     *
+     * @return the pool size
+     */
+    public int getPoolSize() {
+        return parserPool.getMaxSize();
+    }
+
+    /**
+     * Get the cache this parser looks sources up in.
+     *
+     * @return the parse cache, or empty if parses are not cached
+     */
+    public Optional<ParseCache> getParseCache() {
+        return Optional.ofNullable(cache);
+    }
 }
@@ -0,0 +1,166 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import cn.lihongjie.javapoet.gen.core.model.MemberFilter;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A rule matching fields, constructors and methods, used to include or exclude members
+ * from generation; see {@link GeneratorConfig#addInclude(String)}.
+ *
+ * <p>A rule is a comma-separated list of conditions that must all hold. Each condition
+ * is {@code key:value}, where the value may list alternatives separated by {@code |};
+ * a key may appear only once per rule:</p>
+ * <ul>
+ *     <li>{@code kind:field|constructor|method}</li>
+ *     <li>{@code visibility:public|protected|package|private}, including implicit
+ *     visibility, so members of an interface are public unless declared private</li>
+ *     <li>{@code name:get*}, a glob where {@code *} matches any characters and {@code ?}
+ *     one character; a constructor is named after its type</li>
+ *     <li>{@code annotation:Deprecated}, matching annotations by simple name, or by
+ *     qualified name when both the rule and the source use one</li>
+ * </ul>
+ * <p>For example, {@code kind:method,visibility:public|protected} matches the methods
+ * of the API of a type. Instances are immutable.</p>
+ */
+public final class MemberRule implements MemberFilter {
+
+    private final String text;
+    private final Set<Kind> kinds;
+    private final Set<Visibility> visibilities;
+    private final List<Pattern> names;
+    private final List<String> annotations;
+
+    private MemberRule(String text, Set<Kind> kinds, Set<Visibility> visibilities,
+                       List<Pattern> names, List<String> annotations) {
+        this.text = text;
+        this.kinds = kinds;
+        this.visibilities = visibilities;
+        this.names = names;
+        this.annotations = annotations;
+    }
+
+    /**
+     * Parse a rule.
+     *
+     * @param rule the rule, e.g. {@code kind:method,visibility:public}
+     * @return the parsed rule
+     * @throws IllegalArgumentException if the rule is malformed or repeats a key
+     */
+    public static MemberRule parse(String rule) {
+        if (rule == null || rule.isBlank()) {
+            throw new IllegalArgumentException("Member rule cannot be null or blank");
+        }
+        Set<Kind> kinds = null;
+        Set<Visibility> visibilities = null;
+        List<Pattern> names = null;
+        List<String> annotations = null;
+        Set<String> keys = new HashSet<>();
+        for (String condition : rule.split(",", -1)) {
+            int colon = condition.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Invalid member rule condition, expected key:value: "
+                        + condition.trim() + " in " + rule);
+            }
+            String key = condition.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            if (!keys.add(key)) {
+                // Alternatives belong in one condition; a repeated key would read as either an OR or an AND
+                throw new IllegalArgumentException("Duplicate member rule key '" + key
+                        + "', list alternatives with | instead: " + rule);
+            }
+            List<String> values = new ArrayList<>();
+            for (String value : condition.substring(colon + 1).split("\\|", -1)) {
+                if (value.isBlank()) {
+                    throw new IllegalArgumentException("Empty value in member rule condition: " + condition.trim());
+                }
+                values.add(value.trim());
+            }
+            switch (key) {
+                case "kind" -> kinds = parseValues(Kind.class, values, condition);
+                case "visibility" -> visibilities = parseValues(Visibility.class, values, condition);
+                case "name" -> names = values.stream().map(MemberRule::globToPattern).toList();
+                case "annotation" -> annotations = values;
+                default -> throw new IllegalArgumentException("Unknown member rule key '" + key
+                        + "', expected kind, visibility, name or annotation: " + rule);
+            }
+        }
+        return new MemberRule(rule.trim(), kinds, visibilities, names, annotations);
+    }
+
+    @Override
+    public boolean accept(Member member) {
+        if (kinds != null && !kinds.contains(member.kind())) {
+            return false;
+        }
+        if (visibilities != null && !visibilities.contains(member.visibility())) {
+            return false;
+        }
+        if (names != null && names.stream().noneMatch(name -> name.matcher(member.name()).matches())) {
+            return false;
+        }
+        return annotations == null || member.annotations().stream().anyMatch(this::matchesAnnotation);
+    }
+
+    private boolean matchesAnnotation(String annotation) {
+        for (String wanted : annotations) {
+            if (annotation.equals(wanted)) {
+                return true;
+            }
+            boolean bothQualified = annotation.indexOf('.') >= 0 && wanted.indexOf('.') >= 0;
+            if (!bothQualified && simpleName(annotation).equals(simpleName(wanted))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String simpleName(String name) {
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    private static <E extends Enum<E>> Set<E> parseValues(Class<E> type, List<String> values, String condition) {
+        Set<E> result = EnumSet.noneOf(type);
+        for (String value : values) {
+            try {
+                result.add(Enum.valueOf(type, value.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid value '" + value + "' in member rule condition: "
+                        + condition.trim());
+            }
+        }
+        return result;
+    }
+
+    private static Pattern globToPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int literalStart = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > literalStart) {
+                    regex.append(Pattern.quote(glob.substring(literalStart, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                literalStart = i + 1;
+            }
+        }
+        if (literalStart < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(literalStart)));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Get the rule as it was written, trimmed.
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+}
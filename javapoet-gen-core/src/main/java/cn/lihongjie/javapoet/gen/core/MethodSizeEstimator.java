@@ -0,0 +1,71 @@
+package cn.lihongjie.javapoet.gen.core;
+
+/**
+ * Rough estimate of the bytecode size that generated JavaPoet code compiles to.
+ * The JVM rejects methods with more than 65535 bytes of bytecode, so the generator
+ * uses this estimate to decide when the code for a type has to be split into
+ * several methods.
+ *
+ * <p>The estimate counts the constructs that dominate generated builder chains:
+ * method calls, arguments, string literals and statements. It is deliberately
+ * pessimistic, so that a budget well below the JVM limit is never exceeded in practice.</p>
+ */
+final class MethodSizeEstimator {
+
+    /**
+     * invoke instruction with its constant pool index, plus storing or discarding the result.
+     */
+    static final int CALL_SIZE = 5;
+
+    /**
+     * ldc_w or getstatic with its constant pool index, plus varargs array handling.
+     */
+    static final int ARGUMENT_SIZE = 7;
+
+    /**
+     * ldc_w of a string constant.
+     */
+    static final int STRING_LITERAL_SIZE = 3;
+
+    /**
+     * Local variable store at the end of a statement, wide once a method has many locals.
+     */
+    static final int STATEMENT_SIZE = 4;
+
+    private MethodSizeEstimator() {
+    }
+
+    /**
+     * Estimate the bytecode size of a piece of generated code.
+     *
+     * @param code generated statements or builder calls
+     * @return the estimated size in bytes
+     */
+    static int estimate(CharSequence code) {
+        int size = 0;
+        boolean inString = false;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> {
+                    inString = true;
+                    size += STRING_LITERAL_SIZE;
+                }
+                case '(' -> size += CALL_SIZE;
+                case ',' -> size += ARGUMENT_SIZE;
+                case ';' -> size += STATEMENT_SIZE;
+                default -> {
+                }
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,254 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+
+/**
+ * A cache of generated JavaPoet code, keyed by the source, the configuration
+ * fingerprint and the generator version; see {@link #key(String, String)}.
+ *
+ * <p>Entries are kept in memory, bounded by their number and by their weight, the
+ * total length of the cached output, with the least recently used evicted first.
+ * Optionally, entries are also stored in a directory, one file per key, so that
+ * separate processes on the same machine, such as several CI checkouts, can share
+ * generated output. Files are written to a temporary file and moved into place, so
+ * readers never see a partial entry. The directory is never pruned; delete it to
+ * reclaim space.</p>
+ *
+ * <p>Instances are thread-safe. Failing to read or write the directory is logged
+ * and treated as a miss; it never fails generation.</p>
+ */
+public final class OutputCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutputCache.class);
+
+    private final int maximumSize;
+    private final long maximumWeight;
+    private final Path directory;
+    private final LinkedHashMap<String, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Create an in-memory cache.
+     *
+     * @param maximumSize   the maximum number of cached outputs
+     * @param maximumWeight the maximum total length of cached outputs, in chars
+     */
+    public OutputCache(int maximumSize, long maximumWeight) {
+        this(maximumSize, maximumWeight, null);
+    }
+
+    /**
+     * Create a cache that is backed by the given directory.
+     *
+     * @param maximumSize   the maximum number of outputs cached in memory
+     * @param maximumWeight the maximum total length of outputs cached in memory, in chars
+     * @param directory     the directory to store outputs in, created if missing,
+     *                      or {@code null} to cache in memory only
+     * @throws JavaPoetGenException if the directory cannot be created
+     */
+    public OutputCache(int maximumSize, long maximumWeight, Path directory) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1: " + maximumSize);
+        }
+        if (maximumWeight < 1) {
+            throw new IllegalArgumentException("Cache weight must be at least 1: " + maximumWeight);
+        }
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new JavaPoetGenException("Failed to create cache directory: " + directory, e);
+            }
+        }
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+        this.directory = directory;
+    }
+
+    /**
+     * Compute the cache key of a source generated with a given configuration.
+     * The key also covers the generator version, since output may change between versions.
+     *
+     * @param sourceCode        the Java source code
+     * @param configFingerprint the {@link GeneratorConfig#fingerprint() fingerprint} of the configuration
+     * @return the key as a lower-case hex string
+     */
+    public static String key(String sourceCode, String configFingerprint) {
+        return ContentHashes.sha256Hex(configFingerprint + '\n' + GeneratorVersion.get() + '\n' + sourceCode);
+    }
+
+    /**
+     * Look up the output stored under a key, in memory first and then in the directory.
+     * Outputs found in the directory are kept in memory afterwards.
+     *
+     * @param key the cache key
+     * @return the cached output, or {@code null} if none is stored
+     */
+    public String get(String key) {
+        synchronized (this) {
+            String output = entries.get(key);
+            if (output != null) {
+                hitCount++;
+                return output;
+            }
+        }
+        String output = readFile(key);
+        synchronized (this) {
+            if (output == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+            cache(key, output);
+            return output;
+        }
+    }
+
+    /**
+     * Store an output under a key, in memory and in the directory.
+     *
+     * @param key    the cache key
+     * @param output the generated output
+     */
+    public void put(String key, String output) {
+        synchronized (this) {
+            cache(key, output);
+        }
+        writeFile(key, output);
+    }
+
+    /**
+     * Remove all entries from memory. The directory and the statistics are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Get the number of outputs cached in memory.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the total length of the outputs cached in memory.
+     *
+     * @return the weight, in chars
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * Get a snapshot of the hit, miss and eviction counts. Hits count lookups
+     * answered from memory or from the directory; evictions count entries removed
+     * from memory.
+     *
+     * @return the cache statistics
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(hitCount, missCount, evictionCount);
+    }
+
+    /**
+     * Get the directory outputs are stored in.
+     *
+     * @return the directory, or empty if outputs are only cached in memory
+     */
+    public Optional<Path> getDirectory() {
+        return Optional.ofNullable(directory);
+    }
+
+    /**
+     * Add an entry to memory and evict the least recently used ones over the limits.
+     * Outputs heavier than the whole memory tier are not kept in memory.
+     */
+    private void cache(String key, String output) {
+        if (output.length() > maximumWeight) {
+            return;
+        }
+        String previous = entries.put(key, output);
+        if (previous != null) {
+            weight -= previous.length();
+        }
+        weight += output.length();
+
+        // The new entry is the most recently used, so it is never evicted here
+        Iterator<String> eldest = entries.values().iterator();
+        while (entries.size() > maximumSize || weight > maximumWeight) {
+            weight -= eldest.next().length();
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Get the file of a key, fanned out over subdirectories named after the first
+     * two characters of the key to keep directories small.
+     */
+    private Path fileFor(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private String readFile(String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = fileFor(key);
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Failed to read cached output {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeFile(String key, String output) {
+        if (directory == null) {
+            return;
+        }
+        Path file = fileFor(key);
+        Path tempFile = null;
+        try {
+            Files.createDirectories(file.getParent());
+            tempFile = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.writeString(tempFile, output, StandardCharsets.UTF_8);
+            try {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write cached output {}: {}", file, e.getMessage());
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                    // Leave the temporary file behind
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A bounded, least-recently-used cache of parsed compilation units, keyed by the
+ * content of their source.
+ *
+ * <p>Sources are looked up by a 64-bit hash of their text and length, and a hit is
+ * confirmed by comparing the text, so a hash collision costs a parse but never
+ * returns the wrong unit. The cache is bounded both by its number of entries and by
+ * its weight, the total length of the cached sources; the least recently used
+ * entries are evicted when either limit is exceeded.</p>
+ *
+ * <p>Instances are thread-safe. Parsing happens outside the cache, so two threads
+ * that miss on the same source may both parse it; the later unit replaces the
+ * earlier one.</p>
+ */
+public final class ParseCache {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int maximumSize;
+    private final long maximumWeight;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Create a cache.
+     *
+     * @param maximumSize   the maximum number of cached sources
+     * @param maximumWeight the maximum total length of cached sources, in chars
+     */
+    public ParseCache(int maximumSize, long maximumWeight) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1: " + maximumSize);
+        }
+        if (maximumWeight < 1) {
+            throw new IllegalArgumentException("Cache weight must be at least 1: " + maximumWeight);
+        }
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * Look up the unit parsed from the given source. The source is hashed before
+     * the cache is locked, so concurrent lookups only contend on the map access.
+     *
+     * @param sourceCode the Java source code
+     * @return the cached unit, or {@code null} if the source is not cached
+     */
+    public CompilationUnit get(String sourceCode) {
+        Key key = Key.of(sourceCode);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null || !entry.sourceCode.equals(sourceCode)) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+            return entry.unit;
+        }
+    }
+
+    /**
+     * Cache the unit parsed from the given source. Sources heavier than the whole
+     * cache are not cached.
+     *
+     * @param sourceCode the Java source code
+     * @param unit       the unit parsed from it
+     */
+    public void put(String sourceCode, CompilationUnit unit) {
+        if (sourceCode.length() > maximumWeight) {
+            return;
+        }
+        Key key = Key.of(sourceCode);
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(sourceCode, unit));
+            if (previous != null) {
+                weight -= previous.sourceCode.length();
+            }
+            weight += sourceCode.length();
+
+            // The new entry is the most recently used, so it is never evicted here
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maximumSize || weight > maximumWeight) {
+                weight -= eldest.next().sourceCode.length();
+                eldest.remove();
+                evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * Remove all entries. The statistics are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Get the number of cached sources.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the total length of the cached sources.
+     *
+     * @return the weight, in chars
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * Get a snapshot of the hit, miss and eviction counts.
+     *
+     * @return the cache statistics
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(hitCount, missCount, evictionCount);
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Hash the source with 64-bit FNV-1a over its chars.
+     */
+    static long hash(String sourceCode) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < sourceCode.length(); i++) {
+            hash = (hash ^ sourceCode.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private record Key(long hash, int length) {
+
+        static Key of(String sourceCode) {
+            return new Key(ParseCache.hash(sourceCode), sourceCode.length());
+        }
+    }
+
+    private record Entry(String sourceCode, CompilationUnit unit) {
+    }
+}
@@ -0,0 +1,125 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable table of well-known types, keyed by simple name.
+ * Each entry holds the qualified name of the type and the precomputed JavaPoet
+ * expression that refers to it, so lookups during generation do not allocate.
+ *
+ * <p>Built-in JDK types are referenced through class literals ({@code String.class}),
+ * types registered through {@link GeneratorConfig} through {@code ClassName.get(...)},
+ * which does not require them to be on the classpath of the generated code.</p>
+ */
+final class TypeLookup {
+
+    /**
+     * Built-in types, by simple name.
+     */
+    static final Map<String, String> BUILT_IN_TYPES = Map.ofEntries(
+            Map.entry("String", "java.lang.String"),
+            Map.entry("Object", "java.lang.Object"),
+            Map.entry("Integer", "java.lang.Integer"),
+            Map.entry("Long", "java.lang.Long"),
+            Map.entry("Double", "java.lang.Double"),
+            Map.entry("Float", "java.lang.Float"),
+            Map.entry("Boolean", "java.lang.Boolean"),
+            Map.entry("Byte", "java.lang.Byte"),
+            Map.entry("Short", "java.lang.Short"),
+            Map.entry("Character", "java.lang.Character"),
+            Map.entry("List", "java.util.List"),
+            Map.entry("ArrayList", "java.util.ArrayList"),
+            Map.entry("Map", "java.util.Map"),
+            Map.entry("HashMap", "java.util.HashMap"),
+            Map.entry("Set", "java.util.Set"),
+            Map.entry("HashSet", "java.util.HashSet"),
+            Map.entry("Collection", "java.util.Collection"),
+            Map.entry("Optional", "java.util.Optional"),
+            Map.entry("Stream", "java.util.stream.Stream")
+    );
+
+    /**
+     * Built-in annotations, by simple name.
+     */
+    static final Map<String, String> BUILT_IN_ANNOTATIONS = Map.of(
+            "Override", "java.lang.Override",
+            "Deprecated", "java.lang.Deprecated",
+            "SuppressWarnings", "java.lang.SuppressWarnings",
+            "FunctionalInterface", "java.lang.FunctionalInterface",
+            "SafeVarargs", "java.lang.SafeVarargs"
+    );
+
+    private final Map<String, String> qualifiedNames;
+    private final Map<String, String> expressions;
+
+    private TypeLookup(Map<String, String> qualifiedNames, Map<String, String> expressions) {
+        this.qualifiedNames = Map.copyOf(qualifiedNames);
+        this.expressions = Map.copyOf(expressions);
+    }
+
+    /**
+     * Build a table from built-in entries and user-registered entries.
+     * Registered entries replace built-in entries with the same simple name.
+     *
+     * @param builtIn    built-in types, referenced through class literals
+     * @param registered registered types, referenced through {@code ClassName.get(...)}
+     */
+    static TypeLookup of(Map<String, String> builtIn, Map<String, String> registered) {
+        Map<String, String> qualifiedNames = new HashMap<>();
+        Map<String, String> expressions = new HashMap<>();
+        builtIn.forEach((simpleName, qualifiedName) -> {
+            qualifiedNames.put(simpleName, qualifiedName);
+            expressions.put(simpleName, classLiteral(qualifiedName));
+        });
+        registered.forEach((simpleName, qualifiedName) -> {
+            qualifiedNames.put(simpleName, qualifiedName);
+            expressions.put(simpleName, classNameExpression(qualifiedName));
+        });
+        return new TypeLookup(qualifiedNames, expressions);
+    }
+
+    /**
+     * Get the JavaPoet expression for a simple type name.
+     *
+     * @return the expression, or {@code null} if the type is not known
+     */
+    String expression(String simpleName) {
+        return expressions.get(simpleName);
+    }
+
+    /**
+     * Get the qualified name for a simple type name.
+     *
+     * @return the qualified name, or {@code null} if the type is not known
+     */
+    String qualifiedName(String simpleName) {
+        return qualifiedNames.get(simpleName);
+    }
+
+    private static String classLiteral(String qualifiedName) {
+        if (qualifiedName.startsWith("java.lang.") && qualifiedName.indexOf('.', "java.lang.".length()) < 0) {
+            return qualifiedName.substring("java.lang.".length()) + ".class";
+        }
+        return qualifiedName + ".class";
+    }
+
+    /**
+     * Build a {@code ClassName.get("pkg", "Outer", "Inner")} expression, treating the
+     * segments that start with an upper-case letter as class names.
+     */
+    private static String classNameExpression(String qualifiedName) {
+        String[] segments = qualifiedName.split("\\.");
+        int firstClass = 0;
+        while (firstClass < segments.length - 1 && !Character.isUpperCase(segments[firstClass].charAt(0))) {
+            firstClass++;
+        }
+        StringBuilder sb = new StringBuilder("ClassName.get(\"");
+        sb.append(String.join(".", Arrays.copyOfRange(segments, 0, firstClass))).append('"');
+        for (int i = firstClass; i < segments.length; i++) {
+            sb.append(", \"").append(segments[i]).append('"');
+        }
+        return sb.append(')').toString();
+    }
+}
@@ -0,0 +1,25 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+import java.util.List;
+
+/**
+ * An annotation. The single value of {@code @Name(value)} is a member named {@code value}.
+ *
+ * @param name    the name of the annotation as written in source
+ * @param members the member values, in source order
+ */
+public record AnnotationModel(String name, List<Member> members) {
+
+    public AnnotationModel {
+        members = List.copyOf(members);
+    }
+
+    /**
+     * A member value of an annotation.
+     *
+     * @param name  the member name
+     * @param value the member value
+     */
+    public record Member(String name, ExpressionModel value) {
+    }
+}
@@ -0,0 +1,16 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+import java.util.List;
+
+/**
+ * An enum constant.
+ *
+ * @param name      the name of the constant
+ * @param arguments the source text of the constructor arguments
+ */
+public record EnumConstantModel(String name, List<String> arguments) {
+
+    public EnumConstantModel {
+        arguments = List.copyOf(arguments);
+    }
+}
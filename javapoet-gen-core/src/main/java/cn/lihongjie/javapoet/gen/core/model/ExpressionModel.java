@@ -0,0 +1,41 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+/**
+ * An expression used as a field initializer or annotation value. Only the forms
+ * that generated code treats differently are told apart; everything else is kept
+ * as source text.
+ *
+ * @param kind the kind of expression
+ * @param text the source text; for a string literal, its value with escapes as written
+ *             in source; {@code null} for a class literal
+ * @param type the type of a class literal, {@code null} otherwise
+ */
+public record ExpressionModel(Kind kind, String text, TypeRef type) {
+
+    public enum Kind {
+        /** A string literal. */
+        STRING_LITERAL,
+        /** A numeric or boolean literal. */
+        LITERAL,
+        /** A class literal such as {@code String.class}. */
+        CLASS_LITERAL,
+        /** Any other expression. */
+        OTHER
+    }
+
+    public static ExpressionModel stringLiteral(String value) {
+        return new ExpressionModel(Kind.STRING_LITERAL, value, null);
+    }
+
+    public static ExpressionModel literal(String text) {
+        return new ExpressionModel(Kind.LITERAL, text, null);
+    }
+
+    public static ExpressionModel classLiteral(TypeRef type) {
+        return new ExpressionModel(Kind.CLASS_LITERAL, null, type);
+    }
+
+    public static ExpressionModel other(String text) {
+        return new ExpressionModel(Kind.OTHER, text, null);
+    }
+}
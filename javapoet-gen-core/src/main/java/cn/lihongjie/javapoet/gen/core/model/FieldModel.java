@@ -0,0 +1,29 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+import javax.lang.model.element.Modifier;
+import java.util.List;
+
+/**
+ * A field. A declaration of several variables yields one field per variable,
+ * all sharing the modifiers, annotations and Javadoc of the declaration.
+ *
+ * @param name        the name of the variable
+ * @param type        the type of the variable
+ * @param modifiers   the modifiers, in source order
+ * @param annotations the annotations of the declaration
+ * @param initializer the initializer, or {@code null} if there is none
+ * @param javadoc     the Javadoc content, or {@code null} if there is none
+ */
+public record FieldModel(
+        String name,
+        TypeRef type,
+        List<Modifier> modifiers,
+        List<AnnotationModel> annotations,
+        ExpressionModel initializer,
+        String javadoc) {
+
+    public FieldModel {
+        modifiers = List.copyOf(modifiers);
+        annotations = List.copyOf(annotations);
+    }
+}
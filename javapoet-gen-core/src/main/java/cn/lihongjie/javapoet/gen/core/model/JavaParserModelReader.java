@@ -0,0 +1,453 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.*;
+import com.github.javaparser.ast.comments.JavadocComment;
+import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.nodeTypes.NodeWithJavadoc;
+import com.github.javaparser.ast.stmt.*;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.PrimitiveType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.TypeParameter;
+
+import javax.lang.model.element.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Builds a {@link SourceFile} from a JavaParser {@link CompilationUnit}.
+ * The model holds no references into the AST, so the compilation unit can be
+ * garbage collected once {@link #read} returns.
+ *
+ * <p>Instances are stateless and can be shared between threads.</p>
+ */
+public class JavaParserModelReader implements SourceModelReader<CompilationUnit> {
+
+    /**
+     * Build the model of a compilation unit, with expression and statement text
+     * produced by the JavaParser printer.
+     * Top-level declarations other than classes, interfaces and enums are skipped.
+     *
+     * @param cu the parsed CompilationUnit
+     * @return the model of the compilation unit
+     */
+    @Override
+    public SourceFile read(CompilationUnit cu) {
+        return read(cu, MemberFilter.ALL);
+    }
+
+    /**
+     * Build the model of a compilation unit with only the members a filter accepts,
+     * with expression and statement text produced by the JavaParser printer.
+     *
+     * @param cu     the parsed CompilationUnit
+     * @param filter decides which fields, constructors and methods are read
+     * @return the model of the compilation unit
+     */
+    @Override
+    public SourceFile read(CompilationUnit cu, MemberFilter filter) {
+        return new ModelBuilder(null, filter, null).readSourceFile(cu);
+    }
+
+    /**
+     * Build the model of a compilation unit, with expression and statement text cut
+     * out of the source it was parsed from. This skips the printer for all text that
+     * sits on one line and holds no comment, keeping the source formatting of that
+     * text. Other text is printed as by {@link #read(CompilationUnit)}.
+     *
+     * @param cu     the parsed CompilationUnit
+     * @param source the exact source {@code cu} was parsed from
+     * @return the model of the compilation unit
+     */
+    public SourceFile read(CompilationUnit cu, String source) {
+        return read(cu, source, MemberFilter.ALL);
+    }
+
+    /**
+     * Build the model of a compilation unit with only the members a filter accepts,
+     * with expression and statement text cut out of the source as by {@link #read(CompilationUnit, String)}.
+     *
+     * @param cu     the parsed CompilationUnit
+     * @param source the exact source {@code cu} was parsed from
+     * @param filter decides which fields, constructors and methods are read
+     * @return the model of the compilation unit
+     */
+    public SourceFile read(CompilationUnit cu, String source, MemberFilter filter) {
+        return new ModelBuilder(new SourceText(source), filter, null).readSourceFile(cu);
+    }
+
+    /**
+     * Build the model of just the member or type a node belongs to, such as the node
+     * under the caret. The model holds the innermost class, interface or enum that
+     * declares the node, top-level or nested, with only the field, constructor or
+     * method containing the node; a node in the type but outside its members, such as
+     * its name, selects all members. A node outside any type selects the whole file.
+     *
+     * <p>Only the selected declarations are read, so the time taken depends on the
+     * size of the selection rather than the size of the file.</p>
+     *
+     * @param target a node of a parsed CompilationUnit
+     * @return the model of the selection
+     * @throws IllegalArgumentException if {@code target} is not part of a CompilationUnit
+     */
+    public SourceFile readScope(Node target) {
+        return readScope(target, MemberFilter.ALL);
+    }
+
+    /**
+     * Build the model of just the member or type a node belongs to, like
+     * {@link #readScope(Node)}, leaving out the members a filter rejects. A member
+     * containing the node is read even if the filter rejects it, since it was
+     * selected explicitly.
+     *
+     * @param target a node of a parsed CompilationUnit
+     * @param filter decides which fields, constructors and methods are read when a whole type or file is selected
+     * @return the model of the selection
+     * @throws IllegalArgumentException if {@code target} is not part of a CompilationUnit
+     */
+    public SourceFile readScope(Node target, MemberFilter filter) {
+        CompilationUnit cu = target.findCompilationUnit()
+                .orElseThrow(() -> new IllegalArgumentException("Node is not part of a CompilationUnit: " + target));
+
+        Node member = null;
+        for (Node node = target; node != null; node = node.getParentNode().orElse(null)) {
+            if (node instanceof FieldDeclaration || node instanceof CallableDeclaration<?>) {
+                // Members of local and anonymous classes are replaced by the member enclosing them
+                member = node;
+            } else if (isModelledType(node)) {
+                TypeDeclaration<?> type = (TypeDeclaration<?>) node;
+                Node selected = member != null && member.getParentNode().orElse(null) == type ? member : null;
+                ModelBuilder builder = new ModelBuilder(null, filter, selected);
+                return new SourceFile(builder.readPackageName(cu), List.of(builder.readType(type)));
+            }
+        }
+        return read(cu, filter);
+    }
+
+    /**
+     * Whether a node is a class, interface or enum declared at the top level or as a member
+     * of another type; local and anonymous classes, records and annotations are not modelled.
+     */
+    private static boolean isModelledType(Node node) {
+        if (!(node instanceof ClassOrInterfaceDeclaration) && !(node instanceof EnumDeclaration)) {
+            return false;
+        }
+        Node parent = node.getParentNode().orElse(null);
+        return parent instanceof CompilationUnit || parent instanceof TypeDeclaration<?>;
+    }
+
+    /**
+     * Builds the model of one compilation unit.
+     */
+    private static final class ModelBuilder {
+
+        private final SourceText sourceText;
+        private final MemberFilter filter;
+        private final Node selected;
+
+        /**
+         * @param sourceText the source to slice text from, or {@code null} to print it
+         * @param filter     decides which members are read
+         * @param selected   the only member to read whatever the filter says, or {@code null} to read all accepted members
+         */
+        ModelBuilder(SourceText sourceText, MemberFilter filter, Node selected) {
+            this.sourceText = sourceText;
+            this.filter = filter;
+            this.selected = selected;
+        }
+
+        SourceFile readSourceFile(CompilationUnit cu) {
+            List<TypeModel> types = new ArrayList<>();
+            for (TypeDeclaration<?> type : cu.getTypes()) {
+                if (type instanceof ClassOrInterfaceDeclaration || type instanceof EnumDeclaration) {
+                    types.add(readType(type));
+                }
+            }
+            return new SourceFile(readPackageName(cu), types);
+        }
+
+        String readPackageName(CompilationUnit cu) {
+            return cu.getPackageDeclaration()
+                    .map(pd -> pd.getNameAsString())
+                    .orElse("");
+        }
+
+        /**
+         * Read a class, interface or enum declaration.
+         */
+        TypeModel readType(TypeDeclaration<?> type) {
+            if (type instanceof EnumDeclaration enumDecl) {
+                List<EnumConstantModel> constants = new ArrayList<>(enumDecl.getEntries().size());
+                for (EnumConstantDeclaration constant : enumDecl.getEntries()) {
+                    constants.add(new EnumConstantModel(constant.getNameAsString(),
+                            constant.getArguments().stream().map(this::text).toList()));
+                }
+                return readTypeDeclaration(TypeModel.Kind.ENUM, enumDecl, new NodeList<>(),
+                        enumDecl.getImplementedTypes(), constants);
+            }
+            ClassOrInterfaceDeclaration classDecl = (ClassOrInterfaceDeclaration) type;
+            TypeModel.Kind kind = classDecl.isInterface() ? TypeModel.Kind.INTERFACE : TypeModel.Kind.CLASS;
+            return readTypeDeclaration(kind, classDecl, classDecl.getExtendedTypes(),
+                    classDecl.getImplementedTypes(), List.of());
+        }
+
+        /**
+         * Whether a member is read: the selected member, if any, or else the members accepted by the filter.
+         */
+        private boolean includes(BodyDeclaration<?> declaration, MemberFilter.Kind kind, String name,
+                                 List<Modifier> modifiers, TypeModel.Kind declaringKind) {
+            if (selected != null) {
+                return declaration == selected;
+            }
+            if (filter == MemberFilter.ALL) {
+                return true;
+            }
+            List<String> annotations = declaration.getAnnotations().stream()
+                    .map(AnnotationExpr::getNameAsString)
+                    .toList();
+            return filter.accept(new MemberFilter.Member(kind, name, modifiers, annotations, declaringKind));
+        }
+
+        private TypeModel readTypeDeclaration(TypeModel.Kind kind, TypeDeclaration<?> type,
+                                              NodeList<ClassOrInterfaceType> extendedTypes,
+                                              NodeList<ClassOrInterfaceType> implementedTypes,
+                                              List<EnumConstantModel> constants) {
+            List<FieldModel> fields = new ArrayList<>();
+            for (FieldDeclaration field : type.getFields()) {
+                List<Modifier> modifiers = readModifiers(field.getModifiers());
+                List<AnnotationModel> annotations = null;
+                String javadoc = null;
+                for (VariableDeclarator var : field.getVariables()) {
+                    if (!includes(field, MemberFilter.Kind.FIELD, var.getNameAsString(), modifiers, kind)) {
+                        continue;
+                    }
+                    if (annotations == null) {
+                        annotations = readAnnotations(field.getAnnotations());
+                        javadoc = readJavadoc(field);
+                    }
+                    fields.add(new FieldModel(var.getNameAsString(), readType(var.getType()), modifiers, annotations,
+                            var.getInitializer().map(this::readInitializer).orElse(null), javadoc));
+                }
+            }
+
+            List<MethodModel> constructors = new ArrayList<>();
+            for (ConstructorDeclaration constructor : type.getConstructors()) {
+                List<Modifier> modifiers = readModifiers(constructor.getModifiers());
+                if (!includes(constructor, MemberFilter.Kind.CONSTRUCTOR, constructor.getNameAsString(),
+                        modifiers, kind)) {
+                    continue;
+                }
+                constructors.add(new MethodModel(
+                        constructor.getNameAsString(),
+                        modifiers,
+                        null,
+                        readParameters(constructor.getParameters()),
+                        readTypeParameters(constructor.getTypeParameters()),
+                        readTypes(constructor.getThrownExceptions()),
+                        readAnnotations(constructor.getAnnotations()),
+                        readBlock(constructor.getBody()),
+                        readJavadoc(constructor)));
+            }
+
+            List<MethodModel> methods = new ArrayList<>();
+            for (MethodDeclaration method : type.getMethods()) {
+                List<Modifier> modifiers = readModifiers(method.getModifiers());
+                if (!includes(method, MemberFilter.Kind.METHOD, method.getNameAsString(), modifiers, kind)) {
+                    continue;
+                }
+                methods.add(new MethodModel(
+                        method.getNameAsString(),
+                        modifiers,
+                        readType(method.getType()),
+                        readParameters(method.getParameters()),
+                        readTypeParameters(method.getTypeParameters()),
+                        readTypes(method.getThrownExceptions()),
+                        readAnnotations(method.getAnnotations()),
+                        method.getBody().map(this::readBlock).orElse(null),
+                        readJavadoc(method)));
+            }
+
+            return new TypeModel(
+                    kind,
+                    type.getNameAsString(),
+                    readModifiers(type.getModifiers()),
+                    readTypes(extendedTypes),
+                    readTypes(implementedTypes),
+                    readAnnotations(type.getAnnotations()),
+                    readJavadoc(type),
+                    fields,
+                    constructors,
+                    methods,
+                    constants);
+        }
+
+        private List<Modifier> readModifiers(NodeList<com.github.javaparser.ast.Modifier> modifiers) {
+            if (modifiers.isEmpty()) {
+                return List.of();
+            }
+            return modifiers.stream()
+                    .map(modifier -> Modifier.valueOf(modifier.getKeyword().name()))
+                    .toList();
+        }
+
+        private String readJavadoc(NodeWithJavadoc<?> node) {
+            return node.getJavadocComment().map(JavadocComment::getContent).orElse(null);
+        }
+
+        private List<ParameterModel> readParameters(NodeList<Parameter> parameters) {
+            List<ParameterModel> models = new ArrayList<>(parameters.size());
+            for (Parameter param : parameters) {
+                models.add(new ParameterModel(param.getNameAsString(), readType(param.getType()), param.isFinal(),
+                        readAnnotations(param.getAnnotations())));
+            }
+            return models;
+        }
+
+        private List<String> readTypeParameters(NodeList<TypeParameter> typeParameters) {
+            return typeParameters.stream().map(tp -> tp.getNameAsString()).toList();
+        }
+
+        private List<TypeRef> readTypes(NodeList<? extends Type> types) {
+            if (types.isEmpty()) {
+                return List.of();
+            }
+            return types.stream().map(this::readType).toList();
+        }
+
+        private TypeRef readType(Type type) {
+            if (type.isVoidType()) {
+                return TypeRef.voidType();
+            } else if (type instanceof PrimitiveType primitiveType) {
+                return TypeRef.primitive(primitiveType.asString());
+            } else if (type instanceof ClassOrInterfaceType classType) {
+                List<TypeRef> typeArguments = classType.getTypeArguments()
+                        .map(this::readTypes)
+                        .orElse(List.of());
+                return TypeRef.classType(classType.getNameAsString(), classType.asString(), typeArguments);
+            } else if (type.isArrayType()) {
+                return TypeRef.arrayOf(readType(type.asArrayType().getComponentType()), type.asString());
+            }
+            return TypeRef.other(type.asString());
+        }
+
+        private List<AnnotationModel> readAnnotations(NodeList<AnnotationExpr> annotations) {
+            if (annotations.isEmpty()) {
+                return List.of();
+            }
+            List<AnnotationModel> models = new ArrayList<>(annotations.size());
+            for (AnnotationExpr annotation : annotations) {
+                List<AnnotationModel.Member> members = new ArrayList<>();
+                if (annotation instanceof SingleMemberAnnotationExpr single) {
+                    members.add(new AnnotationModel.Member("value", readAnnotationValue(single.getMemberValue())));
+                } else if (annotation instanceof NormalAnnotationExpr normal) {
+                    for (MemberValuePair pair : normal.getPairs()) {
+                        members.add(new AnnotationModel.Member(pair.getNameAsString(),
+                                readAnnotationValue(pair.getValue())));
+                    }
+                }
+                models.add(new AnnotationModel(annotation.getNameAsString(), members));
+            }
+            return models;
+        }
+
+        private ExpressionModel readAnnotationValue(Expression expr) {
+            if (expr instanceof StringLiteralExpr strLit) {
+                return ExpressionModel.stringLiteral(strLit.getValue());
+            } else if (expr instanceof ClassExpr classExpr) {
+                return ExpressionModel.classLiteral(readType(classExpr.getType()));
+            } else if (expr instanceof ArrayInitializerExpr arrayInit) {
+                return ExpressionModel.other("{" + arrayInit.getValues().stream()
+                        .map(this::text)
+                        .collect(Collectors.joining(", ")) + "}");
+            }
+            return ExpressionModel.other(text(expr));
+        }
+
+        private ExpressionModel readInitializer(Expression expr) {
+            if (expr instanceof StringLiteralExpr strLit) {
+                return ExpressionModel.stringLiteral(strLit.getValue());
+            } else if (expr instanceof IntegerLiteralExpr || expr instanceof LongLiteralExpr ||
+                       expr instanceof DoubleLiteralExpr || expr instanceof BooleanLiteralExpr) {
+                return ExpressionModel.literal(text(expr));
+            } else if (expr instanceof ClassExpr classExpr) {
+                return ExpressionModel.classLiteral(readType(classExpr.getType()));
+            } else if (expr instanceof ObjectCreationExpr objCreate) {
+                // Anonymous class bodies are not kept
+                return ExpressionModel.other("new " + objCreate.getType().asString() +
+                        "(" + objCreate.getArguments().stream()
+                        .map(this::text)
+                        .collect(Collectors.joining(", ")) + ")");
+            }
+            return ExpressionModel.other(text(expr));
+        }
+
+        private StatementModel.Block readBlock(BlockStmt block) {
+            List<StatementModel> statements = new ArrayList<>(block.getStatements().size());
+            for (Statement stmt : block.getStatements()) {
+                statements.add(readStatement(stmt));
+            }
+            return new StatementModel.Block(statements);
+        }
+
+        private StatementModel readStatement(Statement stmt) {
+            if (stmt instanceof ReturnStmt returnStmt) {
+                return new StatementModel.Return(returnStmt.getExpression().map(this::text).orElse(null));
+            } else if (stmt instanceof ExpressionStmt exprStmt) {
+                return new StatementModel.ExpressionStatement(text(exprStmt.getExpression()));
+            } else if (stmt instanceof IfStmt ifStmt) {
+                return new StatementModel.If(text(ifStmt.getCondition()), readStatement(ifStmt.getThenStmt()),
+                        ifStmt.getElseStmt().map(this::readStatement).orElse(null));
+            } else if (stmt instanceof ForStmt forStmt) {
+                return new StatementModel.For(
+                        forStmt.getInitialization().stream()
+                                .map(this::text)
+                                .collect(Collectors.joining(", ")),
+                        forStmt.getCompare().map(this::text).orElse(""),
+                        forStmt.getUpdate().stream()
+                                .map(this::text)
+                                .collect(Collectors.joining(", ")),
+                        readStatement(forStmt.getBody()));
+            } else if (stmt instanceof ForEachStmt forEachStmt) {
+                return new StatementModel.ForEach(
+                        readType(forEachStmt.getVariable().getCommonType()),
+                        forEachStmt.getVariable().getVariables().get(0).getNameAsString(),
+                        text(forEachStmt.getIterable()),
+                        readStatement(forEachStmt.getBody()));
+            } else if (stmt instanceof WhileStmt whileStmt) {
+                return new StatementModel.While(text(whileStmt.getCondition()), readStatement(whileStmt.getBody()));
+            } else if (stmt instanceof TryStmt tryStmt) {
+                List<StatementModel.CatchClause> catchClauses = new ArrayList<>(tryStmt.getCatchClauses().size());
+                for (CatchClause catchClause : tryStmt.getCatchClauses()) {
+                    catchClauses.add(new StatementModel.CatchClause(
+                            readType(catchClause.getParameter().getType()),
+                            catchClause.getParameter().getNameAsString(),
+                            readBlock(catchClause.getBody())));
+                }
+                return new StatementModel.Try(readBlock(tryStmt.getTryBlock()), catchClauses,
+                        tryStmt.getFinallyBlock().map(this::readBlock).orElse(null));
+            } else if (stmt instanceof ThrowStmt throwStmt) {
+                return new StatementModel.Throw(text(throwStmt.getExpression()));
+            } else if (stmt instanceof BlockStmt blockStmt) {
+                return readBlock(blockStmt);
+            }
+            return new StatementModel.Other(text(stmt).trim());
+        }
+
+        /**
+         * Get the text of an expression or statement, sliced from the source if possible.
+         */
+        private String text(Node node) {
+            if (sourceText != null) {
+                String slice = sourceText.slice(node);
+                if (slice != null) {
+                    return slice;
+                }
+            }
+            return node.toString();
+        }
+    }
+}
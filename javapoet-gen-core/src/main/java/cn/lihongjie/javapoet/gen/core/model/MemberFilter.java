@@ -0,0 +1,96 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+import javax.lang.model.element.Modifier;
+import java.util.List;
+
+/**
+ * Decides which fields, constructors and methods of a type are read into the model,
+ * and so which ones code is generated for.
+ *
+ * <p>Model readers ask the filter with only the declaration of a member, before its
+ * initializer or body is read, so excluded members cost next to nothing.</p>
+ */
+@FunctionalInterface
+public interface MemberFilter {
+
+    /**
+     * A filter that accepts every member.
+     */
+    MemberFilter ALL = member -> true;
+
+    /**
+     * Whether a member is kept.
+     *
+     * @param member the declaration of the member
+     * @return {@code true} to read the member into the model
+     */
+    boolean accept(Member member);
+
+    /**
+     * Get a filter that accepts the members accepted by both this filter and {@code other}.
+     *
+     * @param other the other filter
+     * @return the combined filter
+     */
+    default MemberFilter and(MemberFilter other) {
+        if (this == ALL) {
+            return other;
+        }
+        if (other == ALL) {
+            return this;
+        }
+        return member -> accept(member) && other.accept(member);
+    }
+
+    enum Kind {
+        FIELD,
+        CONSTRUCTOR,
+        METHOD
+    }
+
+    enum Visibility {
+        PUBLIC,
+        PROTECTED,
+        PACKAGE,
+        PRIVATE
+    }
+
+    /**
+     * The declaration of a member, as seen by a filter.
+     *
+     * @param kind          the kind of member
+     * @param name          the name of the field variable or method, or of the declaring type for a constructor
+     * @param modifiers     the modifiers, in source order
+     * @param annotations   the names of the annotations, simple or qualified as written
+     * @param declaringKind the kind of type declaring the member
+     */
+    record Member(Kind kind, String name, List<Modifier> modifiers, List<String> annotations,
+                  TypeModel.Kind declaringKind) {
+
+        public Member {
+            modifiers = List.copyOf(modifiers);
+            annotations = List.copyOf(annotations);
+        }
+
+        /**
+         * Get the visibility of the member, including implicit visibility: interface
+         * members are public and enum constructors private unless declared otherwise.
+         *
+         * @return the visibility
+         */
+        public Visibility visibility() {
+            if (modifiers.contains(Modifier.PUBLIC)) {
+                return Visibility.PUBLIC;
+            } else if (modifiers.contains(Modifier.PROTECTED)) {
+                return Visibility.PROTECTED;
+            } else if (modifiers.contains(Modifier.PRIVATE)) {
+                return Visibility.PRIVATE;
+            } else if (declaringKind == TypeModel.Kind.INTERFACE) {
+                return Visibility.PUBLIC;
+            } else if (declaringKind == TypeModel.Kind.ENUM && kind == Kind.CONSTRUCTOR) {
+                return Visibility.PRIVATE;
+            }
+            return Visibility.PACKAGE;
+        }
+    }
+}
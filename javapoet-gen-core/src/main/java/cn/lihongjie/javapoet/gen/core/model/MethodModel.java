@@ -0,0 +1,41 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+import javax.lang.model.element.Modifier;
+import java.util.List;
+
+/**
+ * A method or constructor.
+ *
+ * @param name           the name of the method, or of the declaring type for a constructor
+ * @param modifiers      the modifiers, in source order
+ * @param returnType     the return type, or {@code null} for a constructor
+ * @param parameters     the parameters
+ * @param typeParameters the names of the type parameters
+ * @param thrownTypes    the types in the {@code throws} clause
+ * @param annotations    the annotations of the method
+ * @param body           the body, or {@code null} for an abstract or native method
+ * @param javadoc        the Javadoc content, or {@code null} if there is none
+ */
+public record MethodModel(
+        String name,
+        List<Modifier> modifiers,
+        TypeRef returnType,
+        List<ParameterModel> parameters,
+        List<String> typeParameters,
+        List<TypeRef> thrownTypes,
+        List<AnnotationModel> annotations,
+        StatementModel.Block body,
+        String javadoc) {
+
+    public MethodModel {
+        modifiers = List.copyOf(modifiers);
+        parameters = List.copyOf(parameters);
+        typeParameters = List.copyOf(typeParameters);
+        thrownTypes = List.copyOf(thrownTypes);
+        annotations = List.copyOf(annotations);
+    }
+
+    public boolean isConstructor() {
+        return returnType == null;
+    }
+}
@@ -0,0 +1,18 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+import java.util.List;
+
+/**
+ * A method or constructor parameter.
+ *
+ * @param name        the name of the parameter
+ * @param type        the type of the parameter, without the varargs ellipsis
+ * @param isFinal     whether the parameter is declared {@code final}
+ * @param annotations the annotations of the parameter
+ */
+public record ParameterModel(String name, TypeRef type, boolean isFinal, List<AnnotationModel> annotations) {
+
+    public ParameterModel {
+        annotations = List.copyOf(annotations);
+    }
+}
@@ -0,0 +1,22 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+import java.util.List;
+
+/**
+ * Immutable model of a Java source file, holding only what code generation needs.
+ *
+ * <p>A JavaParser AST takes many times the memory of the source it was parsed from.
+ * The model keeps types, members, modifiers, annotations and statements, with
+ * expressions reduced to their source text, so the AST can be dropped as soon as
+ * the model is built. {@link SourceFileCodec} writes it in a compact binary form
+ * for caching.</p>
+ *
+ * @param packageName the package of the file, empty for the default package
+ * @param types       the top-level classes, interfaces and enums, in source order
+ */
+public record SourceFile(String packageName, List<TypeModel> types) {
+
+    public SourceFile {
+        types = List.copyOf(types);
+    }
+}
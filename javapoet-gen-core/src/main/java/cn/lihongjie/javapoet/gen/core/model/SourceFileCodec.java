@@ -0,0 +1,556 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+import cn.lihongjie.javapoet.gen.core.JavaPoetGenException;
+
+import javax.lang.model.element.Modifier;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of a {@link SourceFile}, for caching models between runs.
+ *
+ * <p>The encoding starts with a magic number and a format version, followed by a
+ * table of the distinct strings of the model as length-prefixed UTF-8, and then
+ * the model itself. Names, types and expression text repeat a lot in source code;
+ * the model refers to each string by its index in the table. Counts, indexes and
+ * lengths are unsigned varints, enums are written as their ordinal.</p>
+ */
+public final class SourceFileCodec {
+
+    private static final int MAGIC = 0x4A504952; // "JPIR"
+    private static final int VERSION = 1;
+
+    private static final Modifier[] MODIFIERS = Modifier.values();
+    private static final TypeModel.Kind[] TYPE_KINDS = TypeModel.Kind.values();
+    private static final TypeRef.Kind[] TYPE_REF_KINDS = TypeRef.Kind.values();
+    private static final ExpressionModel.Kind[] EXPRESSION_KINDS = ExpressionModel.Kind.values();
+
+    private static final int NULL = 0;
+    private static final int RETURN = 1;
+    private static final int EXPRESSION = 2;
+    private static final int IF = 3;
+    private static final int FOR = 4;
+    private static final int FOR_EACH = 5;
+    private static final int WHILE = 6;
+    private static final int TRY = 7;
+    private static final int THROW = 8;
+    private static final int BLOCK = 9;
+    private static final int OTHER = 10;
+
+    private SourceFileCodec() {
+    }
+
+    /**
+     * Encode a model.
+     *
+     * @param sourceFile the model to encode
+     * @return the encoded model
+     */
+    public static byte[] encode(SourceFile sourceFile) {
+        Encoder body = new Encoder();
+        body.writeSourceFile(sourceFile);
+
+        Output header = new Output();
+        header.writeInt(MAGIC);
+        header.writeVarint(VERSION);
+        header.writeVarint(body.strings.size());
+        for (String s : body.strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            header.writeVarint(bytes.length);
+            header.write(bytes, 0, bytes.length);
+        }
+        header.write(body.out.buffer(), 0, body.out.size());
+        return header.toByteArray();
+    }
+
+    /**
+     * Decode a model written by {@link #encode}.
+     *
+     * @param data the encoded model
+     * @return the decoded model
+     * @throws JavaPoetGenException if the data is not an encoded model of this format version
+     */
+    public static SourceFile decode(byte[] data) {
+        try {
+            Decoder in = new Decoder(data);
+            if (in.readInt() != MAGIC) {
+                throw new JavaPoetGenException("Not an encoded source model");
+            }
+            int version = in.readVarint();
+            if (version != VERSION) {
+                throw new JavaPoetGenException("Unsupported source model format version: " + version);
+            }
+            in.readStringTable();
+            SourceFile sourceFile = in.readSourceFile();
+            if (in.position != data.length) {
+                throw new JavaPoetGenException("Trailing data after encoded source model");
+            }
+            return sourceFile;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException | NullPointerException e) {
+            throw new JavaPoetGenException("Corrupt encoded source model", e);
+        }
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        Output() {
+            super(256);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+    }
+
+    private static final class Encoder {
+
+        private final Output out = new Output();
+        private final Map<String, Integer> stringIndexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        void writeSourceFile(SourceFile sourceFile) {
+            writeString(sourceFile.packageName());
+            out.writeVarint(sourceFile.types().size());
+            for (TypeModel type : sourceFile.types()) {
+                writeType(type);
+            }
+        }
+
+        /**
+         * Write a string as its index in the string table, shifted by one so that 0 is {@code null}.
+         */
+        private void writeString(String s) {
+            if (s == null) {
+                out.writeVarint(0);
+                return;
+            }
+            Integer index = stringIndexes.get(s);
+            if (index == null) {
+                index = strings.size();
+                stringIndexes.put(s, index);
+                strings.add(s);
+            }
+            out.writeVarint(index + 1);
+        }
+
+        private void writeStrings(List<String> values) {
+            out.writeVarint(values.size());
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        private void writeBoolean(boolean value) {
+            out.write(value ? 1 : 0);
+        }
+
+        private void writeModifiers(List<Modifier> modifiers) {
+            out.writeVarint(modifiers.size());
+            for (Modifier modifier : modifiers) {
+                out.writeVarint(modifier.ordinal());
+            }
+        }
+
+        private void writeType(TypeModel type) {
+            out.writeVarint(type.kind().ordinal());
+            writeString(type.name());
+            writeModifiers(type.modifiers());
+            writeTypeRefs(type.extendedTypes());
+            writeTypeRefs(type.implementedTypes());
+            writeAnnotations(type.annotations());
+            writeString(type.javadoc());
+            out.writeVarint(type.fields().size());
+            for (FieldModel field : type.fields()) {
+                writeString(field.name());
+                writeTypeRef(field.type());
+                writeModifiers(field.modifiers());
+                writeAnnotations(field.annotations());
+                writeExpression(field.initializer());
+                writeString(field.javadoc());
+            }
+            writeMethods(type.constructors());
+            writeMethods(type.methods());
+            out.writeVarint(type.enumConstants().size());
+            for (EnumConstantModel constant : type.enumConstants()) {
+                writeString(constant.name());
+                writeStrings(constant.arguments());
+            }
+        }
+
+        private void writeMethods(List<MethodModel> methods) {
+            out.writeVarint(methods.size());
+            for (MethodModel method : methods) {
+                writeString(method.name());
+                writeModifiers(method.modifiers());
+                writeTypeRef(method.returnType());
+                out.writeVarint(method.parameters().size());
+                for (ParameterModel param : method.parameters()) {
+                    writeString(param.name());
+                    writeTypeRef(param.type());
+                    writeBoolean(param.isFinal());
+                    writeAnnotations(param.annotations());
+                }
+                writeStrings(method.typeParameters());
+                writeTypeRefs(method.thrownTypes());
+                writeAnnotations(method.annotations());
+                writeStatement(method.body());
+                writeString(method.javadoc());
+            }
+        }
+
+        private void writeTypeRefs(List<TypeRef> types) {
+            out.writeVarint(types.size());
+            for (TypeRef type : types) {
+                writeTypeRef(type);
+            }
+        }
+
+        /**
+         * Write a type reference as its kind shifted by one, so that 0 is {@code null}.
+         */
+        private void writeTypeRef(TypeRef type) {
+            if (type == null) {
+                out.writeVarint(0);
+                return;
+            }
+            out.writeVarint(type.kind().ordinal() + 1);
+            switch (type.kind()) {
+                case VOID -> {
+                }
+                case PRIMITIVE, OTHER -> writeString(type.text());
+                case CLASS -> {
+                    writeString(type.name());
+                    writeString(type.text());
+                    writeTypeRefs(type.arguments());
+                }
+                case ARRAY -> {
+                    writeString(type.text());
+                    writeTypeRef(type.componentType());
+                }
+            }
+        }
+
+        private void writeAnnotations(List<AnnotationModel> annotations) {
+            out.writeVarint(annotations.size());
+            for (AnnotationModel annotation : annotations) {
+                writeString(annotation.name());
+                out.writeVarint(annotation.members().size());
+                for (AnnotationModel.Member member : annotation.members()) {
+                    writeString(member.name());
+                    writeExpression(member.value());
+                }
+            }
+        }
+
+        /**
+         * Write an expression as its kind shifted by one, so that 0 is {@code null}.
+         */
+        private void writeExpression(ExpressionModel expression) {
+            if (expression == null) {
+                out.writeVarint(0);
+                return;
+            }
+            out.writeVarint(expression.kind().ordinal() + 1);
+            if (expression.kind() == ExpressionModel.Kind.CLASS_LITERAL) {
+                writeTypeRef(expression.type());
+            } else {
+                writeString(expression.text());
+            }
+        }
+
+        private void writeStatement(StatementModel statement) {
+            if (statement == null) {
+                out.writeVarint(NULL);
+            } else if (statement instanceof StatementModel.Return returnStmt) {
+                out.writeVarint(RETURN);
+                writeString(returnStmt.expression());
+            } else if (statement instanceof StatementModel.ExpressionStatement exprStmt) {
+                out.writeVarint(EXPRESSION);
+                writeString(exprStmt.expression());
+            } else if (statement instanceof StatementModel.If ifStmt) {
+                out.writeVarint(IF);
+                writeString(ifStmt.condition());
+                writeStatement(ifStmt.thenStatement());
+                writeStatement(ifStmt.elseStatement());
+            } else if (statement instanceof StatementModel.For forStmt) {
+                out.writeVarint(FOR);
+                writeString(forStmt.initialization());
+                writeString(forStmt.compare());
+                writeString(forStmt.update());
+                writeStatement(forStmt.body());
+            } else if (statement instanceof StatementModel.ForEach forEachStmt) {
+                out.writeVarint(FOR_EACH);
+                writeTypeRef(forEachStmt.variableType());
+                writeString(forEachStmt.variableName());
+                writeString(forEachStmt.iterable());
+                writeStatement(forEachStmt.body());
+            } else if (statement instanceof StatementModel.While whileStmt) {
+                out.writeVarint(WHILE);
+                writeString(whileStmt.condition());
+                writeStatement(whileStmt.body());
+            } else if (statement instanceof StatementModel.Try tryStmt) {
+                out.writeVarint(TRY);
+                writeStatement(tryStmt.tryBlock());
+                out.writeVarint(tryStmt.catchClauses().size());
+                for (StatementModel.CatchClause catchClause : tryStmt.catchClauses()) {
+                    writeTypeRef(catchClause.parameterType());
+                    writeString(catchClause.parameterName());
+                    writeStatement(catchClause.body());
+                }
+                writeStatement(tryStmt.finallyBlock());
+            } else if (statement instanceof StatementModel.Throw throwStmt) {
+                out.writeVarint(THROW);
+                writeString(throwStmt.expression());
+            } else if (statement instanceof StatementModel.Block block) {
+                out.writeVarint(BLOCK);
+                out.writeVarint(block.statements().size());
+                for (StatementModel s : block.statements()) {
+                    writeStatement(s);
+                }
+            } else if (statement instanceof StatementModel.Other other) {
+                out.writeVarint(OTHER);
+                writeString(other.text());
+            }
+        }
+    }
+
+    private static final class Decoder {
+
+        private final byte[] data;
+        private int position;
+        private String[] strings;
+
+        Decoder(byte[] data) {
+            this.data = data;
+        }
+
+        int readInt() {
+            return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        }
+
+        private int readByte() {
+            return data[position++] & 0xFF;
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new JavaPoetGenException("Malformed varint at offset " + position);
+        }
+
+        /**
+         * Read a count, rejecting counts larger than the remaining data could hold.
+         */
+        private int readCount() {
+            int count = readVarint();
+            if (count < 0 || count > data.length - position) {
+                throw new JavaPoetGenException("Invalid count " + count + " at offset " + position);
+            }
+            return count;
+        }
+
+        void readStringTable() {
+            strings = new String[readCount()];
+            for (int i = 0; i < strings.length; i++) {
+                int length = readCount();
+                strings[i] = new String(data, position, length, StandardCharsets.UTF_8);
+                position += length;
+            }
+        }
+
+        private String readString() {
+            int index = readVarint();
+            return index == 0 ? null : strings[index - 1];
+        }
+
+        private List<String> readStrings() {
+            int count = readCount();
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        private List<Modifier> readModifiers() {
+            int count = readCount();
+            List<Modifier> modifiers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                modifiers.add(MODIFIERS[readVarint()]);
+            }
+            return modifiers;
+        }
+
+        SourceFile readSourceFile() {
+            String packageName = readString();
+            int count = readCount();
+            List<TypeModel> types = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                types.add(readType());
+            }
+            return new SourceFile(packageName, types);
+        }
+
+        private TypeModel readType() {
+            TypeModel.Kind kind = TYPE_KINDS[readVarint()];
+            String name = readString();
+            List<Modifier> modifiers = readModifiers();
+            List<TypeRef> extendedTypes = readTypeRefs();
+            List<TypeRef> implementedTypes = readTypeRefs();
+            List<AnnotationModel> annotations = readAnnotations();
+            String javadoc = readString();
+            int fieldCount = readCount();
+            List<FieldModel> fields = new ArrayList<>(fieldCount);
+            for (int i = 0; i < fieldCount; i++) {
+                fields.add(new FieldModel(readString(), readTypeRef(), readModifiers(), readAnnotations(),
+                        readExpression(), readString()));
+            }
+            List<MethodModel> constructors = readMethods();
+            List<MethodModel> methods = readMethods();
+            int constantCount = readCount();
+            List<EnumConstantModel> constants = new ArrayList<>(constantCount);
+            for (int i = 0; i < constantCount; i++) {
+                constants.add(new EnumConstantModel(readString(), readStrings()));
+            }
+            return new TypeModel(kind, name, modifiers, extendedTypes, implementedTypes, annotations, javadoc,
+                    fields, constructors, methods, constants);
+        }
+
+        private List<MethodModel> readMethods() {
+            int count = readCount();
+            List<MethodModel> methods = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = readString();
+                List<Modifier> modifiers = readModifiers();
+                TypeRef returnType = readTypeRef();
+                int parameterCount = readCount();
+                List<ParameterModel> parameters = new ArrayList<>(parameterCount);
+                for (int j = 0; j < parameterCount; j++) {
+                    parameters.add(new ParameterModel(readString(), readTypeRef(), readByte() != 0, readAnnotations()));
+                }
+                methods.add(new MethodModel(name, modifiers, returnType, parameters, readStrings(), readTypeRefs(),
+                        readAnnotations(), readBlock(), readString()));
+            }
+            return methods;
+        }
+
+        private List<TypeRef> readTypeRefs() {
+            int count = readCount();
+            List<TypeRef> types = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                types.add(readTypeRef());
+            }
+            return types;
+        }
+
+        private TypeRef readTypeRef() {
+            int tag = readVarint();
+            if (tag == 0) {
+                return null;
+            }
+            return switch (TYPE_REF_KINDS[tag - 1]) {
+                case VOID -> TypeRef.voidType();
+                case PRIMITIVE -> TypeRef.primitive(readString());
+                case OTHER -> TypeRef.other(readString());
+                case CLASS -> TypeRef.classType(readString(), readString(), readTypeRefs());
+                case ARRAY -> {
+                    String text = readString();
+                    yield TypeRef.arrayOf(readTypeRef(), text);
+                }
+            };
+        }
+
+        private List<AnnotationModel> readAnnotations() {
+            int count = readCount();
+            List<AnnotationModel> annotations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = readString();
+                int memberCount = readCount();
+                List<AnnotationModel.Member> members = new ArrayList<>(memberCount);
+                for (int j = 0; j < memberCount; j++) {
+                    members.add(new AnnotationModel.Member(readString(), readExpression()));
+                }
+                annotations.add(new AnnotationModel(name, members));
+            }
+            return annotations;
+        }
+
+        private ExpressionModel readExpression() {
+            int tag = readVarint();
+            if (tag == 0) {
+                return null;
+            }
+            ExpressionModel.Kind kind = EXPRESSION_KINDS[tag - 1];
+            if (kind == ExpressionModel.Kind.CLASS_LITERAL) {
+                return ExpressionModel.classLiteral(readTypeRef());
+            }
+            return new ExpressionModel(kind, readString(), null);
+        }
+
+        private StatementModel.Block readBlock() {
+            StatementModel statement = readStatement();
+            if (statement != null && !(statement instanceof StatementModel.Block)) {
+                throw new JavaPoetGenException("Expected a block at offset " + position);
+            }
+            return (StatementModel.Block) statement;
+        }
+
+        private StatementModel readStatement() {
+            int tag = readVarint();
+            return switch (tag) {
+                case NULL -> null;
+                case RETURN -> new StatementModel.Return(readString());
+                case EXPRESSION -> new StatementModel.ExpressionStatement(readString());
+                case IF -> new StatementModel.If(readString(), readStatement(), readStatement());
+                case FOR -> new StatementModel.For(readString(), readString(), readString(), readStatement());
+                case FOR_EACH -> new StatementModel.ForEach(readTypeRef(), readString(), readString(), readStatement());
+                case WHILE -> new StatementModel.While(readString(), readStatement());
+                case TRY -> {
+                    StatementModel.Block tryBlock = readBlock();
+                    int count = readCount();
+                    List<StatementModel.CatchClause> catchClauses = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        catchClauses.add(new StatementModel.CatchClause(readTypeRef(), readString(), readBlock()));
+                    }
+                    yield new StatementModel.Try(tryBlock, catchClauses, readBlock());
+                }
+                case THROW -> new StatementModel.Throw(readString());
+                case BLOCK -> {
+                    int count = readCount();
+                    List<StatementModel> statements = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        statements.add(readStatement());
+                    }
+                    yield new StatementModel.Block(statements);
+                }
+                case OTHER -> new StatementModel.Other(readString());
+                default -> throw new JavaPoetGenException("Unknown statement tag " + tag + " at offset " + position);
+            };
+        }
+    }
+}
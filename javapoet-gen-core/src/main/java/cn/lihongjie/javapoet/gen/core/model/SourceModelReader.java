@@ -0,0 +1,35 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+/**
+ * Builds the {@link SourceFile} model code is generated from, out of some parsed
+ * representation of a Java source file.
+ *
+ * <p>The generator only depends on the model, so any parser can drive it: the core
+ * library reads JavaParser compilation units with {@link JavaParserModelReader},
+ * and an IDE can read its own syntax tree without parsing the file a second time.</p>
+ *
+ * @param <S> the parsed representation of a source file
+ */
+public interface SourceModelReader<S> {
+
+    /**
+     * Build the model of a parsed source file. Only top-level classes, interfaces
+     * and enums are included.
+     *
+     * @param source the parsed source file
+     * @return the model of the source file
+     */
+    default SourceFile read(S source) {
+        return read(source, MemberFilter.ALL);
+    }
+
+    /**
+     * Build the model of a parsed source file with only the members a filter accepts.
+     * Only top-level classes, interfaces and enums are included.
+     *
+     * @param source the parsed source file
+     * @param filter decides which fields, constructors and methods are read
+     * @return the model of the source file
+     */
+    SourceFile read(S source, MemberFilter filter);
+}
@@ -0,0 +1,75 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.Node;
+
+import java.util.Arrays;
+
+/**
+ * The original text of a parsed source, indexed by line so that the text of a node
+ * can be cut out of it by its range instead of being pretty-printed.
+ *
+ * <p>Ranges count columns in chars with a tab size of 1, the JavaParser default,
+ * and treat {@code \n}, {@code \r\n} and {@code \r} as line terminators.</p>
+ */
+final class SourceText {
+
+    private final String source;
+    private final int[] lineStarts;
+
+    SourceText(String source) {
+        this.source = source;
+        this.lineStarts = indexLines(source);
+    }
+
+    private static int[] indexLines(String source) {
+        int[] starts = new int[16];
+        int lines = 1;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (c == '\n' || c == '\r' && (i + 1 == source.length() || source.charAt(i + 1) != '\n')) {
+                if (lines == starts.length) {
+                    starts = Arrays.copyOf(starts, lines * 2);
+                }
+                starts[lines++] = i + 1;
+            }
+        }
+        return Arrays.copyOf(starts, lines);
+    }
+
+    /**
+     * Get the source text of a node.
+     * Text that spans several lines or may contain a comment is left to the printer,
+     * which normalizes layout and comments.
+     *
+     * @return the text, or {@code null} if the node has no range or its text needs normalizing
+     */
+    String slice(Node node) {
+        Range range = node.getRange().orElse(null);
+        if (range == null) {
+            return null;
+        }
+        int start = offset(range.begin);
+        // Range ends are inclusive
+        int end = offset(range.end) + 1;
+        if (start < 0 || end <= start || end > source.length()) {
+            return null;
+        }
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c == '\n' || c == '\r' || c == '/' && i + 1 < end && (source.charAt(i + 1) == '/'
+                    || source.charAt(i + 1) == '*')) {
+                return null;
+            }
+        }
+        return source.substring(start, end);
+    }
+
+    private int offset(Position position) {
+        if (position.line < 1 || position.line > lineStarts.length) {
+            return -1;
+        }
+        return lineStarts[position.line - 1] + position.column - 1;
+    }
+}
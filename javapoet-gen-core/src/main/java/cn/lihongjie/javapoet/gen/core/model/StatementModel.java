@@ -0,0 +1,112 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+import java.util.List;
+
+/**
+ * A statement in a method or constructor body. Control flow is kept as structure;
+ * expressions and statements of other kinds are kept as source text.
+ */
+public sealed interface StatementModel {
+
+    /**
+     * A {@code return} statement.
+     *
+     * @param expression the returned expression, or {@code null} for a bare {@code return}
+     */
+    record Return(String expression) implements StatementModel {
+    }
+
+    /**
+     * An expression statement, without the trailing semicolon.
+     */
+    record ExpressionStatement(String expression) implements StatementModel {
+    }
+
+    /**
+     * An {@code if} statement.
+     *
+     * @param condition     the condition
+     * @param thenStatement the statement run when the condition holds
+     * @param elseStatement the {@code else} branch, or {@code null} if there is none;
+     *                      an {@code else if} is an {@link If}
+     */
+    record If(String condition, StatementModel thenStatement, StatementModel elseStatement)
+            implements StatementModel {
+    }
+
+    /**
+     * A basic {@code for} statement.
+     *
+     * @param initialization the initialization expressions, comma separated
+     * @param compare        the condition, empty if there is none
+     * @param update         the update expressions, comma separated
+     * @param body           the loop body
+     */
+    record For(String initialization, String compare, String update, StatementModel body)
+            implements StatementModel {
+    }
+
+    /**
+     * An enhanced {@code for} statement.
+     *
+     * @param variableType the type of the loop variable
+     * @param variableName the name of the loop variable
+     * @param iterable     the iterated expression
+     * @param body         the loop body
+     */
+    record ForEach(TypeRef variableType, String variableName, String iterable, StatementModel body)
+            implements StatementModel {
+    }
+
+    /**
+     * A {@code while} statement.
+     */
+    record While(String condition, StatementModel body) implements StatementModel {
+    }
+
+    /**
+     * A {@code try} statement. Resources of a try-with-resources are not kept.
+     *
+     * @param tryBlock     the {@code try} block
+     * @param catchClauses the {@code catch} clauses
+     * @param finallyBlock the {@code finally} block, or {@code null} if there is none
+     */
+    record Try(Block tryBlock, List<CatchClause> catchClauses, Block finallyBlock) implements StatementModel {
+
+        public Try {
+            catchClauses = List.copyOf(catchClauses);
+        }
+    }
+
+    /**
+     * A {@code catch} clause of a {@link Try}.
+     *
+     * @param parameterType the caught type; a multi-catch is a {@link TypeRef.Kind#OTHER} type
+     * @param parameterName the name of the caught exception
+     * @param body          the handler
+     */
+    record CatchClause(TypeRef parameterType, String parameterName, Block body) {
+    }
+
+    /**
+     * A {@code throw} statement.
+     */
+    record Throw(String expression) implements StatementModel {
+    }
+
+    /**
+     * A block of statements.
+     */
+    record Block(List<StatementModel> statements) implements StatementModel {
+
+        public Block {
+            statements = List.copyOf(statements);
+        }
+    }
+
+    /**
+     * Any other statement, as source text.
+     */
+    record Other(String text) implements StatementModel {
+    }
+}
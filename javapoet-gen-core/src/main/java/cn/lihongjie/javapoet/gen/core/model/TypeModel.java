@@ -0,0 +1,50 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+import javax.lang.model.element.Modifier;
+import java.util.List;
+
+/**
+ * A class, interface or enum declaration.
+ *
+ * @param kind             the kind of type
+ * @param name             the simple name of the type
+ * @param modifiers        the modifiers, in source order
+ * @param extendedTypes    the types in the {@code extends} clause
+ * @param implementedTypes the types in the {@code implements} clause
+ * @param annotations      the annotations of the type
+ * @param javadoc          the Javadoc content, or {@code null} if there is none
+ * @param fields           the fields, one per declared variable
+ * @param constructors     the constructors, in source order
+ * @param methods          the methods, in source order
+ * @param enumConstants    the constants of an enum, empty for other kinds
+ */
+public record TypeModel(
+        Kind kind,
+        String name,
+        List<Modifier> modifiers,
+        List<TypeRef> extendedTypes,
+        List<TypeRef> implementedTypes,
+        List<AnnotationModel> annotations,
+        String javadoc,
+        List<FieldModel> fields,
+        List<MethodModel> constructors,
+        List<MethodModel> methods,
+        List<EnumConstantModel> enumConstants) {
+
+    public enum Kind {
+        CLASS,
+        INTERFACE,
+        ENUM
+    }
+
+    public TypeModel {
+        modifiers = List.copyOf(modifiers);
+        extendedTypes = List.copyOf(extendedTypes);
+        implementedTypes = List.copyOf(implementedTypes);
+        annotations = List.copyOf(annotations);
+        fields = List.copyOf(fields);
+        constructors = List.copyOf(constructors);
+        methods = List.copyOf(methods);
+        enumConstants = List.copyOf(enumConstants);
+    }
+}
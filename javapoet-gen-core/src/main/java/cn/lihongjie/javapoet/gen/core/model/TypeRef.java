@@ -0,0 +1,59 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+import java.util.List;
+
+/**
+ * A reference to a type, as written in source.
+ *
+ * @param kind      the kind of type
+ * @param name      the keyword of a primitive or {@code void}, the simple name of a class type,
+ *                  or the source text of other types
+ * @param text      the source text, e.g. {@code Map.Entry<String, List<Order>>}
+ * @param arguments the type arguments of a class type, or the single component type of an array
+ */
+public record TypeRef(Kind kind, String name, String text, List<TypeRef> arguments) {
+
+    public enum Kind {
+        VOID,
+        PRIMITIVE,
+        CLASS,
+        ARRAY,
+        /** Wildcards, union and intersection types, {@code var}. */
+        OTHER
+    }
+
+    public TypeRef {
+        arguments = List.copyOf(arguments);
+    }
+
+    public static TypeRef voidType() {
+        return new TypeRef(Kind.VOID, "void", "void", List.of());
+    }
+
+    public static TypeRef primitive(String keyword) {
+        return new TypeRef(Kind.PRIMITIVE, keyword, keyword, List.of());
+    }
+
+    public static TypeRef classType(String name, String text, List<TypeRef> typeArguments) {
+        // Share the string for the common case of an unqualified, non-generic type
+        return new TypeRef(Kind.CLASS, name, text.equals(name) ? name : text, typeArguments);
+    }
+
+    public static TypeRef arrayOf(TypeRef componentType, String text) {
+        return new TypeRef(Kind.ARRAY, text, text, List.of(componentType));
+    }
+
+    public static TypeRef other(String text) {
+        return new TypeRef(Kind.OTHER, text, text, List.of());
+    }
+
+    /**
+     * The component type of an array type.
+     */
+    public TypeRef componentType() {
+        if (kind != Kind.ARRAY) {
+            throw new IllegalStateException(text + " is not an array type");
+        }
+        return arguments.get(0);
+    }
+}
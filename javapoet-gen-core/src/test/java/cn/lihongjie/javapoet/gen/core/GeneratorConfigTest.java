@@ -0,0 +1,101 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import cn.lihongjie.javapoet.gen.core.model.MemberFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GeneratorConfig.
+ */
+class GeneratorConfigTest {
+
+    @Test
+    void testFingerprintIsStable() {
+        assertEquals(new GeneratorConfig().fingerprint(), new GeneratorConfig().fingerprint());
+    }
+
+    @Test
+    void testFingerprintChangesWithOutputOptions() {
+        String defaults = new GeneratorConfig().fingerprint();
+
+        assertNotEquals(defaults, new GeneratorConfig().setPreserveJavadoc(false).fingerprint());
+        assertNotEquals(defaults, new GeneratorConfig().setGenerateComments(false).fingerprint());
+        assertNotEquals(defaults, new GeneratorConfig().setIndent("  ").fingerprint());
+        assertNotEquals(defaults, new GeneratorConfig().setHoistTypeNames(true).fingerprint());
+        assertNotEquals(defaults, new GeneratorConfig().setMethodSizeBudget(1024).fingerprint());
+        assertNotEquals(defaults, new GeneratorConfig().setMaxStringLiteralBytes(1024).fingerprint());
+        assertNotEquals(defaults, new GeneratorConfig().setSliceSourceText(true).fingerprint());
+        assertNotEquals(defaults, new GeneratorConfig().registerType("java.time.LocalDate").fingerprint());
+        assertNotEquals(defaults, new GeneratorConfig().registerAnnotation("javax.annotation.Nonnull").fingerprint());
+        assertNotEquals(defaults, new GeneratorConfig().addInclude("visibility:public").fingerprint());
+        assertNotEquals(defaults, new GeneratorConfig().addExclude("visibility:public").fingerprint());
+    }
+
+    @Test
+    void testMemberRulesAreValidatedAndOrderIndependent() {
+        GeneratorConfig config = new GeneratorConfig();
+
+        assertSame(MemberFilter.ALL, config.memberFilter());
+        assertThrows(IllegalArgumentException.class, () -> config.addInclude("visibility"));
+        assertThrows(IllegalArgumentException.class, () -> config.addExclude("size:large"));
+        assertEquals(List.of(), config.getIncludes());
+
+        assertEquals(new GeneratorConfig().addInclude("kind:method").addInclude("kind:field").fingerprint(),
+                new GeneratorConfig().addInclude("kind:field").addInclude("kind:method").fingerprint());
+    }
+
+    @Test
+    void testRegisterTypeUsesSimpleNameAsKey() {
+        GeneratorConfig config = new GeneratorConfig().registerType("java.time.LocalDate");
+
+        assertEquals("java.time.LocalDate", config.getRegisteredTypes().get("LocalDate"));
+        assertThrows(IllegalArgumentException.class, () -> config.registerType(" "));
+    }
+
+    @Test
+    void testMethodSizeBudgetMustFitJvmLimit() {
+        GeneratorConfig config = new GeneratorConfig();
+
+        assertEquals(GeneratorConfig.DEFAULT_METHOD_SIZE_BUDGET, config.getMethodSizeBudget());
+        assertThrows(IllegalArgumentException.class, () -> config.setMethodSizeBudget(0));
+        assertThrows(IllegalArgumentException.class, () -> config.setMethodSizeBudget(65536));
+    }
+
+    @Test
+    void testMaxStringLiteralBytesMustFitConstantPool() {
+        GeneratorConfig config = new GeneratorConfig();
+
+        assertEquals(GeneratorConfig.MAX_STRING_CONSTANT_BYTES, config.getMaxStringLiteralBytes());
+        assertThrows(IllegalArgumentException.class, () -> config.setMaxStringLiteralBytes(0));
+        assertThrows(IllegalArgumentException.class, () -> config.setMaxStringLiteralBytes(65536));
+    }
+
+    @Test
+    void testParseCacheLimitsValidated() {
+        GeneratorConfig config = new GeneratorConfig();
+
+        assertEquals(0, config.getParseCacheSize());
+        assertThrows(IllegalArgumentException.class, () -> config.setParseCacheSize(-1));
+        assertThrows(IllegalArgumentException.class, () -> config.setParseCacheMaxWeight(0));
+    }
+
+    @Test
+    void testFingerprintIgnoresExecutionOptions() {
+        assertEquals(new GeneratorConfig().setParserPoolSize(1).fingerprint(),
+                new GeneratorConfig().setParserPoolSize(16).fingerprint());
+        assertEquals(new GeneratorConfig().fingerprint(),
+                new GeneratorConfig().setParseCacheSize(64).fingerprint());
+    }
+
+    @Test
+    void testVersionIsAvailable() {
+        assertNotNull(GeneratorVersion.get());
+        assertNotEquals("unknown", GeneratorVersion.get());
+        // Snapshots carry a hash of the generator classes, not a build time
+        assertTrue(GeneratorVersion.get().matches("\\d+\\.\\d+\\.\\d+(-SNAPSHOT\\+[0-9a-f]{12})?"),
+                GeneratorVersion.get());
+    }
+}
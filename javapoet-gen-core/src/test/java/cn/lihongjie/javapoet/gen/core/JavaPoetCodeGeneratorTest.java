@@ -0,0 +1,644 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import cn.lihongjie.javapoet.gen.core.model.JavaParserModelReader;
+import cn.lihongjie.javapoet.gen.core.model.MemberFilter;
+import cn.lihongjie.javapoet.gen.core.model.SourceFile;
+import cn.lihongjie.javapoet.gen.core.model.SourceFileCodec;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.squareup.javapoet.TypeSpec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JavaPoetCodeGenerator.
+ */
+class JavaPoetCodeGeneratorTest {
+
+    private static final List<String> SOURCES = List.of(
+            """
+            package com.example;
+
+            public class Plain {
+                private String name;
+
+                public String getName() {
+                    return name;
+                }
+            }
+            """,
+            """
+            package com.example;
+
+            import java.util.List;
+
+            public class Generic {
+                public <T> T first(List<T> items) {
+                    return items.get(0);
+                }
+
+                public <T> T first(List<T> items, T fallback) {
+                    if (items.isEmpty()) {
+                        return fallback;
+                    }
+                    return items.get(0);
+                }
+            }
+            """,
+            """
+            package com.example;
+
+            public enum Color {
+                RED, GREEN, BLUE
+            }
+            """
+    );
+
+    private JavaSourceParser parser;
+    private JavaPoetCodeGenerator codeGenerator;
+
+    @BeforeEach
+    void setUp() {
+        parser = new JavaSourceParser();
+        codeGenerator = new JavaPoetCodeGenerator();
+    }
+
+    @Test
+    void testRepeatedGenerationIsIdentical() {
+        CompilationUnit cu = parser.parse(SOURCES.get(1));
+
+        String first = codeGenerator.generate(cu);
+        String second = codeGenerator.generate(cu);
+
+        assertEquals(first, second);
+        assertTrue(first.contains("import com.squareup.javapoet.TypeVariableName;"));
+        assertTrue(first.contains("MethodSpec firstMethod"));
+        assertTrue(first.contains("MethodSpec first1Method"));
+    }
+
+    @Test
+    void testImportsDoNotLeakBetweenRuns() {
+        String generic = codeGenerator.generate(parser.parse(SOURCES.get(1)));
+        String plain = codeGenerator.generate(parser.parse(SOURCES.get(0)));
+
+        assertTrue(generic.contains("TypeVariableName;"));
+        assertFalse(plain.contains("TypeVariableName;"));
+    }
+
+    @Test
+    void testRegisteredTypesAndAnnotations() {
+        GeneratorConfig config = new GeneratorConfig()
+                .registerType("java.time.LocalDate")
+                .registerType("com.acme.model.Order.Line")
+                .registerAnnotation("javax.annotation.Nonnull");
+        JavaPoetCodeGenerator generator = new JavaPoetCodeGenerator(config);
+        CompilationUnit cu = parser.parse("""
+                public class Invoice {
+                    @Nonnull
+                    private LocalDate date;
+                    private java.util.List<Line> lines;
+                    private String number;
+                }
+                """);
+
+        String result = generator.generate(cu);
+
+        assertTrue(result.contains("FieldSpec.builder(ClassName.get(\"java.time\", \"LocalDate\"), \"date\""));
+        assertTrue(result.contains("AnnotationSpec.builder(ClassName.get(\"javax.annotation\", \"Nonnull\"))"));
+        assertTrue(result.contains("ClassName.get(\"com.acme.model\", \"Order\", \"Line\")"));
+        assertTrue(result.contains("FieldSpec.builder(String.class, \"number\""));
+    }
+
+    @Test
+    void testRepeatedTypesResolveConsistently() {
+        CompilationUnit cu = parser.parse("""
+                import java.util.List;
+                import java.util.Map;
+
+                public class Repository {
+                    private Map<String, List<Order>> byCustomer;
+                    private Map<String, List<Order>> byRegion;
+                    private List<Order> pending;
+                    private Order[] archive;
+
+                    public Map<String, List<Order>> merge(Map<String, List<Order>> other) {
+                        return other;
+                    }
+                }
+                """);
+
+        String result = codeGenerator.generate(cu);
+
+        String mapType = "ParameterizedTypeName.get(java.util.Map.class, String.class, "
+                + "ParameterizedTypeName.get(java.util.List.class, ClassName.get(\"\", \"Order\")))";
+        assertTrue(result.contains("FieldSpec.builder(" + mapType + ", \"byCustomer\""));
+        assertTrue(result.contains("FieldSpec.builder(" + mapType + ", \"byRegion\""));
+        assertTrue(result.contains(".returns(" + mapType + ")"));
+        assertTrue(result.contains(".addParameter(" + mapType + ", \"other\")"));
+        assertTrue(result.contains("FieldSpec.builder(ParameterizedTypeName.get(java.util.List.class, ClassName.get(\"\", \"Order\")), \"pending\""));
+        assertTrue(result.contains("com.squareup.javapoet.ArrayTypeName.of(ClassName.get(\"\", \"Order\"))"));
+        assertEquals(result, codeGenerator.generate(cu));
+    }
+
+    @Test
+    void testGenerateFromModel() {
+        JavaParserModelReader reader = new JavaParserModelReader();
+        for (String source : SOURCES) {
+            CompilationUnit cu = parser.parse(source);
+            SourceFile model = reader.read(cu);
+
+            String expected = codeGenerator.generate(cu);
+
+            assertEquals(expected, codeGenerator.generate(model));
+            assertEquals(expected, codeGenerator.generate(SourceFileCodec.decode(SourceFileCodec.encode(model))));
+        }
+    }
+
+    @Test
+    void testHoistTypeNames() {
+        JavaPoetCodeGenerator generator = new JavaPoetCodeGenerator(new GeneratorConfig().setHoistTypeNames(true));
+        CompilationUnit cu = parser.parse("""
+                import java.util.List;
+                import java.util.Map;
+
+                public class Repository {
+                    private Map<String, List<Order>> byCustomer;
+                    private Map<String, List<Order>> byRegion;
+                    private Customer owner;
+                    private String name;
+
+                    public Map<String, List<Order>> merge(Map<String, List<Order>> other) {
+                        return other;
+                    }
+                }
+                """);
+
+        String result = generator.generate(cu);
+
+        assertTrue(result.contains("TypeName orderType = ClassName.get(\"\", \"Order\");\n"
+                + "TypeName listOrderType = ParameterizedTypeName.get(java.util.List.class, orderType);\n"
+                + "TypeName mapStringListOrderType = "
+                + "ParameterizedTypeName.get(java.util.Map.class, String.class, listOrderType);\n"));
+        assertTrue(result.contains("FieldSpec.builder(mapStringListOrderType, \"byCustomer\""));
+        assertTrue(result.contains("FieldSpec.builder(mapStringListOrderType, \"byRegion\""));
+        // Types used once stay inline, class literals are never hoisted
+        assertTrue(result.contains("FieldSpec.builder(ClassName.get(\"\", \"Customer\"), \"owner\""));
+        assertTrue(result.contains("FieldSpec.builder(String.class, \"name\""));
+        assertTrue(result.contains("// Shared type names: 3 declared"));
+        assertTrue(result.indexOf("TypeName orderType") < result.indexOf("// Generated JavaPoet code for"));
+
+        String inline = codeGenerator.generate(cu);
+        assertTrue(result.length() < inline.length());
+    }
+
+    @Test
+    void testOversizedTypeIsSplitIntoHelperClasses() {
+        StringBuilder source = new StringBuilder("public class Wide {\n");
+        for (int i = 0; i < 40; i++) {
+            source.append("    private String field").append(i).append(";\n");
+        }
+        source.append("    public Wide() {\n    }\n");
+        source.append("    public String first() {\n        return field0;\n    }\n}\n");
+        CompilationUnit cu = parser.parse(source.toString());
+
+        String result = new JavaPoetCodeGenerator(new GeneratorConfig().setMethodSizeBudget(300)).generate(cu);
+
+        // Members within the budget are written as usual, the rest is added by helper classes
+        assertTrue(result.startsWith("import"));
+        assertTrue(result.contains("// Generated JavaPoet code for: Wide\n\n"
+                + "FieldSpec field0Field = FieldSpec.builder(String.class, \"field0\", Modifier.PRIVATE)\n"));
+        assertTrue(result.contains("TypeSpec.Builder wideSpecBuilder = TypeSpec.classBuilder(\"Wide\")\n"
+                + "    .addModifiers(Modifier.PUBLIC);\n"
+                + "wideSpecBuilder.addField(field0Field);\n"));
+        assertTrue(result.contains("TypeSpec wideSpec = wideSpecBuilder.build();"));
+        assertTrue(result.contains("static final class WideMembers1 {\n"
+                + "    static void add(TypeSpec.Builder builder) {\n"
+                + "        FieldSpec "));
+
+        // Fields, then constructors, then methods, each added exactly once
+        int helperCount = result.split("static final class WideMembers").length - 1;
+        assertTrue(helperCount > 1);
+        assertTrue(result.contains("WideMembers" + helperCount + ".add(wideSpecBuilder);\n"));
+        assertEquals(40, result.split("[bB]uilder\\.addField\\(").length - 1);
+        assertTrue(result.indexOf("builder.addField(field39Field)") < result.indexOf("builder.addMethod(constructor)"));
+        assertTrue(result.indexOf("builder.addMethod(constructor)") < result.indexOf("builder.addMethod(firstMethod)"));
+        // The helper classes follow the statements, behind a marker written even without comments
+        assertTrue(result.indexOf("JavaFile javaFile") < result.indexOf(JavaPoetCodeGenerator.CLASS_MEMBERS_MARKER));
+        assertTrue(result.indexOf(JavaPoetCodeGenerator.CLASS_MEMBERS_MARKER) < result.indexOf("static final class"));
+        String noComments = new JavaPoetCodeGenerator(new GeneratorConfig()
+                .setMethodSizeBudget(300)
+                .setGenerateComments(false)).generate(cu);
+        assertTrue(noComments.contains(JavaPoetCodeGenerator.CLASS_MEMBERS_MARKER));
+    }
+
+    @Test
+    void testOversizedEnumIsSplitIntoHelperClasses() {
+        StringBuilder source = new StringBuilder("public enum Code {\n");
+        for (int i = 0; i < 100; i++) {
+            source.append("    C").append(i).append(",\n");
+        }
+        source.append("}\n");
+        CompilationUnit cu = parser.parse(source.toString());
+
+        String small = codeGenerator.generate(cu);
+        String split = new JavaPoetCodeGenerator(new GeneratorConfig().setMethodSizeBudget(200)).generate(cu);
+
+        assertFalse(small.contains(JavaPoetCodeGenerator.CLASS_MEMBERS_MARKER));
+        assertTrue(split.contains("TypeSpec.Builder codeSpecBuilder = TypeSpec.enumBuilder(\"Code\")\n"
+                + "    .addModifiers(Modifier.PUBLIC);\n"
+                + "CodeConstants1.add(codeSpecBuilder);\n"));
+        assertTrue(split.contains("static final class CodeConstants1 {\n"
+                + "    static void add(TypeSpec.Builder builder) {\n"
+                + "        builder.addEnumConstant(\"C0\");\n"));
+        assertEquals(100, split.split("builder\\.addEnumConstant\\(").length - 1);
+    }
+
+    @Test
+    void testOversizedMemberIsSplitAcrossHelperClasses() {
+        StringBuilder source = new StringBuilder("public class Script {\n    public void run() {\n");
+        for (int i = 0; i < 50; i++) {
+            source.append("        step(").append(i).append(");\n");
+        }
+        source.append("    }\n}\n");
+        CompilationUnit cu = parser.parse(source.toString());
+
+        String result = new JavaPoetCodeGenerator(new GeneratorConfig().setMethodSizeBudget(200)).generate(cu);
+
+        assertTrue(result.contains("MethodSpec.Builder runMethodBuilder = MethodSpec.methodBuilder(\"run\");\n"
+                + "ScriptMembers1.add(runMethodBuilder);\n"));
+        assertTrue(result.contains("    static void add(MethodSpec.Builder builder) {\n"
+                + "        builder.addModifiers(Modifier.PUBLIC);\n"));
+        assertTrue(result.contains("MethodSpec runMethod = runMethodBuilder.build();\n"
+                + "scriptSpecBuilder.addMethod(runMethod);\n"));
+        assertTrue(result.split("static final class ScriptMembers").length - 1 > 1);
+        assertEquals(50, result.split("builder\\.addStatement\\(").length - 1);
+    }
+
+    @Test
+    void testHoistedTypeNamesBecomeConstantsWhenSplit() {
+        CompilationUnit cu = parser.parse("""
+                public class Orders {
+                    private Order first;
+                    private Order second;
+                    private Order third;
+                }
+                """);
+
+        String result = new JavaPoetCodeGenerator(new GeneratorConfig()
+                .setHoistTypeNames(true)
+                .setMethodSizeBudget(40)).generate(cu);
+
+        // Constants are class members, so they follow the marker with the helper classes
+        int marker = result.indexOf(JavaPoetCodeGenerator.CLASS_MEMBERS_MARKER);
+        assertTrue(marker > 0);
+        assertTrue(result.indexOf("private static final TypeName orderType = ClassName.get(\"\", \"Order\");") > marker);
+        assertTrue(result.contains("        FieldSpec secondField = FieldSpec.builder(orderType, \"second\", Modifier.PRIVATE)"));
+    }
+
+    @Test
+    void testSplitOutputCompiles(@TempDir Path tempDir) throws IOException {
+        StringBuilder dto = new StringBuilder("package com.example;\n\npublic class Large {\n");
+        for (int i = 0; i < 1500; i++) {
+            dto.append("    private java.util.List<String> field").append(i).append(";\n");
+        }
+        for (int i = 0; i < 1500; i++) {
+            dto.append("    public java.util.List<String> getField").append(i).append("() {\n")
+               .append("        return field").append(i).append(";\n    }\n");
+        }
+        dto.append("    public void reset() {\n");
+        for (int i = 0; i < 3000; i++) {
+            dto.append("        field").append(i % 1500).append(" = null;\n");
+        }
+        dto.append("    }\n}\n");
+        StringBuilder enumSource = new StringBuilder("package com.example;\n\npublic enum Huge {\n");
+        for (int i = 0; i < 20000; i++) {
+            enumSource.append("    CONSTANT_").append(i).append(",\n");
+        }
+        enumSource.append("}\n");
+
+        Map<String, String> classes = Map.of("LargeGenerator", dto.toString(), "HugeGenerator", enumSource.toString());
+        List<Path> sources = new ArrayList<>();
+        // Hoisted type names are only tried without comments, to keep the test quick
+        for (boolean comments : new boolean[]{true, false}) {
+            JavaPoetCodeGenerator generator = new JavaPoetCodeGenerator(new GeneratorConfig()
+                    .setGenerateComments(comments)
+                    .setHoistTypeNames(!comments));
+            for (Map.Entry<String, String> entry : classes.entrySet()) {
+                String code = generator.generate(parser.parse(entry.getValue()));
+                assertTrue(code.contains(JavaPoetCodeGenerator.CLASS_MEMBERS_MARKER));
+                String className = entry.getKey() + (comments ? "Commented" : "Plain");
+                Path file = tempDir.resolve(className + ".java");
+                Files.writeString(file, wrapInClass(className, code));
+                sources.add(file);
+            }
+        }
+
+        List<String> args = new ArrayList<>(List.of("-d", tempDir.resolve("classes").toString(),
+                "-proc:none", "-classpath", classPathOf(TypeSpec.class)));
+        sources.forEach(file -> args.add(file.toString()));
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        int result = ToolProvider.getSystemJavaCompiler().run(null, null, errors, args.toArray(String[]::new));
+        assertEquals(0, result, errors.toString());
+    }
+
+    /**
+     * Place generated code in a class the way it is meant to be used: the statements in
+     * a method, and the class members after the marker in the class itself.
+     */
+    private static String wrapInClass(String className, String code) {
+        int body = code.indexOf("\n\n") + 2;
+        int marker = code.indexOf(JavaPoetCodeGenerator.CLASS_MEMBERS_MARKER);
+        return code.substring(0, body)
+                + "public class " + className + " {\n"
+                + "    public static JavaFile generate() {\n"
+                + code.substring(body, marker)
+                + "        return javaFile;\n"
+                + "    }\n"
+                + code.substring(marker)
+                + "}\n";
+    }
+
+    private static String classPathOf(Class<?> type) {
+        try {
+            return Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void testLongStringsAreSplitIntoSegments() {
+        String query = "SELECT id, name FROM orders WHERE status = 'OPEN'";
+        CompilationUnit cu = parser.parse("""
+                public class Templates {
+                    private String query = "%s";
+                }
+                """.formatted(query));
+
+        String result = new JavaPoetCodeGenerator(new GeneratorConfig().setMaxStringLiteralBytes(16)).generate(cu);
+
+        String prefix = ".initializer(\"$S\", String.join(\"\", ";
+        int start = result.indexOf(prefix);
+        assertTrue(start >= 0);
+        String joined = result.substring(start + prefix.length(), result.indexOf("))", start));
+        StringBuilder rejoined = new StringBuilder();
+        for (String segment : joined.split(", (?=\")")) {
+            String value = segment.substring(1, segment.length() - 1);
+            assertTrue(value.length() <= 16, segment);
+            rejoined.append(value);
+        }
+        assertEquals(query, rejoined.toString());
+        assertTrue(codeGenerator.generate(cu).contains(".initializer(\"$S\", \"" + query + "\")"));
+    }
+
+    @Test
+    void testStringSegmentsCountEncodedBytes() {
+        // 'é' takes two bytes and the emoji two surrogates of three bytes each
+        CompilationUnit cu = parser.parse("""
+                public class Text {
+                    private String text = "éééé\uD83D\uDE00é";
+                }
+                """);
+
+        String result = new JavaPoetCodeGenerator(new GeneratorConfig().setMaxStringLiteralBytes(7)).generate(cu);
+
+        assertTrue(result.contains("String.join(\"\", \"ééé\", \"é\", \"\uD83D\uDE00\", \"é\")"), result);
+    }
+
+    @Test
+    void testStatementStringsAreEscaped() {
+        CompilationUnit cu = parser.parse("""
+                public class Greeter {
+                    public String greet(String name) {
+                        if (name.equals("")) {
+                            throw new IllegalArgumentException("name");
+                        }
+                        return "Hello " + name;
+                    }
+                }
+                """);
+
+        String result = codeGenerator.generate(cu);
+
+        assertTrue(result.contains(".beginControlFlow(\"if (name.equals(\\\"\\\"))\")"));
+        assertTrue(result.contains(".addStatement(\"throw new IllegalArgumentException(\\\"name\\\")\")"));
+        assertTrue(result.contains(".addStatement(\"return \\\"Hello \\\" + name\")"));
+    }
+
+    @Test
+    void testGenerateToAppendableMatchesString() throws IOException {
+        for (String source : SOURCES) {
+            CompilationUnit cu = parser.parse(source);
+            StringWriter writer = new StringWriter();
+
+            codeGenerator.generate(cu, writer);
+
+            assertEquals(codeGenerator.generate(cu), writer.toString());
+        }
+    }
+
+    @Test
+    void testGenerateToAppendablePropagatesIOException() {
+        CompilationUnit cu = parser.parse(SOURCES.get(0));
+        Appendable failing = new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        IOException e = assertThrows(IOException.class, () -> codeGenerator.generate(cu, failing));
+        assertEquals("disk full", e.getMessage());
+    }
+
+    @Test
+    void testConcurrentGenerationIsByteIdentical() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (String source : SOURCES) {
+            expected.add(codeGenerator.generate(parser.parse(source)));
+        }
+
+        int threads = 8;
+        int iterations = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    // Each thread parses its own units, so only the generator is shared
+                    List<CompilationUnit> units = new ArrayList<>();
+                    for (String source : SOURCES) {
+                        units.add(parser.parse(source));
+                    }
+                    start.await();
+                    List<String> mismatches = new ArrayList<>();
+                    for (int i = 0; i < iterations; i++) {
+                        int index = (offset + i) % units.size();
+                        String actual = codeGenerator.generate(units.get(index));
+                        if (!expected.get(index).equals(actual)) {
+                            mismatches.add("source " + index + " at iteration " + i);
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+            start.countDown();
+
+            for (Future<List<String>> future : futures) {
+                assertEquals(List.of(), future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSharedJavaPoetGeneratorAcrossThreads() throws Exception {
+        JavaPoetGenerator generator = new JavaPoetGenerator(new GeneratorConfig().setParserPoolSize(2));
+        List<String> expected = SOURCES.stream().map(generator::generateFromSource).toList();
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                String source = SOURCES.get(i % SOURCES.size());
+                futures.add(executor.submit(() -> generator.generateFromSource(source)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(expected.get(i % SOURCES.size()), futures.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGenerateWithMemberFilter() {
+        CompilationUnit cu = parser.parse(SOURCES.get(0));
+
+        String code = codeGenerator.generate(cu, member -> member.kind() == MemberFilter.Kind.METHOD);
+
+        assertTrue(code.contains("MethodSpec getName"));
+        assertFalse(code.contains("nameField"));
+        assertTrue(code.contains("TypeSpec.classBuilder(\"Plain\")"));
+        assertEquals(codeGenerator.generate(cu), codeGenerator.generate(cu, MemberFilter.ALL));
+    }
+
+    @Test
+    void testGenerateForTargetMember() {
+        CompilationUnit cu = parser.parse(SOURCES.get(1));
+        MethodDeclaration second = cu.findAll(MethodDeclaration.class).get(1);
+        // A node inside the body selects the method around it, not its overload
+        MethodCallExpr call = second.findFirst(MethodCallExpr.class).orElseThrow();
+
+        String code = codeGenerator.generate(cu, call);
+
+        assertTrue(code.contains("TypeSpec.classBuilder(\"Generic\")"));
+        assertTrue(code.contains("fallback"));
+        assertEquals(1, code.split("MethodSpec.methodBuilder", -1).length - 1);
+        assertEquals(code, codeGenerator.generate(cu, second));
+    }
+
+    @Test
+    void testGenerateForTargetInNestedType() {
+        CompilationUnit cu = parser.parse("""
+                package com.example;
+
+                public class Outer {
+                    public void outerMethod() {
+                    }
+
+                    static class Inner {
+                        private int count;
+
+                        int next() {
+                            return ++count;
+                        }
+                    }
+                }
+                """);
+        ClassOrInterfaceDeclaration inner = cu.findFirst(ClassOrInterfaceDeclaration.class,
+                type -> type.getNameAsString().equals("Inner")).orElseThrow();
+
+        String typeCode = codeGenerator.generate(cu, inner);
+        assertTrue(typeCode.contains("TypeSpec.classBuilder(\"Inner\")"));
+        assertTrue(typeCode.contains("countField"));
+        assertTrue(typeCode.contains("methodBuilder(\"next\")"));
+        assertFalse(typeCode.contains("outerMethod"));
+
+        String methodCode = codeGenerator.generate(cu, inner.getMethodsByName("next").get(0));
+        assertTrue(methodCode.contains("methodBuilder(\"next\")"));
+        assertFalse(methodCode.contains("countField"));
+
+        // A node outside any type selects the whole file
+        assertEquals(codeGenerator.generate(cu), codeGenerator.generate(cu, cu.getPackageDeclaration().orElseThrow()));
+    }
+
+    @Test
+    void testGenerateForTargetAppliesMemberRules() {
+        CompilationUnit cu = parser.parse("""
+                public class Account {
+                    private long balance;
+
+                    public long getBalance() {
+                        return balance;
+                    }
+
+                    private void audit() {
+                    }
+                }
+                """);
+        JavaPoetCodeGenerator generator = new JavaPoetCodeGenerator(new GeneratorConfig()
+                .addExclude("visibility:private"));
+        ClassOrInterfaceDeclaration account = cu.getClassByName("Account").orElseThrow();
+
+        String typeCode = generator.generate(cu, account);
+        assertTrue(typeCode.contains("methodBuilder(\"getBalance\")"));
+        assertFalse(typeCode.contains("balanceField"));
+        assertFalse(typeCode.contains("audit"));
+
+        // An explicitly selected member is generated even though the rules exclude it
+        String memberCode = generator.generate(cu, account.getMethodsByName("audit").get(0));
+        assertTrue(memberCode.contains("methodBuilder(\"audit\")"));
+        assertFalse(memberCode.contains("getBalance"));
+    }
+
+    @Test
+    void testGenerateForTargetOfAnotherUnitIsRejected() {
+        CompilationUnit cu = parser.parse(SOURCES.get(0));
+        CompilationUnit other = parser.parse(SOURCES.get(1));
+
+        assertThrows(IllegalArgumentException.class, () -> codeGenerator.generate(cu, other.getType(0)));
+    }
+}
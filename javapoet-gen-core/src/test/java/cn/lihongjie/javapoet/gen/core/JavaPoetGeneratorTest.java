@@ -1,7 +1,23 @@
 package cn.lihongjie.javapoet.gen.core;
 
+import cn.lihongjie.javapoet.gen.core.model.JavaParserModelReader;
+import cn.lihongjie.javapoet.gen.core.model.SourceFile;
+import cn.lihongjie.javapoet.gen.core.model.SourceModelReader;
+import com.github.javaparser.ast.CompilationUnit;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.TypeSpec;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -258,4 +274,183 @@ class JavaPoetGeneratorTest {
         assertTrue(result.contains("import com.squareup.javapoet.JavaFile;"));
         assertTrue(result.contains("import javax.lang.model.element.Modifier;"));
     }
+
+    @Test
+    void testGenerateToFile(@TempDir Path tempDir) throws IOException {
+        String source = """
+                package com.example;
+                
+                public class Streamed {
+                    private int value;
+                }
+                """;
+        Path outputFile = tempDir.resolve("StreamedGenerator.java");
+
+        generator.generateToFile(source, outputFile);
+
+        assertEquals(generator.generateFromSource(source), Files.readString(outputFile));
+    }
+
+    @Test
+    void testToJavaFiles() {
+        List<JavaFile> javaFiles = generator.toJavaFiles("""
+                package com.example;
+
+                public class Greeter {
+                    public String greet(String name) {
+                        return "Hello, " + name;
+                    }
+                }
+
+                enum Mood {
+                    HAPPY, SAD
+                }
+                """, "Greeter.java");
+
+        assertEquals(2, javaFiles.size());
+        assertEquals("Greeter", javaFiles.get(0).typeSpec.name);
+        assertEquals("Mood", javaFiles.get(1).typeSpec.name);
+        assertTrue(javaFiles.get(0).toString().contains("return \"Hello, \" + name;"));
+    }
+
+    @Test
+    void testSliceSourceText() {
+        String source = "public class Calc {\r\n"
+                + "\tpublic int sum(int[] values) {\r\n"
+                + "\t\tint total=0;\r\n"
+                + "\t\tfor (int v : values) total+=v;\r\n"
+                + "\t\tlog(\"total=\"+total, // running sum\r\n"
+                + "\t\t\tvalues.length);\r\n"
+                + "\t\treturn total*2;\r\n"
+                + "\t}\r\n"
+                + "}\r\n";
+        JavaPoetGenerator slicing = new JavaPoetGenerator(new GeneratorConfig().setSliceSourceText(true));
+
+        String printed = generator.generateFromSource(source, "Calc.java");
+        String sliced = slicing.generateFromSource(source, "Calc.java");
+
+        assertTrue(printed.contains(".addStatement(\"int total = 0\")"));
+        assertTrue(printed.contains(".addStatement(\"return total * 2\")"));
+        // Source formatting is kept for single-line text
+        assertTrue(sliced.contains(".addStatement(\"int total=0\")"));
+        assertTrue(sliced.contains(".addStatement(\"total+=v\")"));
+        assertTrue(sliced.contains(".addStatement(\"return total*2\")"));
+        // Text spanning lines or holding a comment is printed
+        assertEquals(printed.lines().filter(line -> line.contains("log(")).toList(),
+                sliced.lines().filter(line -> line.contains("log(")).toList());
+        assertTrue(sliced.contains("\\\"total=\\\" + total, values.length)"));
+    }
+
+    @Test
+    void testLeanParseProfile() {
+        String source = """
+                /** Adds one. */
+                public class Lean {
+                    public int next(int x) {
+                        // increment
+                        return x + 1;
+                    }
+                }
+                """;
+        JavaPoetGenerator lean = new JavaPoetGenerator(
+                new GeneratorConfig().setGenerateComments(false).setPreserveJavadoc(false));
+
+        String result = lean.generateFromSource(source, "Lean.java");
+
+        assertTrue(result.contains(".addStatement(\"return x + 1\")"));
+        assertFalse(result.contains("addJavadoc"));
+        assertFalse(result.contains("increment"));
+        assertTrue(generator.generateFromSource(source, "Lean.java").contains("addJavadoc"));
+    }
+
+    @Test
+    void testParseCacheSharedAcrossThreads() throws Exception {
+        JavaPoetGenerator caching = new JavaPoetGenerator(new GeneratorConfig().setParseCacheSize(4));
+        String source = """
+                public class Shared {
+                    public int twice(int x) {
+                        return x * 2;
+                    }
+                }
+                """;
+        String expected = generator.generateFromSource(source, "Shared.java");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> caching.generateFromSource(source, "Shared.java")));
+            }
+            for (Future<String> future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        CacheStats stats = caching.getParseCache().orElseThrow().stats();
+        assertEquals(32, stats.requestCount());
+        assertTrue(stats.hitCount() > 0);
+    }
+
+    @Test
+    void testGenerateFromModelOfAnyReader() throws IOException {
+        String source = """
+                public class Modeled {
+                    public String greet(String name) {
+                        return "Hi, " + name;
+                    }
+                }
+                """;
+        SourceModelReader<CompilationUnit> reader = new JavaParserModelReader();
+        SourceFile model = reader.read(new JavaSourceParser().parse(source));
+
+        StringBuilder out = new StringBuilder();
+        generator.generateFromModel(model, out);
+
+        assertEquals(generator.generateFromSource(source, "Modeled.java"), out.toString());
+    }
+
+    @Test
+    void testMemberRulesFilterGeneratedMembers() {
+        String source = """
+                package com.example;
+
+                public class Api {
+                    private int count;
+                    public String name;
+
+                    public String getName() {
+                        return name;
+                    }
+
+                    @Deprecated
+                    public void reset() {
+                        count = 0;
+                    }
+
+                    private void helper() {
+                    }
+                }
+
+                interface Listener {
+                    void onEvent(String event);
+                }
+                """;
+        JavaPoetGenerator filtering = new JavaPoetGenerator(new GeneratorConfig()
+                .addInclude("visibility:public")
+                .addExclude("annotation:Deprecated"));
+
+        String code = filtering.generateFromSource(source, "Api.java");
+        assertTrue(code.contains("nameField"));
+        assertTrue(code.contains("methodBuilder(\"getName\")"));
+        // Interface members are implicitly public
+        assertTrue(code.contains("methodBuilder(\"onEvent\")"));
+        assertFalse(code.contains("countField"));
+        assertFalse(code.contains("methodBuilder(\"reset\")"));
+        assertFalse(code.contains("methodBuilder(\"helper\")"));
+
+        TypeSpec api = filtering.toJavaFiles(source, "Api.java").get(0).typeSpec;
+        assertEquals(List.of("name"), api.fieldSpecs.stream().map(field -> field.name).toList());
+        assertEquals(List.of("getName"), api.methodSpecs.stream().map(method -> method.name).toList());
+    }
 }
@@ -0,0 +1,239 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.lang.model.element.Modifier;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JavaPoetSpecGenerator.
+ */
+class JavaPoetSpecGeneratorTest {
+
+    private JavaSourceParser parser;
+    private JavaPoetSpecGenerator specGenerator;
+
+    @BeforeEach
+    void setUp() {
+        parser = new JavaSourceParser();
+        specGenerator = new JavaPoetSpecGenerator();
+    }
+
+    @Test
+    void testClassSpec() {
+        CompilationUnit cu = parser.parse("""
+                package com.example;
+
+                import java.time.LocalDate;
+                import java.util.List;
+
+                /**
+                 * A person.
+                 */
+                public class Person {
+                    private static final String PREFIX = "Mr. \\"X\\"";
+                    private String name;
+                    private List<LocalDate> dates;
+
+                    public Person(String name) {
+                        this.name = name;
+                    }
+
+                    @Override
+                    public String toString() {
+                        return PREFIX + name;
+                    }
+                }
+                """);
+
+        List<TypeSpec> specs = specGenerator.toTypeSpecs(cu);
+
+        assertEquals(1, specs.size());
+        TypeSpec person = specs.get(0);
+        assertEquals("Person", person.name);
+        assertEquals(TypeSpec.Kind.CLASS, person.kind);
+        assertTrue(person.modifiers.contains(Modifier.PUBLIC));
+        assertEquals("A person.\n", person.javadoc.toString());
+
+        assertEquals(3, person.fieldSpecs.size());
+        FieldSpec prefix = person.fieldSpecs.get(0);
+        assertEquals(ClassName.get(String.class), prefix.type);
+        assertEquals("\"Mr. \\\"X\\\"\"", prefix.initializer.toString());
+        FieldSpec dates = person.fieldSpecs.get(2);
+        assertEquals(ParameterizedTypeName.get(ClassName.get(List.class), ClassName.get("java.time", "LocalDate")),
+                dates.type);
+
+        assertEquals(2, person.methodSpecs.size());
+        MethodSpec constructor = person.methodSpecs.get(0);
+        assertTrue(constructor.isConstructor());
+        assertEquals("this.name = name;\n", constructor.code.toString());
+        MethodSpec toString = person.methodSpecs.get(1);
+        assertEquals(ClassName.get(String.class), toString.returnType);
+        assertEquals(ClassName.get(Override.class), toString.annotations.get(0).type);
+        assertEquals("return PREFIX + name;\n", toString.code.toString());
+    }
+
+    @Test
+    void testInterfaceAndTypeVariables() {
+        CompilationUnit cu = parser.parse("""
+                import java.util.List;
+
+                public interface Repository<T> extends Iterable<T> {
+                    int LIMIT = 10;
+
+                    <R extends Comparable<R>> List<R> find(T example, String... names);
+
+                    default boolean isEmpty() {
+                        return !iterator().hasNext();
+                    }
+                }
+                """);
+
+        TypeSpec repository = specGenerator.toTypeSpecs(cu).get(0);
+
+        assertEquals(TypeSpec.Kind.INTERFACE, repository.kind);
+        assertEquals(List.of(TypeVariableName.get("T")), repository.typeVariables);
+        assertEquals(ParameterizedTypeName.get(ClassName.get("", "Iterable"), TypeVariableName.get("T")),
+                repository.superinterfaces.get(0));
+
+        MethodSpec find = repository.methodSpecs.get(0);
+        assertTrue(find.modifiers.contains(Modifier.ABSTRACT));
+        assertTrue(find.varargs);
+        assertEquals(TypeVariableName.get("T"), find.parameters.get(0).type);
+        TypeVariableName r = find.typeVariables.get(0);
+        assertEquals("R", r.name);
+        assertEquals(ParameterizedTypeName.get(ClassName.get("", "Comparable"), TypeVariableName.get("R")),
+                r.bounds.get(0));
+    }
+
+    @Test
+    void testEnumSpec() {
+        CompilationUnit cu = parser.parse("""
+                public enum Planet {
+                    MERCURY(3.303e+23),
+                    EARTH(5.976e+24);
+
+                    private final double mass;
+
+                    Planet(double mass) {
+                        this.mass = mass;
+                    }
+                }
+                """);
+
+        TypeSpec planet = specGenerator.toTypeSpecs(cu).get(0);
+
+        assertEquals(TypeSpec.Kind.ENUM, planet.kind);
+        assertEquals(List.of("MERCURY", "EARTH"), List.copyOf(planet.enumConstants.keySet()));
+        assertEquals("3.303e+23", planet.enumConstants.get("MERCURY").anonymousTypeArguments.toString());
+        assertEquals(TypeName.DOUBLE, planet.fieldSpecs.get(0).type);
+        assertTrue(planet.methodSpecs.get(0).isConstructor());
+    }
+
+    @Test
+    void testControlFlow() {
+        CompilationUnit cu = parser.parse("""
+                public class Flow {
+                    public int classify(int value) {
+                        if (value < 0) {
+                            return -1;
+                        } else if (value == 0) {
+                            return 0;
+                        } else {
+                            return 1;
+                        }
+                    }
+                }
+                """);
+
+        MethodSpec classify = specGenerator.toTypeSpecs(cu).get(0).methodSpecs.get(0);
+
+        assertEquals("""
+                if (value < 0) {
+                  return -1;
+                } else if (value == 0) {
+                  return 0;
+                } else {
+                  return 1;
+                }
+                """, classify.code.toString());
+    }
+
+    @Test
+    void testJavaFilesCompile(@TempDir Path tempDir) throws Exception {
+        CompilationUnit cu = parser.parse("""
+                package com.example;
+
+                import java.io.IOException;
+                import java.util.ArrayList;
+                import java.util.List;
+
+                public class Inventory<T extends Comparable<T>> {
+                    private final List<T> items = new ArrayList<>();
+
+                    @SuppressWarnings({"unchecked", "rawtypes"})
+                    public void add(T item) throws IOException {
+                        for (T existing : items) {
+                            if (existing.compareTo(item) == 0) {
+                                throw new IOException("duplicate: " + item);
+                            }
+                        }
+                        try {
+                            items.add(item);
+                        } catch (RuntimeException | Error e) {
+                            throw e;
+                        } finally {
+                            int size = items.size();
+                        }
+                    }
+
+                    enum State {
+                        OPEN, CLOSED
+                    }
+                }
+                """);
+
+        List<JavaFile> javaFiles = specGenerator.toJavaFiles(cu);
+
+        assertEquals(1, javaFiles.size());
+        assertEquals("com.example", javaFiles.get(0).packageName);
+        javaFiles.get(0).writeTo(tempDir);
+        Path source = tempDir.resolve("com/example/Inventory.java");
+        assertTrue(Files.exists(source));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int result = compiler.run(null, null, null, "-d", tempDir.resolve("classes").toString(), source.toString());
+        assertEquals(0, result, javaFiles.get(0).toString());
+    }
+
+    @Test
+    void testPreserveJavadocOption() {
+        CompilationUnit cu = parser.parse("""
+                /** Documented. */
+                public class Doc {
+                }
+                """);
+
+        JavaPoetSpecGenerator generator = new JavaPoetSpecGenerator(new GeneratorConfig().setPreserveJavadoc(false));
+
+        assertEquals("Documented.\n", specGenerator.toTypeSpecs(cu).get(0).javadoc.toString());
+        assertTrue(generator.toTypeSpecs(cu).get(0).javadoc.isEmpty());
+    }
+}
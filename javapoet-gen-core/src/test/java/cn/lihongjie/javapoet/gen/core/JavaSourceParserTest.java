@@ -1,5 +1,6 @@
 package cn.lihongjie.javapoet.gen.core;
 
+import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,6 +9,11 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -196,4 +202,62 @@ class JavaSourceParserTest {
         assertTrue(classDecl.isPresent());
         assertFalse(classDecl.get().getTypeParameters().isEmpty());
     }
+
+    @Test
+    void testConcurrentParsingWithSharedParser() throws Exception {
+        JavaSourceParser sharedParser = new JavaSourceParser(2);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<CompilationUnit>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                String source = "public class Concurrent" + i + " { int value" + i + "; }";
+                futures.add(executor.submit(() -> sharedParser.parse(source)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                CompilationUnit cu = futures.get(i).get();
+                var classDecl = cu.getClassByName("Concurrent" + i);
+                assertTrue(classDecl.isPresent());
+                assertTrue(classDecl.get().getFieldByName("value" + i).isPresent());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, sharedParser.getPoolSize());
+    }
+
+    @Test
+    void testLeanProfileWithoutCommentsAndJavadoc() {
+        String source = """
+                /** Docs. */
+                public class Lean {
+                    int next(int x) {
+                        // increment
+                        return x + 1;
+                    }
+                }
+                """;
+        GeneratorConfig config = new GeneratorConfig().setGenerateComments(false).setPreserveJavadoc(false);
+        CompilationUnit cu = new JavaSourceParser(config).parse(source);
+
+        var classDecl = cu.getClassByName("Lean").orElseThrow();
+        assertTrue(classDecl.getJavadoc().isEmpty());
+        assertTrue(classDecl.getMethodsByName("next").get(0).getBody().orElseThrow()
+                .getStatement(0).getComment().isEmpty());
+
+        ParserConfiguration lean = JavaSourceParser.parserConfiguration(config);
+        assertFalse(lean.isAttributeComments());
+        assertFalse(lean.isStoreTokens());
+        // Printed text keeps the line separator of the source on every platform
+        assertTrue(lean.isDetectOriginalLineSeparator());
+        // Node ranges come from tokens, so they are kept when source text is sliced
+        assertTrue(JavaSourceParser.parserConfiguration(config.setSliceSourceText(true)).isStoreTokens());
+        assertTrue(JavaSourceParser.parserConfiguration(new GeneratorConfig().setGenerateComments(false))
+                .isAttributeComments());
+    }
+
+    @Test
+    void testInvalidPoolSizeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new JavaSourceParser(0));
+    }
 }
@@ -0,0 +1,84 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import cn.lihongjie.javapoet.gen.core.model.MemberFilter.Kind;
+import cn.lihongjie.javapoet.gen.core.model.MemberFilter.Member;
+import cn.lihongjie.javapoet.gen.core.model.MemberFilter.Visibility;
+import cn.lihongjie.javapoet.gen.core.model.TypeModel;
+import org.junit.jupiter.api.Test;
+
+import javax.lang.model.element.Modifier;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MemberRule.
+ */
+class MemberRuleTest {
+
+    private static Member method(String name, List<Modifier> modifiers, String... annotations) {
+        return new Member(Kind.METHOD, name, modifiers, List.of(annotations), TypeModel.Kind.CLASS);
+    }
+
+    @Test
+    void testAllConditionsMustMatch() {
+        MemberRule rule = MemberRule.parse("kind:method, visibility:public|protected, name:get*");
+
+        assertTrue(rule.accept(method("getName", List.of(Modifier.PUBLIC))));
+        assertTrue(rule.accept(method("getId", List.of(Modifier.PROTECTED, Modifier.FINAL))));
+        assertFalse(rule.accept(method("getName", List.of(Modifier.PRIVATE))));
+        assertFalse(rule.accept(method("setName", List.of(Modifier.PUBLIC))));
+        assertFalse(rule.accept(new Member(Kind.FIELD, "getter", List.of(Modifier.PUBLIC), List.of(),
+                TypeModel.Kind.CLASS)));
+    }
+
+    @Test
+    void testNameGlob() {
+        MemberRule rule = MemberRule.parse("name:is?ctive|*$impl");
+
+        assertTrue(rule.accept(method("isActive", List.of())));
+        assertTrue(rule.accept(method("run$impl", List.of())));
+        assertFalse(rule.accept(method("isInactive", List.of())));
+        assertFalse(rule.accept(method("runXimpl", List.of())));
+    }
+
+    @Test
+    void testAnnotationMatchesSimpleOrQualifiedName() {
+        MemberRule simple = MemberRule.parse("annotation:Deprecated");
+        MemberRule qualified = MemberRule.parse("annotation:javax.annotation.Nullable");
+
+        assertTrue(simple.accept(method("old", List.of(), "Deprecated")));
+        assertTrue(simple.accept(method("old", List.of(), "java.lang.Deprecated")));
+        assertFalse(simple.accept(method("old", List.of())));
+        assertTrue(qualified.accept(method("find", List.of(), "Nullable")));
+        assertTrue(qualified.accept(method("find", List.of(), "javax.annotation.Nullable")));
+        assertFalse(qualified.accept(method("find", List.of(), "org.jetbrains.annotations.Nullable")));
+    }
+
+    @Test
+    void testImplicitVisibility() {
+        Member interfaceMethod = new Member(Kind.METHOD, "run", List.of(Modifier.ABSTRACT), List.of(),
+                TypeModel.Kind.INTERFACE);
+        Member enumConstructor = new Member(Kind.CONSTRUCTOR, "Color", List.of(), List.of(),
+                TypeModel.Kind.ENUM);
+
+        assertEquals(Visibility.PUBLIC, interfaceMethod.visibility());
+        assertEquals(Visibility.PRIVATE, enumConstructor.visibility());
+        assertEquals(Visibility.PACKAGE, method("run", List.of()).visibility());
+        assertTrue(MemberRule.parse("visibility:public").accept(interfaceMethod));
+    }
+
+    @Test
+    void testMalformedRulesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> MemberRule.parse(" "));
+        assertThrows(IllegalArgumentException.class, () -> MemberRule.parse("public"));
+        assertThrows(IllegalArgumentException.class, () -> MemberRule.parse("kind:"));
+        assertThrows(IllegalArgumentException.class, () -> MemberRule.parse("kind:method|"));
+        assertThrows(IllegalArgumentException.class, () -> MemberRule.parse("visibility:internal"));
+        assertThrows(IllegalArgumentException.class, () -> MemberRule.parse("type:method"));
+        // Alternatives go in one condition, so a repeated key is an error rather than an implicit OR
+        assertThrows(IllegalArgumentException.class, () -> MemberRule.parse("kind:field,kind:method"));
+        assertThrows(IllegalArgumentException.class, () -> MemberRule.parse("name:get*,Name:is*"));
+        assertEquals("kind:method", MemberRule.parse(" kind:method ").toString());
+    }
+}
@@ -0,0 +1,109 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OutputCache.
+ */
+class OutputCacheTest {
+
+    @Test
+    void testKeyCoversSourceAndConfig() {
+        String fingerprint = new GeneratorConfig().fingerprint();
+        String key = OutputCache.key("class A {}", fingerprint);
+
+        assertEquals(64, key.length());
+        assertEquals(key, OutputCache.key("class A {}", fingerprint));
+        assertNotEquals(key, OutputCache.key("class B {}", fingerprint));
+        assertNotEquals(key, OutputCache.key("class A {}",
+                new GeneratorConfig().setHoistTypeNames(true).fingerprint()));
+    }
+
+    @Test
+    void testMemoryTierEvictsLeastRecentlyUsed() {
+        OutputCache cache = new OutputCache(2, 1024);
+        cache.put("a", "output a");
+        cache.put("b", "output b");
+        cache.get("a");
+        cache.put("c", "output c");
+
+        assertEquals("output a", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(2, cache.size());
+        assertEquals(new CacheStats(2, 1, 1), cache.stats());
+    }
+
+    @Test
+    void testMemoryTierEvictsByWeight() {
+        OutputCache cache = new OutputCache(16, 20);
+        cache.put("a", "0123456789");
+        cache.put("b", "0123456789");
+        cache.put("c", "0123456789");
+
+        assertEquals(2, cache.size());
+        assertEquals(20, cache.weight());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void testDiskTierSharedBetweenInstances(@TempDir Path tempDir) throws IOException {
+        String key = OutputCache.key("class A {}", new GeneratorConfig().fingerprint());
+        new OutputCache(16, 1024, tempDir).put(key, "generated");
+
+        OutputCache other = new OutputCache(16, 1024, tempDir);
+        assertEquals(0, other.size());
+        assertEquals("generated", other.get(key));
+        // Promoted to memory
+        assertEquals(1, other.size());
+        assertEquals(new CacheStats(1, 0, 0), other.stats());
+
+        // Only the entry itself is left in the directory
+        try (var files = Files.walk(tempDir)) {
+            assertEquals(List.of(tempDir.resolve(key.substring(0, 2)).resolve(key)),
+                    files.filter(Files::isRegularFile).toList());
+        }
+    }
+
+    @Test
+    void testGeneratorUsesCache(@TempDir Path tempDir) {
+        String source = """
+                public class Cached {
+                    public int twice(int x) {
+                        return x * 2;
+                    }
+                }
+                """;
+        OutputCache cache = new OutputCache(16, 1 << 20, tempDir);
+        JavaPoetGenerator generator = new JavaPoetGenerator(new GeneratorConfig(), cache);
+        String expected = new JavaPoetGenerator().generateFromSource(source, "Cached.java");
+
+        assertEquals(expected, generator.generateFromSource(source, "Cached.java"));
+        assertEquals(expected, generator.generateFromSource(source, "Cached.java"));
+        assertEquals(new CacheStats(1, 1, 0), cache.stats());
+
+        // A different configuration does not reuse the output
+        JavaPoetGenerator hoisting = new JavaPoetGenerator(new GeneratorConfig().setHoistTypeNames(true), cache);
+        hoisting.generateFromSource(source, "Cached.java");
+        assertEquals(2, cache.stats().missCount());
+
+        // A new generator over the same directory finds the output on disk
+        OutputCache restarted = new OutputCache(16, 1 << 20, tempDir);
+        assertEquals(expected, new JavaPoetGenerator(new GeneratorConfig(), restarted)
+                .generateFromSource(source, "Cached.java"));
+        assertEquals(new CacheStats(1, 0, 0), restarted.stats());
+    }
+
+    @Test
+    void testInvalidLimitsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new OutputCache(0, 1024));
+        assertThrows(IllegalArgumentException.class, () -> new OutputCache(16, 0));
+    }
+}
@@ -0,0 +1,100 @@
+package cn.lihongjie.javapoet.gen.core;
+
+import com.github.javaparser.ast.CompilationUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ParseCache.
+ */
+class ParseCacheTest {
+
+    private final JavaSourceParser parser = new JavaSourceParser(1);
+
+    @Test
+    void testHitAndMissCounted() {
+        ParseCache cache = new ParseCache(4, 1024);
+        String source = "class A {}";
+        CompilationUnit cu = parser.parse(source);
+
+        assertNull(cache.get(source));
+        cache.put(source, cu);
+        // An equal string, not only the same instance, hits
+        assertSame(cu, cache.get(new String(source)));
+
+        assertEquals(new CacheStats(1, 1, 0), cache.stats());
+        assertEquals(0.5, cache.stats().hitRate());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvictedBySize() {
+        ParseCache cache = new ParseCache(2, 1024);
+        cache.put("class A {}", parser.parse("class A {}"));
+        cache.put("class B {}", parser.parse("class B {}"));
+        cache.get("class A {}");
+        cache.put("class C {}", parser.parse("class C {}"));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("class A {}"));
+        assertNull(cache.get("class B {}"));
+        assertEquals(1, cache.stats().evictionCount());
+    }
+
+    @Test
+    void testEvictedByWeight() {
+        ParseCache cache = new ParseCache(16, 25);
+        cache.put("class A {}", parser.parse("class A {}"));
+        cache.put("class B {}", parser.parse("class B {}"));
+        assertEquals(20, cache.weight());
+
+        cache.put("class C {}", parser.parse("class C {}"));
+
+        assertEquals(2, cache.size());
+        assertEquals(20, cache.weight());
+        assertNull(cache.get("class A {}"));
+    }
+
+    @Test
+    void testSourceHeavierThanCacheNotCached() {
+        ParseCache cache = new ParseCache(16, 5);
+        cache.put("class A {}", parser.parse("class A {}"));
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+    }
+
+    @Test
+    void testReplacingEntryKeepsWeight() {
+        ParseCache cache = new ParseCache(16, 1024);
+        CompilationUnit second = parser.parse("class A {}");
+        cache.put("class A {}", parser.parse("class A {}"));
+        cache.put("class A {}", second);
+
+        assertEquals(1, cache.size());
+        assertEquals(10, cache.weight());
+        assertSame(second, cache.get("class A {}"));
+    }
+
+    @Test
+    void testParserUsesCache() {
+        JavaSourceParser cachingParser = new JavaSourceParser(new GeneratorConfig().setParseCacheSize(8));
+        ParseCache cache = cachingParser.getParseCache().orElseThrow();
+
+        CompilationUnit first = cachingParser.parse("class A {}", "A.java");
+        CompilationUnit second = cachingParser.parse("class A {}", "A.java");
+
+        assertSame(first, second);
+        assertEquals(new CacheStats(1, 1, 0), cache.stats());
+        assertTrue(parser.getParseCache().isEmpty());
+        // Failed parses are not cached
+        assertThrows(JavaPoetGenException.class, () -> cachingParser.parse("class {", "Bad.java"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testInvalidLimitsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ParseCache(0, 1024));
+        assertThrows(IllegalArgumentException.class, () -> new ParseCache(16, 0));
+    }
+}
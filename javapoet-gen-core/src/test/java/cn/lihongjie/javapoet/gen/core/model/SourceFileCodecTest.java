@@ -0,0 +1,150 @@
+package cn.lihongjie.javapoet.gen.core.model;
+
+import cn.lihongjie.javapoet.gen.core.JavaPoetGenException;
+import cn.lihongjie.javapoet.gen.core.JavaSourceParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.lang.model.element.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JavaParserModelReader and SourceFileCodec.
+ */
+class SourceFileCodecTest {
+
+    private static final String SOURCE = """
+            package com.example.orders;
+
+            import java.util.List;
+            import java.util.Map;
+
+            /**
+             * Order service.
+             */
+            @Service("orders")
+            public class OrderService implements Comparable<OrderService> {
+                private static final String PREFIX = "order-\\u00e9", SUFFIX = "!";
+                private final Map<String, List<Order>> byCustomer = new HashMap<>();
+                private Class<?> type = Order.class;
+
+                public OrderService(final @Named("repo") Repository repository) throws IOException {
+                    this.repository = repository;
+                }
+
+                @Override
+                public int compareTo(OrderService other) {
+                    for (Order order : orders) {
+                        if (order == null) {
+                            continue;
+                        } else if (order.isEmpty()) {
+                            return -1;
+                        }
+                    }
+                    try {
+                        process();
+                    } catch (IllegalStateException | IllegalArgumentException e) {
+                        throw new RuntimeException(e);
+                    } finally {
+                        close();
+                    }
+                    return 0;
+                }
+
+                abstract <T extends Order> T[] find(String... ids);
+            }
+
+            enum Status implements Labeled {
+                OPEN("o"), CLOSED("c");
+            }
+            """;
+
+    private JavaParserModelReader reader;
+    private SourceFile model;
+
+    @BeforeEach
+    void setUp() {
+        reader = new JavaParserModelReader();
+        model = reader.read(new JavaSourceParser().parse(SOURCE));
+    }
+
+    @Test
+    void testReadModel() {
+        assertEquals("com.example.orders", model.packageName());
+        assertEquals(2, model.types().size());
+
+        TypeModel service = model.types().get(0);
+        assertEquals(TypeModel.Kind.CLASS, service.kind());
+        assertEquals("OrderService", service.name());
+        assertEquals(List.of(Modifier.PUBLIC), service.modifiers());
+        assertEquals("Comparable<OrderService>", service.implementedTypes().get(0).text());
+        assertTrue(service.javadoc().contains("Order service."));
+        assertEquals("value", service.annotations().get(0).members().get(0).name());
+
+        // One field per declared variable
+        assertEquals(List.of("PREFIX", "SUFFIX", "byCustomer", "type"),
+                service.fields().stream().map(FieldModel::name).toList());
+        assertEquals(ExpressionModel.Kind.STRING_LITERAL, service.fields().get(0).initializer().kind());
+        assertEquals("order-\\u00e9", service.fields().get(0).initializer().text());
+        TypeRef byCustomer = service.fields().get(2).type();
+        assertEquals("Map", byCustomer.name());
+        assertEquals("List", byCustomer.arguments().get(1).name());
+        assertEquals("new HashMap<>()", service.fields().get(2).initializer().text());
+        assertEquals("Order", service.fields().get(3).initializer().type().name());
+
+        MethodModel constructor = service.constructors().get(0);
+        assertTrue(constructor.isConstructor());
+        assertTrue(constructor.parameters().get(0).isFinal());
+
+        MethodModel compareTo = service.methods().get(0);
+        assertEquals(TypeRef.Kind.PRIMITIVE, compareTo.returnType().kind());
+        StatementModel.ForEach loop = (StatementModel.ForEach) compareTo.body().statements().get(0);
+        StatementModel.If ifStmt = (StatementModel.If) ((StatementModel.Block) loop.body()).statements().get(0);
+        assertInstanceOf(StatementModel.If.class, ifStmt.elseStatement());
+        StatementModel.Try tryStmt = (StatementModel.Try) compareTo.body().statements().get(1);
+        assertEquals(TypeRef.Kind.OTHER, tryStmt.catchClauses().get(0).parameterType().kind());
+        assertNotNull(tryStmt.finallyBlock());
+
+        MethodModel find = service.methods().get(1);
+        assertNull(find.body());
+        assertEquals(List.of("T"), find.typeParameters());
+        assertEquals(TypeRef.Kind.ARRAY, find.returnType().kind());
+        assertEquals("T", find.returnType().componentType().name());
+
+        TypeModel status = model.types().get(1);
+        assertEquals(TypeModel.Kind.ENUM, status.kind());
+        assertEquals(List.of("\"o\""), status.enumConstants().get(0).arguments());
+    }
+
+    @Test
+    void testRoundTrip() {
+        byte[] encoded = SourceFileCodec.encode(model);
+
+        assertEquals(model, SourceFileCodec.decode(encoded));
+        // Repeated names and types are stored once
+        assertTrue(encoded.length < SOURCE.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void testEmptyModelRoundTrip() {
+        SourceFile empty = new SourceFile("", List.of());
+
+        assertEquals(empty, SourceFileCodec.decode(SourceFileCodec.encode(empty)));
+    }
+
+    @Test
+    void testDecodeRejectsInvalidData() {
+        byte[] encoded = SourceFileCodec.encode(model);
+
+        assertThrows(JavaPoetGenException.class,
+                () -> SourceFileCodec.decode("not a model".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(JavaPoetGenException.class,
+                () -> SourceFileCodec.decode(Arrays.copyOf(encoded, encoded.length - 3)));
+        assertThrows(JavaPoetGenException.class,
+                () -> SourceFileCodec.decode(Arrays.copyOf(encoded, encoded.length + 1)));
+    }
+}
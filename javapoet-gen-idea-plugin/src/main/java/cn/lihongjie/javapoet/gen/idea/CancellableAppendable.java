@@ -0,0 +1,37 @@
+package cn.lihongjie.javapoet.gen.idea;
+
+import com.intellij.openapi.progress.ProgressManager;
+
+/**
+ * Collects generated code and stops generation as soon as the surrounding task or
+ * read action is cancelled, since the generator writes its output piece by piece.
+ */
+public final class CancellableAppendable implements Appendable {
+
+    private final StringBuilder target;
+
+    public CancellableAppendable(StringBuilder target) {
+        this.target = target;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) {
+        ProgressManager.checkCanceled();
+        target.append(csq);
+        return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+        ProgressManager.checkCanceled();
+        target.append(csq, start, end);
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) {
+        ProgressManager.checkCanceled();
+        target.append(c);
+        return this;
+    }
+}
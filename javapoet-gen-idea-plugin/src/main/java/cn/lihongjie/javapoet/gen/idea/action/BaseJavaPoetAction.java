@@ -1,28 +1,50 @@
 package cn.lihongjie.javapoet.gen.idea.action;
 
 import cn.lihongjie.javapoet.gen.core.JavaPoetGenException;
-import cn.lihongjie.javapoet.gen.core.JavaPoetGenerator;
+import cn.lihongjie.javapoet.gen.idea.service.JavaPoetProjectService;
 import com.intellij.notification.NotificationGroupManager;
 import com.intellij.notification.NotificationType;
 import com.intellij.openapi.actionSystem.ActionUpdateThread;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.progress.impl.BackgroundableProcessIndicator;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiJavaFile;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
 
 /**
  * Base action class for generating JavaPoet code.
+ *
+ * <p>Code is generated in a cancellable background task, so large files do not
+ * freeze the IDE. Only one generation runs per project: starting a new one
+ * cancels the previous run if it is still in progress.</p>
+ *
+ * <p>Java files are read from the PSI tree the IDE already holds, which includes
+ * unsaved changes, so they are not parsed a second time. Generated code is cached
+ * by {@link JavaPoetProjectService}, so running several actions on an unchanged
+ * file generates it once.</p>
  */
 public abstract class BaseJavaPoetAction extends AnAction {
 
-    protected final JavaPoetGenerator generator = new JavaPoetGenerator();
+    /**
+     * Progress indicator of the generation currently running in a project.
+     * Only read and written on the EDT.
+     */
+    private static final Key<ProgressIndicator> RUNNING_GENERATION = Key.create("JavaPoetGen.runningGeneration");
 
     @Override
     public @NotNull ActionUpdateThread getActionUpdateThread() {
@@ -45,16 +67,61 @@ public abstract class BaseJavaPoetAction extends AnAction {
     }
 
     /**
-     * Generate JavaPoet code from the current context.
+     * Generate JavaPoet code for the file of the current context in the background,
+     * cancelling any generation still running in the project. Must be called on the EDT.
+     *
+     * @param e           the action event
+     * @param onGenerated receives the generated code on the EDT, unless the run was cancelled
+     */
+    protected void generateInBackground(AnActionEvent e, Consumer<String> onGenerated) {
+        generateInBackground(e, -1, onGenerated);
+    }
+
+    /**
+     * Generate JavaPoet code for just the member or type at the caret of the current
+     * editor in the background, or for the whole file if there is no editor.
+     * Must be called on the EDT.
+     *
+     * @param e           the action event
+     * @param onGenerated receives the generated code on the EDT, unless the run was cancelled
+     */
+    protected void generateAtCaretInBackground(AnActionEvent e, Consumer<String> onGenerated) {
+        Editor editor = e.getData(CommonDataKeys.EDITOR);
+        // With a selection, the member is the one the selection starts in
+        generateInBackground(e, editor != null ? editor.getSelectionModel().getSelectionStart() : -1, onGenerated);
+    }
+
+    /**
+     * @param offset the offset of the member or type to generate, or -1 for the whole file
      */
-    protected String generateCode(AnActionEvent e) throws IOException, JavaPoetGenException {
+    private void generateInBackground(AnActionEvent e, int offset, Consumer<String> onGenerated) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
         VirtualFile virtualFile = e.getData(CommonDataKeys.VIRTUAL_FILE);
         if (virtualFile == null) {
-            throw new JavaPoetGenException("No file selected");
+            showError(project, "Failed to generate JavaPoet code: No file selected");
+            return;
+        }
+
+        PsiFile psiFile = e.getData(CommonDataKeys.PSI_FILE);
+        if (psiFile instanceof PsiJavaFile) {
+            // Bring the PSI up to date with unsaved editor changes
+            PsiDocumentManager.getInstance(project).commitAllDocuments();
+        }
+
+        ProgressIndicator previous = project.getUserData(RUNNING_GENERATION);
+        if (previous != null) {
+            previous.cancel();
         }
 
-        String sourceCode = new String(virtualFile.contentsToByteArray(), StandardCharsets.UTF_8);
-        return generator.generateFromSource(sourceCode, virtualFile.getName());
+        GenerationTask task = new GenerationTask(project, virtualFile,
+                psiFile instanceof PsiJavaFile javaFile ? javaFile : null, offset, onGenerated);
+        // Created here rather than by the task, so a later run can cancel this one before it starts
+        task.indicator = new BackgroundableProcessIndicator(task);
+        project.putUserData(RUNNING_GENERATION, task.indicator);
+        ProgressManager.getInstance().runProcessWithProgressAsynchronously(task, task.indicator);
     }
 
     /**
@@ -80,4 +147,71 @@ public abstract class BaseJavaPoetAction extends AnAction {
     protected void showSuccess(Project project, String message) {
         showNotification(project, "JavaPoet Generator", message, NotificationType.INFORMATION);
     }
+
+    /**
+     * Reads and generates one file off the EDT. Task callbacks run on the EDT.
+     */
+    private class GenerationTask extends Task.Backgroundable {
+
+        private final VirtualFile virtualFile;
+        private final PsiJavaFile javaFile;
+        private final int offset;
+        private final Consumer<String> onGenerated;
+        private ProgressIndicator indicator;
+        private String generatedCode;
+
+        GenerationTask(Project project, VirtualFile virtualFile, PsiJavaFile javaFile, int offset,
+                       Consumer<String> onGenerated) {
+            super(project, "Generating JavaPoet code", true);
+            this.virtualFile = virtualFile;
+            this.javaFile = javaFile;
+            this.offset = offset;
+            this.onGenerated = onGenerated;
+        }
+
+        @Override
+        public void run(@NotNull ProgressIndicator indicator) {
+            indicator.setIndeterminate(true);
+            indicator.setText("Generating JavaPoet code for " + virtualFile.getName());
+            JavaPoetProjectService service = JavaPoetProjectService.getInstance(myProject);
+            if (javaFile == null) {
+                try {
+                    generatedCode = service.generate(virtualFile);
+                } catch (IOException ex) {
+                    throw new JavaPoetGenException("Failed to read " + virtualFile.getName(), ex);
+                }
+                return;
+            }
+            // Read the PSI in a read action that gives way to write actions and is
+            // restarted after them, so typing is not blocked on large files
+            generatedCode = ReadAction.nonBlocking(() -> {
+                        if (!javaFile.isValid()) {
+                            throw new JavaPoetGenException(virtualFile.getName() + " is no longer valid");
+                        }
+                        PsiElement element = offset >= 0 ? javaFile.findElementAt(offset) : null;
+                        return element != null ? service.generateScope(element) : service.generate(javaFile);
+                    })
+                    .wrapProgress(indicator)
+                    .executeSynchronously();
+        }
+
+        @Override
+        public void onSuccess() {
+            if (!myProject.isDisposed()) {
+                onGenerated.accept(generatedCode);
+            }
+        }
+
+        @Override
+        public void onThrowable(@NotNull Throwable error) {
+            showError(myProject, "Failed to generate JavaPoet code: " + error.getMessage());
+        }
+
+        @Override
+        public void onFinished() {
+            if (!myProject.isDisposed() && myProject.getUserData(RUNNING_GENERATION) == indicator) {
+                myProject.putUserData(RUNNING_GENERATION, null);
+            }
+        }
+    }
 }
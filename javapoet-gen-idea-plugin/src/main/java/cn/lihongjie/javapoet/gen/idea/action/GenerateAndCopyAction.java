@@ -19,16 +19,11 @@ public class GenerateAndCopyAction extends BaseJavaPoetAction {
             return;
         }
 
-        try {
-            String generatedCode = generateCode(e);
-            
+        generateInBackground(e, generatedCode -> {
             // Copy to clipboard
             CopyPasteManager.getInstance().setContents(new StringSelection(generatedCode));
-            
+
             showSuccess(project, "JavaPoet code copied to clipboard!");
-            
-        } catch (Exception ex) {
-            showError(project, "Failed to generate JavaPoet code: " + ex.getMessage());
-        }
+        });
     }
 }
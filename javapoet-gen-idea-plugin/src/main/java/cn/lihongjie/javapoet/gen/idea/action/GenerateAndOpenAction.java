@@ -20,22 +20,17 @@ public class GenerateAndOpenAction extends BaseJavaPoetAction {
             return;
         }
 
-        try {
-            VirtualFile sourceFile = e.getData(CommonDataKeys.VIRTUAL_FILE);
-            String fileName = sourceFile != null ? 
-                    sourceFile.getNameWithoutExtension() + "Generator.java" : 
-                    "GeneratedJavaPoet.java";
-            
-            String generatedCode = generateCode(e);
-            
+        VirtualFile sourceFile = e.getData(CommonDataKeys.VIRTUAL_FILE);
+        String fileName = sourceFile != null ?
+                sourceFile.getNameWithoutExtension() + "Generator.java" :
+                "GeneratedJavaPoet.java";
+
+        generateInBackground(e, generatedCode -> {
             // Create a light virtual file (in-memory, not saved)
             LightVirtualFile virtualFile = new LightVirtualFile(fileName, generatedCode);
-            
+
             // Open in editor
             FileEditorManager.getInstance(project).openFile(virtualFile, true);
-            
-        } catch (Exception ex) {
-            showError(project, "Failed to generate JavaPoet code: " + ex.getMessage());
-        }
+        });
     }
 }
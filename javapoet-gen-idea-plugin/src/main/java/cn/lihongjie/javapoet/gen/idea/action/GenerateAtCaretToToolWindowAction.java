@@ -0,0 +1,44 @@
+package cn.lihongjie.javapoet.gen.idea.action;
+
+import cn.lihongjie.javapoet.gen.idea.service.JavaPoetProjectService;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Action to generate JavaPoet code for only the member or nested type at the caret
+ * and show it in the tool window. Only the selected declaration is read, so this
+ * stays fast in very large classes.
+ */
+public class GenerateAtCaretToToolWindowAction extends BaseJavaPoetAction {
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        PsiFile psiFile = e.getData(CommonDataKeys.PSI_FILE);
+        e.getPresentation().setEnabledAndVisible(psiFile instanceof PsiJavaFile
+                && e.getData(CommonDataKeys.EDITOR) != null);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+
+        generateAtCaretInBackground(e, generatedCode -> {
+            ToolWindow toolWindow = ToolWindowManager.getInstance(project)
+                    .getToolWindow("JavaPoet Generator");
+
+            if (toolWindow != null) {
+                JavaPoetProjectService.getInstance(project).showInToolWindow(generatedCode);
+                toolWindow.show();
+            }
+        });
+    }
+}
@@ -0,0 +1,291 @@
+package cn.lihongjie.javapoet.gen.idea.action;
+
+import cn.lihongjie.javapoet.gen.core.JavaPoetGenException;
+import cn.lihongjie.javapoet.gen.idea.service.JavaPoetProjectService;
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.actionSystem.LangDataKeys;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.fileChooser.FileChooser;
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Action to generate JavaPoet code for every Java file under the selected
+ * directories, packages or modules, into an output directory chosen by the user.
+ *
+ * <p>Files are generated in parallel in one background task with a shared progress
+ * bar, each in its own non-blocking read action, without going through the per-file
+ * cache of the project service. Results are written through the VFS as soon as a batch
+ * of {@link #WRITE_BATCH_SIZE} files is ready, one write action per batch, so the IDE
+ * stays responsive, generated code does not pile up until the end, and the files
+ * written before a cancellation are kept. Generated files keep the directory
+ * layout of their sources and are named like the CLI output, {@code XxxGenerator.java}.
+ * Sources from different roots that would be written to the same path, such as the
+ * same class in a main and a test source root, are reported as failures instead of
+ * overwriting each other.</p>
+ */
+public class GenerateForDirectoryAction extends BaseJavaPoetAction {
+
+    /**
+     * Number of generated files written per write action.
+     */
+    static final int WRITE_BATCH_SIZE = 50;
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null && !selectedRoots(e).isEmpty());
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        List<VirtualFile> roots = selectedRoots(e);
+        if (roots.isEmpty()) {
+            return;
+        }
+
+        VirtualFile outputDir = FileChooser.chooseFile(
+                FileChooserDescriptorFactory.createSingleFolderDescriptor()
+                        .withTitle("Output Directory for Generated JavaPoet Code"),
+                project, null);
+        if (outputDir == null) {
+            return;
+        }
+
+        ProgressManager.getInstance().run(new BulkGenerationTask(project, roots, outputDir));
+    }
+
+    /**
+     * Get the directories to generate from: selected directories, the directories of
+     * selected packages, or the source roots of a selected module.
+     */
+    private static List<VirtualFile> selectedRoots(AnActionEvent e) {
+        List<VirtualFile> roots = new ArrayList<>();
+        VirtualFile[] files = e.getData(CommonDataKeys.VIRTUAL_FILE_ARRAY);
+        if (files != null) {
+            for (VirtualFile file : files) {
+                if (file.isDirectory()) {
+                    roots.add(file);
+                }
+            }
+        }
+        Module module = e.getData(LangDataKeys.MODULE_CONTEXT);
+        if (roots.isEmpty() && module != null) {
+            roots.addAll(List.of(ModuleRootManager.getInstance(module).getSourceRoots(false)));
+        }
+        return roots;
+    }
+
+    /**
+     * A Java file to generate, with its path relative to the selected root.
+     */
+    private record Source(VirtualFile file, String relativeDir) {
+
+        String outputFileName() {
+            return file.getNameWithoutExtension() + "Generator.java";
+        }
+
+        /**
+         * Get the path of the generated file relative to the output directory.
+         */
+        String outputPath() {
+            return relativeDir.isEmpty() ? outputFileName() : relativeDir + "/" + outputFileName();
+        }
+    }
+
+    /**
+     * Code generated for one source.
+     */
+    private record Generated(Source source, String code) {
+    }
+
+    private class BulkGenerationTask extends Task.Backgroundable {
+
+        private final List<VirtualFile> roots;
+        private final VirtualFile outputDir;
+        private final Queue<Generated> generated = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Queue<String> failures = new ConcurrentLinkedQueue<>();
+        private int total;
+
+        BulkGenerationTask(Project project, List<VirtualFile> roots, VirtualFile outputDir) {
+            super(project, "Generating JavaPoet code", true);
+            this.roots = roots;
+            this.outputDir = outputDir;
+        }
+
+        @Override
+        public void run(@NotNull ProgressIndicator indicator) {
+            indicator.setText("Collecting Java files");
+            indicator.setIndeterminate(true);
+            List<Source> sources = ReadAction.compute(() -> collectSources(indicator));
+            total = sources.size();
+            sources = withoutCollisions(sources);
+
+            indicator.setIndeterminate(false);
+            indicator.setText("Generating JavaPoet code for " + total + " file(s)");
+            JavaPoetProjectService service = JavaPoetProjectService.getInstance(myProject);
+            PsiManager psiManager = PsiManager.getInstance(myProject);
+            AtomicInteger done = new AtomicInteger();
+            JobLauncher.getInstance().invokeConcurrentlyUnderProgress(sources, indicator, source -> {
+                boolean batchReady = false;
+                try {
+                    generated.add(new Generated(source, generate(service, psiManager, source.file())));
+                    batchReady = pending.incrementAndGet() >= WRITE_BATCH_SIZE;
+                } catch (JavaPoetGenException | IOException ex) {
+                    failures.add(source.file().getName() + ": " + ex.getMessage());
+                }
+                if (batchReady) {
+                    writeNextBatch();
+                }
+                indicator.setFraction((double) done.incrementAndGet() / total);
+                return true;
+            });
+
+            indicator.setText("Writing generated files");
+            do {
+                indicator.checkCanceled();
+            } while (writeNextBatch());
+        }
+
+        private List<Source> collectSources(ProgressIndicator indicator) {
+            List<Source> sources = new ArrayList<>();
+            for (VirtualFile root : roots) {
+                VfsUtilCore.iterateChildrenRecursively(root,
+                        // Never read back output generated into the selected directories
+                        file -> !VfsUtilCore.isAncestor(outputDir, file, false),
+                        file -> {
+                            indicator.checkCanceled();
+                            if (!file.isDirectory() && "java".equals(file.getExtension())) {
+                                String relativeDir = VfsUtilCore.getRelativePath(file.getParent(), root);
+                                sources.add(new Source(file, relativeDir != null ? relativeDir : ""));
+                            }
+                            return true;
+                        });
+            }
+            return sources;
+        }
+
+        /**
+         * Keep the first source for each output path and report the others, which would
+         * otherwise silently overwrite its generated file.
+         */
+        private List<Source> withoutCollisions(List<Source> sources) {
+            Map<String, Source> byOutputPath = new LinkedHashMap<>();
+            for (Source source : sources) {
+                Source previous = byOutputPath.putIfAbsent(source.outputPath(), source);
+                if (previous != null) {
+                    failures.add(source.file().getPresentableUrl() + ": " + source.outputPath()
+                            + " is already generated from " + previous.file().getPresentableUrl());
+                }
+            }
+            return new ArrayList<>(byOutputPath.values());
+        }
+
+        private String generate(JavaPoetProjectService service, PsiManager psiManager, VirtualFile file)
+                throws IOException {
+            PsiJavaFile javaFile = ReadAction.compute(() -> {
+                PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+                return psiFile instanceof PsiJavaFile java ? java : null;
+            });
+            if (javaFile == null) {
+                return service.generateUncached(file);
+            }
+            return ReadAction.nonBlocking(() -> service.generateUncached(javaFile)).executeSynchronously();
+        }
+
+        /**
+         * Take up to {@link #WRITE_BATCH_SIZE} generated files off the queue and write them
+         * in one write action on the EDT.
+         *
+         * @return whether any file was taken
+         */
+        private boolean writeNextBatch() {
+            List<Generated> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+            Generated result;
+            while (batch.size() < WRITE_BATCH_SIZE && (result = generated.poll()) != null) {
+                batch.add(result);
+            }
+            if (batch.isEmpty()) {
+                return false;
+            }
+            pending.addAndGet(-batch.size());
+            ApplicationManager.getApplication().invokeAndWait(() ->
+                    WriteCommandAction.runWriteCommandAction(myProject, "Generate JavaPoet Code", null,
+                            () -> writeBatch(batch)),
+                    ModalityState.defaultModalityState());
+            return true;
+        }
+
+        private void writeBatch(List<Generated> batch) {
+            for (Generated result : batch) {
+                Source source = result.source();
+                try {
+                    VirtualFile dir = source.relativeDir().isEmpty()
+                            ? outputDir
+                            : VfsUtil.createDirectoryIfMissing(outputDir, source.relativeDir());
+                    VirtualFile target = dir.findOrCreateChildData(this, source.outputFileName());
+                    VfsUtil.saveText(target, result.code());
+                } catch (IOException ex) {
+                    failures.add(source.file().getName() + ": " + ex.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void onSuccess() {
+            int failed = failures.size();
+            // Notifications are HTML, and paths and failures hold file names and exception messages
+            String message = "Generated JavaPoet code for " + (total - failed) + " of " + total
+                    + " file(s) into " + StringUtil.escapeXmlEntities(outputDir.getPresentableUrl());
+            if (failed == 0) {
+                showSuccess(myProject, message);
+                return;
+            }
+            StringBuilder details = new StringBuilder(message).append("<br>").append(failed).append(" failed:");
+            failures.stream().limit(10).forEach(failure ->
+                    details.append("<br>").append(StringUtil.escapeXmlEntities(failure)));
+            if (failed > 10) {
+                details.append("<br>...");
+            }
+            showNotification(myProject, "JavaPoet Generator", details.toString(), NotificationType.WARNING);
+        }
+
+        @Override
+        public void onThrowable(@NotNull Throwable error) {
+            showError(myProject, "Failed to generate JavaPoet code: "
+                    + StringUtil.escapeXmlEntities(String.valueOf(error.getMessage())));
+        }
+    }
+}
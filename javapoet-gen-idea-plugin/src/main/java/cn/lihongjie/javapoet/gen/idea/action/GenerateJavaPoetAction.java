@@ -17,15 +17,10 @@ public class GenerateJavaPoetAction extends BaseJavaPoetAction {
             return;
         }
 
-        try {
-            String generatedCode = generateCode(e);
-            
+        generateInBackground(e, generatedCode -> {
             // Show dialog with generated code
             JavaPoetResultDialog dialog = new JavaPoetResultDialog(project, generatedCode);
             dialog.show();
-            
-        } catch (Exception ex) {
-            showError(project, "Failed to generate JavaPoet code: " + ex.getMessage());
-        }
+        });
     }
 }
@@ -1,6 +1,6 @@
 package cn.lihongjie.javapoet.gen.idea.action;
 
-import cn.lihongjie.javapoet.gen.idea.toolwindow.JavaPoetToolWindowFactory;
+import cn.lihongjie.javapoet.gen.idea.service.JavaPoetProjectService;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.wm.ToolWindow;
@@ -19,21 +19,16 @@ public class GenerateToToolWindowAction extends BaseJavaPoetAction {
             return;
         }
 
-        try {
-            String generatedCode = generateCode(e);
-            
+        generateInBackground(e, generatedCode -> {
             // Get or create tool window
             ToolWindow toolWindow = ToolWindowManager.getInstance(project)
                     .getToolWindow("JavaPoet Generator");
-            
+
             if (toolWindow != null) {
                 // Update content and show
-                JavaPoetToolWindowFactory.updateContent(project, generatedCode);
+                JavaPoetProjectService.getInstance(project).showInToolWindow(generatedCode);
                 toolWindow.show();
             }
-            
-        } catch (Exception ex) {
-            showError(project, "Failed to generate JavaPoet code: " + ex.getMessage());
-        }
+        });
     }
 }
@@ -0,0 +1,502 @@
+package cn.lihongjie.javapoet.gen.idea.psi;
+
+import cn.lihongjie.javapoet.gen.core.JavaPoetGenException;
+import cn.lihongjie.javapoet.gen.core.model.AnnotationModel;
+import cn.lihongjie.javapoet.gen.core.model.EnumConstantModel;
+import cn.lihongjie.javapoet.gen.core.model.ExpressionModel;
+import cn.lihongjie.javapoet.gen.core.model.FieldModel;
+import cn.lihongjie.javapoet.gen.core.model.MemberFilter;
+import cn.lihongjie.javapoet.gen.core.model.MethodModel;
+import cn.lihongjie.javapoet.gen.core.model.ParameterModel;
+import cn.lihongjie.javapoet.gen.core.model.SourceFile;
+import cn.lihongjie.javapoet.gen.core.model.SourceModelReader;
+import cn.lihongjie.javapoet.gen.core.model.StatementModel;
+import cn.lihongjie.javapoet.gen.core.model.TypeModel;
+import cn.lihongjie.javapoet.gen.core.model.TypeRef;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.psi.*;
+import com.intellij.psi.augment.PsiExtensibleClass;
+import com.intellij.psi.javadoc.PsiDocComment;
+import com.intellij.psi.util.PsiTreeUtil;
+
+import javax.lang.model.element.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Builds a {@link SourceFile} from the PSI tree of a Java file, so code can be
+ * generated from the tree the IDE already holds, including unsaved changes,
+ * instead of parsing the file again.
+ *
+ * <p>The model matches the one {@link cn.lihongjie.javapoet.gen.core.model.JavaParserModelReader}
+ * builds, except that expression and statement text is taken from the source as
+ * written; line breaks inside an expression are joined into single spaces.</p>
+ *
+ * <p>Must be called inside a read action. Instances are stateless.</p>
+ */
+public class PsiModelReader implements SourceModelReader<PsiJavaFile> {
+
+    private static final Pattern LINE_BREAK = Pattern.compile("\\s*\\R\\s*");
+
+    /**
+     * Build the model of a Java file with only the members a filter accepts.
+     *
+     * @param file   the Java file
+     * @param filter decides which fields, constructors and methods are read
+     * @return the model of the file
+     * @throws JavaPoetGenException if the file has syntax errors
+     */
+    @Override
+    public SourceFile read(PsiJavaFile file, MemberFilter filter) {
+        checkSyntax(file);
+
+        List<TypeModel> types = new ArrayList<>();
+        for (PsiClass psiClass : file.getClasses()) {
+            ProgressManager.checkCanceled();
+            if (isModelledType(psiClass)) {
+                types.add(readTypeDeclaration(psiClass, filter, null));
+            }
+        }
+        return new SourceFile(file.getPackageName(), types);
+    }
+
+    /**
+     * Build the model of just the member or type an element belongs to, such as the
+     * element at the caret, as {@code JavaParserModelReader.readScope} does: the
+     * innermost class, interface or enum declaring the element, top-level or nested,
+     * with only the field, constructor or method containing it. An element in the type
+     * but outside its members selects all members; an element outside any type selects
+     * the whole file.
+     *
+     * @param element an element of a Java file
+     * @return the model of the selection
+     * @throws JavaPoetGenException if the file has syntax errors
+     */
+    public SourceFile readScope(PsiElement element) {
+        return readScope(element, MemberFilter.ALL);
+    }
+
+    /**
+     * Build the model of just the member or type an element belongs to, like
+     * {@link #readScope(PsiElement)}, leaving out the members a filter rejects. A member
+     * containing the element is read even if the filter rejects it, since it was
+     * selected explicitly.
+     *
+     * @param element an element of a Java file
+     * @param filter  decides which fields, constructors and methods are read when a whole type or file is selected
+     * @return the model of the selection
+     * @throws JavaPoetGenException if the file has syntax errors
+     */
+    public SourceFile readScope(PsiElement element, MemberFilter filter) {
+        if (!(element.getContainingFile() instanceof PsiJavaFile file)) {
+            throw new JavaPoetGenException("Not a Java file: " + element.getContainingFile().getName());
+        }
+
+        PsiMember member = null;
+        for (PsiElement node = element; node != null && node != file; node = node.getParent()) {
+            if (node instanceof PsiClass psiClass && isModelledType(psiClass)
+                    && (psiClass.getParent() == file || psiClass.getContainingClass() != null)) {
+                checkSyntax(file);
+                PsiMember selected = member != null && member.getContainingClass() == psiClass ? member : null;
+                return new SourceFile(file.getPackageName(),
+                        List.of(readTypeDeclaration(psiClass, filter, selected)));
+            }
+            if ((node instanceof PsiField && !(node instanceof PsiEnumConstant)) || node instanceof PsiMethod) {
+                // Members of local and anonymous classes are replaced by the member enclosing them
+                member = (PsiMember) node;
+            }
+        }
+        return read(file, filter);
+    }
+
+    private static void checkSyntax(PsiJavaFile file) {
+        if (PsiTreeUtil.hasErrorElements(file)) {
+            throw new JavaPoetGenException("Failed to parse " + file.getName() + ": the file has syntax errors");
+        }
+    }
+
+    /**
+     * Whether a class is modelled; annotation types and records are skipped, as in JavaParser.
+     */
+    private static boolean isModelledType(PsiClass psiClass) {
+        return !psiClass.isAnnotationType() && !psiClass.isRecord()
+                && !(psiClass instanceof PsiAnonymousClass) && !(psiClass instanceof PsiTypeParameter);
+    }
+
+    /**
+     * Read a class, interface or enum with the members a filter accepts.
+     *
+     * @param selected the only member to read whatever the filter says, or {@code null} to read all accepted members
+     */
+    private TypeModel readTypeDeclaration(PsiClass psiClass, MemberFilter filter, PsiMember selected) {
+        TypeModel.Kind kind = psiClass.isEnum() ? TypeModel.Kind.ENUM
+                : psiClass.isInterface() ? TypeModel.Kind.INTERFACE
+                : TypeModel.Kind.CLASS;
+
+        List<FieldModel> fields = new ArrayList<>();
+        List<EnumConstantModel> constants = new ArrayList<>();
+        for (PsiField field : ownFields(psiClass)) {
+            if (field instanceof PsiEnumConstant constant) {
+                PsiExpressionList arguments = constant.getArgumentList();
+                constants.add(new EnumConstantModel(constant.getName(), arguments == null ? List.of()
+                        : Arrays.stream(arguments.getExpressions()).map(PsiModelReader::text).toList()));
+                continue;
+            }
+            List<Modifier> modifiers = readModifiers(field.getModifierList());
+            if (!includes(field, filter, selected, MemberFilter.Kind.FIELD, modifiers, kind)) {
+                continue;
+            }
+            PsiExpression initializer = field.getInitializer();
+            fields.add(new FieldModel(field.getName(), readType(field.getTypeElement()),
+                    modifiers, readAnnotations(field.getModifierList()),
+                    initializer != null ? readInitializer(initializer) : null, readJavadoc(field)));
+        }
+
+        List<MethodModel> constructors = new ArrayList<>();
+        List<MethodModel> methods = new ArrayList<>();
+        for (PsiMethod method : ownMethods(psiClass)) {
+            ProgressManager.checkCanceled();
+            List<Modifier> modifiers = readModifiers(method.getModifierList());
+            MemberFilter.Kind memberKind = method.isConstructor() ? MemberFilter.Kind.CONSTRUCTOR : MemberFilter.Kind.METHOD;
+            if (!includes(method, filter, selected, memberKind, modifiers, kind)) {
+                continue;
+            }
+            PsiCodeBlock body = method.getBody();
+            MethodModel model = new MethodModel(
+                    method.getName(),
+                    modifiers,
+                    method.isConstructor() ? null : readType(method.getReturnTypeElement()),
+                    readParameters(method.getParameterList()),
+                    Arrays.stream(method.getTypeParameters()).map(PsiTypeParameter::getName).toList(),
+                    readReferences(method.getThrowsList()),
+                    readAnnotations(method.getModifierList()),
+                    body != null ? readBlock(body) : null,
+                    readJavadoc(method));
+            (method.isConstructor() ? constructors : methods).add(model);
+        }
+
+        return new TypeModel(
+                kind,
+                psiClass.getName(),
+                readModifiers(psiClass.getModifierList()),
+                kind == TypeModel.Kind.ENUM ? List.of() : readReferences(psiClass.getExtendsList()),
+                readReferences(psiClass.getImplementsList()),
+                readAnnotations(psiClass.getModifierList()),
+                readJavadoc(psiClass),
+                fields,
+                constructors,
+                methods,
+                constants);
+    }
+
+    /**
+     * Whether a member is read: the selected member, if any, or else the members accepted by the filter.
+     */
+    private static boolean includes(PsiMember member, MemberFilter filter, PsiMember selected,
+                                    MemberFilter.Kind kind, List<Modifier> modifiers,
+                                    TypeModel.Kind declaringKind) {
+        if (selected != null) {
+            return member == selected;
+        }
+        if (filter == MemberFilter.ALL) {
+            return true;
+        }
+        List<String> annotations = new ArrayList<>();
+        PsiModifierList modifierList = member.getModifierList();
+        if (modifierList != null) {
+            for (PsiAnnotation annotation : modifierList.getAnnotations()) {
+                PsiJavaCodeReferenceElement nameReference = annotation.getNameReferenceElement();
+                if (nameReference != null) {
+                    annotations.add(nameReference.getText());
+                }
+            }
+        }
+        // A constructor is named after its class, as in JavaParser
+        return filter.accept(new MemberFilter.Member(kind, member.getName(), modifiers, annotations, declaringKind));
+    }
+
+    /**
+     * Fields declared in the source, without those added by language extensions such as Lombok.
+     */
+    private static List<PsiField> ownFields(PsiClass psiClass) {
+        return psiClass instanceof PsiExtensibleClass extensible
+                ? extensible.getOwnFields()
+                : Arrays.asList(psiClass.getFields());
+    }
+
+    private static List<PsiMethod> ownMethods(PsiClass psiClass) {
+        return psiClass instanceof PsiExtensibleClass extensible
+                ? extensible.getOwnMethods()
+                : Arrays.asList(psiClass.getMethods());
+    }
+
+    /**
+     * Read the modifier keywords written in the source, in source order.
+     */
+    private static List<Modifier> readModifiers(PsiModifierList modifierList) {
+        if (modifierList == null) {
+            return List.of();
+        }
+        List<Modifier> modifiers = new ArrayList<>();
+        for (PsiElement child : modifierList.getChildren()) {
+            if (child instanceof PsiKeyword) {
+                modifiers.add(Modifier.valueOf(child.getText().toUpperCase(Locale.ROOT).replace('-', '_')));
+            }
+        }
+        return modifiers;
+    }
+
+    private static String readJavadoc(PsiDocCommentOwner owner) {
+        PsiDocComment docComment = owner.getDocComment();
+        if (docComment == null) {
+            return null;
+        }
+        // Strip the comment delimiters, as JavaParser does
+        String text = docComment.getText();
+        return text.substring(3, text.length() - 2);
+    }
+
+    private List<ParameterModel> readParameters(PsiParameterList parameterList) {
+        List<ParameterModel> models = new ArrayList<>(parameterList.getParametersCount());
+        for (PsiParameter param : parameterList.getParameters()) {
+            PsiTypeElement typeElement = param.getTypeElement();
+            if (param.isVarArgs() && typeElement != null) {
+                // JavaParser records the element type of a varargs parameter
+                typeElement = PsiTreeUtil.getChildOfType(typeElement, PsiTypeElement.class);
+            }
+            PsiModifierList modifierList = param.getModifierList();
+            models.add(new ParameterModel(param.getName(), readType(typeElement, param),
+                    modifierList != null && modifierList.hasExplicitModifier(PsiModifier.FINAL),
+                    readAnnotations(modifierList)));
+        }
+        return models;
+    }
+
+    private List<TypeRef> readReferences(PsiReferenceList referenceList) {
+        if (referenceList == null || referenceList.getReferenceElements().length == 0) {
+            return List.of();
+        }
+        return Arrays.stream(referenceList.getReferenceElements()).map(this::readReference).toList();
+    }
+
+    private TypeRef readReference(PsiJavaCodeReferenceElement reference) {
+        return TypeRef.classType(reference.getReferenceName(), reference.getText(), readTypeArguments(reference));
+    }
+
+    private List<TypeRef> readTypeArguments(PsiJavaCodeReferenceElement reference) {
+        PsiReferenceParameterList parameterList = reference.getParameterList();
+        if (parameterList == null || parameterList.getTypeParameterElements().length == 0) {
+            return List.of();
+        }
+        return Arrays.stream(parameterList.getTypeParameterElements()).map(this::readType).toList();
+    }
+
+    /**
+     * Read the declared type of a variable, or use the text of the variable if it has no
+     * type element, as in a lambda parameter or while the declaration is still being typed.
+     */
+    private TypeRef readType(PsiTypeElement typeElement, PsiVariable variable) {
+        return typeElement != null ? readType(typeElement) : TypeRef.other(variable.getText());
+    }
+
+    private TypeRef readType(PsiTypeElement typeElement) {
+        PsiType type = typeElement.getType();
+        if (PsiTypes.voidType().equals(type)) {
+            return TypeRef.voidType();
+        } else if (type instanceof PsiPrimitiveType primitiveType) {
+            return TypeRef.primitive(primitiveType.getName());
+        } else if (type instanceof PsiArrayType) {
+            PsiTypeElement component = PsiTreeUtil.getChildOfType(typeElement, PsiTypeElement.class);
+            if (component != null) {
+                return TypeRef.arrayOf(readType(component), typeElement.getText());
+            }
+        } else if (type instanceof PsiClassType) {
+            PsiJavaCodeReferenceElement reference = typeElement.getInnermostComponentReferenceElement();
+            if (reference != null) {
+                return TypeRef.classType(reference.getReferenceName(), typeElement.getText(),
+                        readTypeArguments(reference));
+            }
+        }
+        return TypeRef.other(typeElement.getText());
+    }
+
+    private List<AnnotationModel> readAnnotations(PsiModifierList modifierList) {
+        if (modifierList == null || modifierList.getAnnotations().length == 0) {
+            return List.of();
+        }
+        List<AnnotationModel> models = new ArrayList<>();
+        for (PsiAnnotation annotation : modifierList.getAnnotations()) {
+            List<AnnotationModel.Member> members = new ArrayList<>();
+            for (PsiNameValuePair pair : annotation.getParameterList().getAttributes()) {
+                String name = pair.getName() != null ? pair.getName() : "value";
+                members.add(new AnnotationModel.Member(name, readAnnotationValue(pair.getValue())));
+            }
+            PsiJavaCodeReferenceElement nameReference = annotation.getNameReferenceElement();
+            models.add(new AnnotationModel(nameReference != null ? nameReference.getText() : "", members));
+        }
+        return models;
+    }
+
+    private ExpressionModel readAnnotationValue(PsiAnnotationMemberValue value) {
+        if (value instanceof PsiLiteralExpression literal && isStringLiteral(literal)) {
+            return ExpressionModel.stringLiteral(stringContent(literal));
+        } else if (value instanceof PsiClassObjectAccessExpression classAccess) {
+            return ExpressionModel.classLiteral(readType(classAccess.getOperand()));
+        } else if (value instanceof PsiArrayInitializerMemberValue arrayInit) {
+            return ExpressionModel.other("{" + Arrays.stream(arrayInit.getInitializers())
+                    .map(PsiModelReader::text)
+                    .collect(Collectors.joining(", ")) + "}");
+        }
+        return ExpressionModel.other(value != null ? text(value) : "");
+    }
+
+    private ExpressionModel readInitializer(PsiExpression expr) {
+        if (expr instanceof PsiLiteralExpression literal) {
+            if (isStringLiteral(literal)) {
+                return ExpressionModel.stringLiteral(stringContent(literal));
+            }
+            Object value = literal.getValue();
+            if (value instanceof Number || value instanceof Boolean) {
+                return ExpressionModel.literal(text(expr));
+            }
+        } else if (expr instanceof PsiClassObjectAccessExpression classAccess) {
+            return ExpressionModel.classLiteral(readType(classAccess.getOperand()));
+        } else if (expr instanceof PsiNewExpression newExpr) {
+            PsiJavaCodeReferenceElement classReference = newExpr.getClassOrAnonymousClassReference();
+            PsiExpressionList arguments = newExpr.getArgumentList();
+            if (classReference != null && arguments != null) {
+                // Anonymous class bodies are not kept
+                return ExpressionModel.other("new " + classReference.getText() + "("
+                        + Arrays.stream(arguments.getExpressions())
+                        .map(PsiModelReader::text)
+                        .collect(Collectors.joining(", ")) + ")");
+            }
+        }
+        return ExpressionModel.other(text(expr));
+    }
+
+    /**
+     * Whether a literal is a single-line string literal; text blocks are kept as expressions, as in JavaParser.
+     */
+    private static boolean isStringLiteral(PsiLiteralExpression literal) {
+        return literal.getValue() instanceof String && !literal.isTextBlock();
+    }
+
+    /**
+     * Get the content of a string literal with its escapes, without the quotes.
+     */
+    private static String stringContent(PsiLiteralExpression literal) {
+        String text = literal.getText();
+        return text.substring(1, text.length() - 1);
+    }
+
+    private StatementModel.Block readBlock(PsiCodeBlock block) {
+        List<StatementModel> statements = new ArrayList<>(block.getStatementCount());
+        for (PsiStatement stmt : block.getStatements()) {
+            statements.add(readStatement(stmt));
+        }
+        return new StatementModel.Block(statements);
+    }
+
+    private StatementModel readStatement(PsiStatement stmt) {
+        if (stmt instanceof PsiReturnStatement returnStmt) {
+            PsiExpression value = returnStmt.getReturnValue();
+            return new StatementModel.Return(value != null ? text(value) : null);
+        } else if (stmt instanceof PsiExpressionStatement exprStmt) {
+            return new StatementModel.ExpressionStatement(text(exprStmt.getExpression()));
+        } else if (stmt instanceof PsiDeclarationStatement declaration
+                && declaration.getDeclaredElements().length > 0
+                && declaration.getDeclaredElements()[0] instanceof PsiLocalVariable) {
+            // JavaParser treats local variable declarations as expression statements
+            return new StatementModel.ExpressionStatement(withoutSemicolon(text(declaration)));
+        } else if (stmt instanceof PsiIfStatement ifStmt) {
+            PsiStatement elseBranch = ifStmt.getElseBranch();
+            return new StatementModel.If(textOrEmpty(ifStmt.getCondition()), readBranch(ifStmt.getThenBranch()),
+                    elseBranch != null ? readStatement(elseBranch) : null);
+        } else if (stmt instanceof PsiForStatement forStmt) {
+            return new StatementModel.For(
+                    textOrEmpty(forStmt.getInitialization()),
+                    textOrEmpty(forStmt.getCondition()),
+                    textOrEmpty(forStmt.getUpdate()),
+                    readBranch(forStmt.getBody()));
+        } else if (stmt instanceof PsiForeachStatement forEachStmt) {
+            PsiParameter variable = forEachStmt.getIterationParameter();
+            return new StatementModel.ForEach(
+                    readType(variable.getTypeElement(), variable),
+                    variable.getName(),
+                    textOrEmpty(forEachStmt.getIteratedValue()),
+                    readBranch(forEachStmt.getBody()));
+        } else if (stmt instanceof PsiWhileStatement whileStmt) {
+            return new StatementModel.While(textOrEmpty(whileStmt.getCondition()), readBranch(whileStmt.getBody()));
+        } else if (stmt instanceof PsiTryStatement tryStmt) {
+            List<StatementModel.CatchClause> catchClauses = new ArrayList<>();
+            for (PsiCatchSection catchSection : tryStmt.getCatchSections()) {
+                PsiParameter parameter = catchSection.getParameter();
+                if (parameter == null) {
+                    // A catch clause still being typed has nothing to generate yet
+                    continue;
+                }
+                catchClauses.add(new StatementModel.CatchClause(
+                        readType(parameter.getTypeElement(), parameter),
+                        parameter.getName(),
+                        readBlockOrEmpty(catchSection.getCatchBlock())));
+            }
+            PsiCodeBlock finallyBlock = tryStmt.getFinallyBlock();
+            return new StatementModel.Try(readBlockOrEmpty(tryStmt.getTryBlock()), catchClauses,
+                    finallyBlock != null ? readBlock(finallyBlock) : null);
+        } else if (stmt instanceof PsiThrowStatement throwStmt) {
+            return new StatementModel.Throw(textOrEmpty(throwStmt.getException()));
+        } else if (stmt instanceof PsiBlockStatement blockStmt) {
+            return readBlock(blockStmt.getCodeBlock());
+        }
+        return new StatementModel.Other(stmt.getText().trim());
+    }
+
+    /**
+     * Read the body of a branch or loop, which PSI leaves out while it is being typed,
+     * as in {@code if (ready)} with nothing after it.
+     */
+    private StatementModel readBranch(PsiStatement stmt) {
+        return stmt != null ? readStatement(stmt) : new StatementModel.Block(List.of());
+    }
+
+    private StatementModel.Block readBlockOrEmpty(PsiCodeBlock block) {
+        return block != null ? readBlock(block) : new StatementModel.Block(List.of());
+    }
+
+    /**
+     * Get the text of an expression, or an empty string if it has not been typed yet.
+     */
+    private static String textOrEmpty(PsiExpression expression) {
+        return expression != null ? text(expression) : "";
+    }
+
+    /**
+     * Get the text of a for-loop initialization or update, which PSI models as a statement.
+     */
+    private static String textOrEmpty(PsiStatement stmt) {
+        return stmt == null || stmt instanceof PsiEmptyStatement ? "" : withoutSemicolon(text(stmt));
+    }
+
+    private static String withoutSemicolon(String text) {
+        return text.endsWith(";") ? text.substring(0, text.length() - 1).trim() : text;
+    }
+
+    /**
+     * Get the source text of an element. Text spanning several lines is joined into one
+     * line, unless it holds a comment or a text block, which line breaks are part of.
+     */
+    private static String text(PsiElement element) {
+        String text = element.getText();
+        if (text.indexOf('\n') < 0 && text.indexOf('\r') < 0
+                || text.contains("\"\"\"")
+                || PsiTreeUtil.findChildOfType(element, PsiComment.class) != null) {
+            return text;
+        }
+        return LINE_BREAK.matcher(text).replaceAll(" ");
+    }
+}
@@ -0,0 +1,228 @@
+package cn.lihongjie.javapoet.gen.idea.service;
+
+import cn.lihongjie.javapoet.gen.core.GeneratorConfig;
+import cn.lihongjie.javapoet.gen.core.JavaPoetGenerator;
+import cn.lihongjie.javapoet.gen.core.model.MemberFilter;
+import cn.lihongjie.javapoet.gen.idea.CancellableAppendable;
+import cn.lihongjie.javapoet.gen.idea.psi.PsiModelReader;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.FileEditorManagerListener;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.ui.EditorTextField;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-project state of the plugin: the generator, the code most recently generated
+ * for each file, and the tool window editor generated code is shown in.
+ *
+ * <p>Generated code is cached per file together with the modification stamp of the
+ * file's document, so running several actions on an unchanged file generates its
+ * code once. The cache holds the {@link #MAX_CACHED_FILES} most recently used files;
+ * a file is evicted when it is closed, and everything is released with the project.
+ * Bulk generation uses the {@code generateUncached} methods and leaves the cache alone.</p>
+ */
+@Service(Service.Level.PROJECT)
+public final class JavaPoetProjectService implements Disposable {
+
+    /**
+     * Maximum number of files whose generated code is kept.
+     */
+    static final int MAX_CACHED_FILES = 32;
+
+    private final GeneratorConfig config = new GeneratorConfig();
+    private final JavaPoetGenerator generator = new JavaPoetGenerator(config);
+    private final PsiModelReader modelReader = new PsiModelReader();
+    private final MemberFilter memberFilter = config.memberFilter();
+    private final Map<VirtualFile, CachedCode> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<VirtualFile, CachedCode> eldest) {
+            return size() > MAX_CACHED_FILES;
+        }
+    };
+
+    /**
+     * Only read and written on the EDT.
+     */
+    private EditorTextField previewEditor;
+
+    public JavaPoetProjectService(Project project) {
+        project.getMessageBus().connect(this).subscribe(FileEditorManagerListener.FILE_EDITOR_MANAGER,
+                new FileEditorManagerListener() {
+                    @Override
+                    public void fileClosed(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+                        evict(file);
+                    }
+                });
+    }
+
+    public static JavaPoetProjectService getInstance(Project project) {
+        return project.getService(JavaPoetProjectService.class);
+    }
+
+    /**
+     * Generate JavaPoet code from the PSI of a Java file, or return the code cached for
+     * its current modification stamp. Must be called in a read action with the file's
+     * document committed; generation checks for cancellation as the code is written.
+     *
+     * @param javaFile the Java file
+     * @return the generated code
+     * @throws cn.lihongjie.javapoet.gen.core.JavaPoetGenException if the file has syntax errors
+     */
+    public String generate(PsiJavaFile javaFile) {
+        VirtualFile file = javaFile.getViewProvider().getVirtualFile();
+        long modificationStamp = modificationStamp(file);
+        String cached = getCached(file, modificationStamp);
+        if (cached != null) {
+            return cached;
+        }
+
+        String generated = generateUncached(javaFile);
+        put(file, modificationStamp, generated);
+        return generated;
+    }
+
+    /**
+     * Generate JavaPoet code from the PSI of a Java file without reading or filling the
+     * cache, so that bulk generation does not evict the code of the files being edited.
+     * Must be called in a read action with the file's document committed.
+     *
+     * @param javaFile the Java file
+     * @return the generated code
+     * @throws cn.lihongjie.javapoet.gen.core.JavaPoetGenException if the file has syntax errors
+     */
+    public String generateUncached(PsiJavaFile javaFile) {
+        StringBuilder code = new StringBuilder();
+        try {
+            generator.generateFromModel(modelReader.read(javaFile, memberFilter), new CancellableAppendable(code));
+        } catch (IOException e) {
+            // Appending to a StringBuilder does not fail
+            throw new IllegalStateException(e);
+        }
+        return code.toString();
+    }
+
+    /**
+     * Generate JavaPoet code for just the member or type an element belongs to, such
+     * as the element at the caret; see {@link PsiModelReader#readScope(PsiElement)}.
+     * The result is not cached, since generating a single member is cheap. Must be
+     * called in a read action with the file's document committed.
+     *
+     * @param element an element of a Java file
+     * @return the generated code
+     * @throws cn.lihongjie.javapoet.gen.core.JavaPoetGenException if the file has syntax errors
+     */
+    public String generateScope(PsiElement element) {
+        StringBuilder code = new StringBuilder();
+        try {
+            generator.generateFromModel(modelReader.readScope(element, memberFilter), new CancellableAppendable(code));
+        } catch (IOException e) {
+            // Appending to a StringBuilder does not fail
+            throw new IllegalStateException(e);
+        }
+        return code.toString();
+    }
+
+    /**
+     * Generate JavaPoet code from the saved contents of a file, or return the code cached
+     * for its current modification stamp. Used for files that have no Java PSI.
+     *
+     * @param file the source file
+     * @return the generated code
+     * @throws IOException if the file cannot be read
+     */
+    public String generate(VirtualFile file) throws IOException {
+        long modificationStamp = modificationStamp(file);
+        String cached = getCached(file, modificationStamp);
+        if (cached != null) {
+            return cached;
+        }
+
+        String generated = generateUncached(file);
+        put(file, modificationStamp, generated);
+        return generated;
+    }
+
+    /**
+     * Generate JavaPoet code from the saved contents of a file without reading or
+     * filling the cache. Used for files that have no Java PSI.
+     *
+     * @param file the source file
+     * @return the generated code
+     * @throws IOException if the file cannot be read
+     */
+    public String generateUncached(VirtualFile file) throws IOException {
+        String sourceCode = new String(file.contentsToByteArray(), StandardCharsets.UTF_8);
+        StringBuilder code = new StringBuilder();
+        generator.generateFromSource(sourceCode, file.getName(), new CancellableAppendable(code));
+        return code.toString();
+    }
+
+    /**
+     * Set the tool window editor generated code is shown in, until {@code parent} is disposed.
+     * Must be called on the EDT.
+     */
+    public void setPreviewEditor(EditorTextField editor, Disposable parent) {
+        previewEditor = editor;
+        Disposer.register(parent, () -> {
+            if (previewEditor == editor) {
+                previewEditor = null;
+            }
+        });
+    }
+
+    /**
+     * Show generated code in the tool window editor, if the tool window has been created.
+     * Must be called on the EDT.
+     */
+    public void showInToolWindow(String code) {
+        if (previewEditor != null) {
+            previewEditor.setText(code);
+        }
+    }
+
+    /**
+     * Get the modification stamp of the file's document, or of the file itself if it
+     * has no document loaded, which then holds no unsaved changes.
+     */
+    private static long modificationStamp(VirtualFile file) {
+        Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+        return document != null ? document.getModificationStamp() : file.getModificationStamp();
+    }
+
+    private synchronized String getCached(VirtualFile file, long modificationStamp) {
+        CachedCode cached = cache.get(file);
+        return cached != null && cached.modificationStamp() == modificationStamp ? cached.code() : null;
+    }
+
+    private synchronized void put(VirtualFile file, long modificationStamp, String code) {
+        cache.put(file, new CachedCode(modificationStamp, code));
+    }
+
+    private synchronized void evict(VirtualFile file) {
+        cache.remove(file);
+    }
+
+    @Override
+    public synchronized void dispose() {
+        cache.clear();
+    }
+
+    /**
+     * Code generated from a file at a given modification stamp.
+     */
+    private record CachedCode(long modificationStamp, String code) {
+    }
+}
@@ -1,5 +1,6 @@
 package cn.lihongjie.javapoet.gen.idea.toolwindow;
 
+import cn.lihongjie.javapoet.gen.idea.service.JavaPoetProjectService;
 import com.intellij.openapi.ide.CopyPasteManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.wm.ToolWindow;
@@ -13,16 +14,12 @@ import org.jetbrains.annotations.NotNull;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.datatransfer.StringSelection;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Factory for creating the JavaPoet Generator tool window.
  */
 public class JavaPoetToolWindowFactory implements ToolWindowFactory {
 
-    private static final Map<Project, EditorTextField> editorMap = new HashMap<>();
-
     @Override
     public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
         JavaPoetToolWindowContent content = new JavaPoetToolWindowContent(project);
@@ -31,20 +28,12 @@ public class JavaPoetToolWindowFactory implements ToolWindowFactory {
                 "Generated Code", 
                 false
         );
+        // Stop following the editor when the content is closed
+        windowContent.setDisposer(content.getLivePreview());
         toolWindow.getContentManager().addContent(windowContent);
-        
-        // Store reference for updates
-        editorMap.put(project, content.getEditor());
-    }
 
-    /**
-     * Update the content of the tool window.
-     */
-    public static void updateContent(Project project, String code) {
-        EditorTextField editor = editorMap.get(project);
-        if (editor != null) {
-            editor.setText(code);
-        }
+        // Held by the project service, so it is released with the content or the project
+        JavaPoetProjectService.getInstance(project).setPreviewEditor(content.getEditor(), content.getLivePreview());
     }
 
     /**
@@ -53,6 +42,7 @@ public class JavaPoetToolWindowFactory implements ToolWindowFactory {
     private static class JavaPoetToolWindowContent {
         private final JPanel mainPanel;
         private final EditorTextField editorTextField;
+        private final LivePreview livePreview;
 
         public JavaPoetToolWindowContent(Project project) {
             mainPanel = new JPanel(new BorderLayout());
@@ -60,6 +50,7 @@ public class JavaPoetToolWindowFactory implements ToolWindowFactory {
             // Create editor first (needed for button actions)
             editorTextField = new EditorTextField();
             editorTextField.setOneLineMode(false);
+            livePreview = new LivePreview(project, editorTextField::setText);
 
             // Create toolbar
             JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -77,6 +68,11 @@ public class JavaPoetToolWindowFactory implements ToolWindowFactory {
             clearButton.addActionListener(e -> editorTextField.setText(""));
             toolbar.add(clearButton);
 
+            JCheckBox livePreviewCheckBox = new JCheckBox("Live Preview");
+            livePreviewCheckBox.setToolTipText("Regenerate as you type in the selected Java editor");
+            livePreviewCheckBox.addActionListener(e -> livePreview.setEnabled(livePreviewCheckBox.isSelected()));
+            toolbar.add(livePreviewCheckBox);
+
             mainPanel.add(toolbar, BorderLayout.NORTH);
 
             // Add editor to scroll pane
@@ -94,5 +90,9 @@ public class JavaPoetToolWindowFactory implements ToolWindowFactory {
         public EditorTextField getEditor() {
             return editorTextField;
         }
+
+        public LivePreview getLivePreview() {
+            return livePreview;
+        }
     }
 }
@@ -0,0 +1,156 @@
+package cn.lihongjie.javapoet.gen.idea.toolwindow;
+
+import cn.lihongjie.javapoet.gen.core.JavaPoetGenException;
+import cn.lihongjie.javapoet.gen.idea.service.JavaPoetProjectService;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.FileEditorManagerEvent;
+import com.intellij.openapi.fileEditor.FileEditorManagerListener;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.ui.update.MergingUpdateQueue;
+import com.intellij.util.ui.update.Update;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+/**
+ * Regenerates JavaPoet code for the selected Java editor while the user types.
+ *
+ * <p>Document changes are debounced: a burst of edits schedules a single regeneration
+ * once typing pauses for {@link #DELAY_MILLIS}. The source is read and generated off
+ * the EDT in a non-blocking read action, which gives way to typing and is restarted
+ * afterwards, so it never blocks the editor. A newer regeneration cancels an older one
+ * still running, and a result is dropped if the document changed after it was computed.
+ * While the file does not compile, the last preview is kept.</p>
+ */
+class LivePreview implements Disposable {
+
+    /**
+     * Time without edits after which the preview is regenerated.
+     */
+    static final int DELAY_MILLIS = 300;
+
+    private final Project project;
+    private final Consumer<String> onGenerated;
+    private final MergingUpdateQueue queue;
+
+    /**
+     * Only read and written on the EDT.
+     */
+    private boolean enabled;
+
+    /**
+     * Create a live preview; it starts disabled.
+     *
+     * @param project     the project whose editors are followed
+     * @param onGenerated receives generated code on the EDT
+     */
+    LivePreview(Project project, Consumer<String> onGenerated) {
+        this.project = project;
+        this.onGenerated = onGenerated;
+        this.queue = new MergingUpdateQueue("JavaPoet live preview", DELAY_MILLIS, true, null, this);
+
+        EditorFactory.getInstance().getEventMulticaster().addDocumentListener(new DocumentListener() {
+            @Override
+            public void documentChanged(@NotNull DocumentEvent event) {
+                if (enabled && event.getDocument() == selectedDocument()) {
+                    schedule();
+                }
+            }
+        }, this);
+        project.getMessageBus().connect(this).subscribe(FileEditorManagerListener.FILE_EDITOR_MANAGER,
+                new FileEditorManagerListener() {
+                    @Override
+                    public void selectionChanged(@NotNull FileEditorManagerEvent event) {
+                        if (enabled) {
+                            schedule();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Turn the preview on or off. Turning it on regenerates the preview right away.
+     */
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled) {
+            schedule();
+        } else {
+            queue.cancelAllUpdates();
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    private void schedule() {
+        // Updates with the same identity are merged, so a burst of edits runs once
+        queue.queue(Update.create(this, this::regenerate));
+    }
+
+    private Document selectedDocument() {
+        Editor editor = FileEditorManager.getInstance(project).getSelectedTextEditor();
+        return editor != null ? editor.getDocument() : null;
+    }
+
+    private void regenerate() {
+        Document document = selectedDocument();
+        if (!enabled || document == null) {
+            return;
+        }
+        ReadAction.nonBlocking(() -> generate(document))
+                .withDocumentsCommitted(project)
+                .coalesceBy(this)
+                .expireWith(this)
+                .finishOnUiThread(ModalityState.defaultModalityState(), preview -> {
+                    if (preview != null && enabled
+                            && preview.modificationStamp() == document.getModificationStamp()) {
+                        onGenerated.accept(preview.code());
+                    }
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    /**
+     * Generate the preview of a document. Runs in a read action that is cancelled
+     * by the next write, which the output checks for as it is written.
+     *
+     * @return the preview, or {@code null} if the document is not valid Java
+     */
+    private Preview generate(Document document) {
+        PsiFile psiFile = PsiDocumentManager.getInstance(project).getPsiFile(document);
+        if (!(psiFile instanceof PsiJavaFile javaFile)) {
+            return null;
+        }
+        long modificationStamp = document.getModificationStamp();
+        try {
+            return new Preview(modificationStamp, JavaPoetProjectService.getInstance(project).generate(javaFile));
+        } catch (JavaPoetGenException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        enabled = false;
+    }
+
+    /**
+     * Code generated from a document at a given modification stamp.
+     */
+    private record Preview(long modificationStamp, String code) {
+    }
+}